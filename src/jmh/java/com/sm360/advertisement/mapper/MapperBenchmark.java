@@ -0,0 +1,135 @@
+package com.sm360.advertisement.mapper;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Compares the hand written mappers with the ModelMapper conversions they replaced.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapperBenchmark {
+
+	private static final Type LISTING_RESPONSES = new TypeToken<List<ListingGetResponse>>() {}.getType();
+
+	private static final Type DEALER_RESPONSES = new TypeToken<List<DealerGetResponse>>() {}.getType();
+
+	@Param({"1", "100", "10000"})
+	int size;
+
+	ModelMapper modelMapper;
+
+	ListingMapper listingMapper;
+
+	DealerMapper dealerMapper;
+
+	List<Listing> listings;
+
+	List<Dealer> dealers;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		modelMapper = new ModelMapper();
+		listingMapper = new ListingMapper();
+		dealerMapper = new DealerMapper();
+		listings = new ArrayList<Listing>(size);
+		dealers = new ArrayList<Dealer>(size);
+		for(int i = 0; i < size; i++) {
+			val dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(10).build();
+			dealers.add(dealer);
+			listings.add(Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota " + i).price(100.0 + i)
+					.createdAt(LocalDateTime.now()).updatedAt(LocalDateTime.now()).state(ListingState.draft).build());
+		}
+	}
+
+	@Benchmark
+	public List<ListingGetResponse> modelMapperListingGetResponses() {
+		return modelMapper.map(listings, LISTING_RESPONSES);
+	}
+
+	@Benchmark
+	public List<ListingGetResponse> listingMapperListingGetResponses() {
+		return listingMapper.toGetResponses(listings);
+	}
+
+	@Benchmark
+	public List<DealerGetResponse> modelMapperDealerGetResponses() {
+		return modelMapper.map(dealers, DEALER_RESPONSES);
+	}
+
+	@Benchmark
+	public List<DealerGetResponse> dealerMapperDealerGetResponses() {
+		return dealerMapper.toGetResponses(dealers);
+	}
+
+	@Benchmark
+	public List<ListingCreateResponse> modelMapperListingCreateResponses() {
+		val responses = new ArrayList<ListingCreateResponse>(size);
+		for(val listing : listings) {
+			responses.add(modelMapper.map(listing, ListingCreateResponse.class));
+		}
+		return responses;
+	}
+
+	@Benchmark
+	public List<ListingCreateResponse> listingMapperListingCreateResponses() {
+		val responses = new ArrayList<ListingCreateResponse>(size);
+		for(val listing : listings) {
+			responses.add(listingMapper.toCreateResponse(listing));
+		}
+		return responses;
+	}
+
+	@Benchmark
+	public List<ListingUpdateResponse> modelMapperListingUpdateResponses() {
+		val responses = new ArrayList<ListingUpdateResponse>(size);
+		for(val listing : listings) {
+			responses.add(modelMapper.map(listing, ListingUpdateResponse.class));
+		}
+		return responses;
+	}
+
+	@Benchmark
+	public List<ListingUpdateResponse> listingMapperListingUpdateResponses() {
+		val responses = new ArrayList<ListingUpdateResponse>(size);
+		for(val listing : listings) {
+			responses.add(listingMapper.toUpdateResponse(listing));
+		}
+		return responses;
+	}
+}
@@ -0,0 +1,100 @@
+package com.sm360.advertisement.repository;
+
+import java.time.LocalDateTime;
+import java.util.DoubleSummaryStatistics;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.DealerStats;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Latency of the totals of a dealer read from the counters kept on every save, against computing them
+ * from the dealer's listings as the clients did before. The counters must not depend on the size of the
+ * dealer, the scan grows with it.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DealerStatsBenchmark {
+
+	private static final int DEALERS = 100;
+
+	@Param({"cache", "columnar"})
+	String store;
+
+	@Param({"100", "10000"})
+	int listingsPerDealer;
+
+	ListingRepository listingRepository;
+
+	UUID[] dealerIds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		listingRepository = "columnar".equals(store) ? new ListingColumnarRepository() : new ListingCacheRepository();
+		dealerIds = new UUID[DEALERS];
+		val random = ThreadLocalRandom.current();
+		val now = LocalDateTime.now();
+		for(int i = 0; i < DEALERS; i++) {
+			val dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(listingsPerDealer).build();
+			dealerIds[i] = dealer.getId();
+			for(int j = 0; j < listingsPerDealer; j++) {
+				listingRepository.save(Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota " + j)
+						.price(5000 + random.nextDouble(50000)).createdAt(now)
+						.state(j % 2 == 0 ? ListingState.draft : ListingState.published).build());
+			}
+		}
+	}
+
+	@Benchmark
+	public DealerStats counters() {
+		return listingRepository.findStats(dealerId());
+	}
+
+	@Benchmark
+	public DealerStats scan() {
+		val dealerId = dealerId();
+		val prices = new DoubleSummaryStatistics();
+		for(val listing : listingRepository.findByDealerAndState(dealerId, ListingState.published, ListingSort.createdAt, null, Integer.MAX_VALUE)) {
+			if(listing.getPrice() != null) {
+				prices.accept(listing.getPrice());
+			}
+		}
+		return DealerStats.builder()
+				.draftListings(listingRepository.findByDealerAndState(dealerId, ListingState.draft, ListingSort.createdAt, null, Integer.MAX_VALUE).size())
+				.publishedListings(prices.getCount())
+				.averagePrice(prices.getCount() == 0 ? null : prices.getAverage())
+				.minPrice(prices.getCount() == 0 ? null : prices.getMin())
+				.maxPrice(prices.getCount() == 0 ? null : prices.getMax())
+				.build();
+	}
+
+	private UUID dealerId() {
+		return dealerIds[ThreadLocalRandom.current().nextInt(DEALERS)];
+	}
+}
@@ -0,0 +1,92 @@
+package com.sm360.advertisement.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Latency of a page of published listings in a price range, across every dealer and for one dealer.
+ * Prices are spread between 5k and 55k, so a 10k wide range matches a fifth of the published listings
+ * while only a page is read: the latency must grow with the page and not with the listings stored.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ListingPriceSearchBenchmark {
+
+	private static final int LISTINGS_PER_DEALER = 1000;
+
+	private static final double MIN_PRICE = 5000;
+
+	private static final double PRICE_SPREAD = 50000;
+
+	private static final double RANGE = 10000;
+
+	@Param({"cache", "columnar"})
+	String store;
+
+	@Param({"10000", "1000000"})
+	int listings;
+
+	@Param({"20"})
+	int pageSize;
+
+	ListingRepository listingRepository;
+
+	UUID dealerId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		listingRepository = "columnar".equals(store) ? new ListingColumnarRepository() : new ListingCacheRepository();
+		val random = ThreadLocalRandom.current();
+		val now = LocalDateTime.now();
+		Dealer dealer = null;
+		for(int i = 0; i < listings; i++) {
+			if(i % LISTINGS_PER_DEALER == 0) {
+				dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(LISTINGS_PER_DEALER).build();
+			}
+			listingRepository.save(Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota " + i)
+					.price(MIN_PRICE + random.nextDouble(PRICE_SPREAD)).createdAt(now)
+					.state(i % 2 == 0 ? ListingState.draft : ListingState.published).build());
+		}
+		dealerId = dealer.getId();
+	}
+
+	@Benchmark
+	public List<Listing> searchAllDealers() {
+		val minPrice = MIN_PRICE + ThreadLocalRandom.current().nextDouble(PRICE_SPREAD - RANGE);
+		return listingRepository.findPublishedByPrice(null, minPrice, minPrice + RANGE, null, pageSize);
+	}
+
+	@Benchmark
+	public List<Listing> searchDealer() {
+		val minPrice = MIN_PRICE + ThreadLocalRandom.current().nextDouble(PRICE_SPREAD - RANGE);
+		return listingRepository.findPublishedByPrice(dealerId, minPrice, minPrice + RANGE, null, pageSize);
+	}
+}
@@ -0,0 +1,99 @@
+package com.sm360.advertisement.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Heap retained by each {@link ListingRepository} with 1M listings, measured with JOL once the store is
+ * filled and reported as the bytes and bytesPerListing counters, together with the cost of a read by id.
+ * Dealers are shared with the rest of the application so they are included in both stores. Each listing
+ * gets its own copy of a vehicle description, as deserialized requests do, out of distinctVehicles ones,
+ * so the saving of the {@link VehicleDictionary} and its overhead when every description is unique show.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+public class ListingRepositoryFootprintBenchmark {
+
+	private static final int LISTINGS_PER_DEALER = 100;
+
+	@Param({"cache", "columnar"})
+	String store;
+
+	@Param({"1000000"})
+	int listings;
+
+	@Param({"1000", "1000000"})
+	int distinctVehicles;
+
+	ListingRepository listingRepository;
+
+	UUID[] ids;
+
+	long bytes;
+
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		listingRepository = "columnar".equals(store) ? new ListingColumnarRepository() : new ListingCacheRepository();
+		ids = new UUID[listings];
+		val now = LocalDateTime.now();
+		Dealer dealer = null;
+		for(int i = 0; i < listings; i++) {
+			if(i % LISTINGS_PER_DEALER == 0) {
+				dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(10).build();
+			}
+			ids[i] = UUID.randomUUID();
+			listingRepository.save(Listing.builder().id(ids[i]).dealer(dealer).vehicle("Toyota " + i % distinctVehicles).price(100.0 + i)
+					.createdAt(now.plusSeconds(i)).state(i % 2 == 0 ? ListingState.draft : ListingState.published).build());
+		}
+		bytes = GraphLayout.parseInstance(listingRepository).totalSize();
+	}
+
+	@Benchmark
+	public Listing findById(Footprint footprint) {
+		footprint.bytes = bytes;
+		footprint.bytesPerListing = bytes / listings;
+		val id = ids[next];
+		next = (next + 1) % ids.length;
+		return listingRepository.findById(id);
+	}
+
+	/**
+	 * Reports the footprint measured in the setup next to the score.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public long bytes;
+		public long bytesPerListing;
+	}
+}
@@ -0,0 +1,93 @@
+package com.sm360.advertisement.repository;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup latency of {@link UuidMap} against the {@link ConcurrentHashMap} the repositories used, with random
+ * ids so most lookups miss the cache, and the allocation of filling each map, reported by the gc profiler.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UuidMapBenchmark {
+
+	@Param({"1000", "1000000"})
+	int size;
+
+	UUID[] ids;
+
+	UuidMap<UUID> uuidMap;
+
+	Map<UUID, UUID> concurrentHashMap;
+
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ids = new UUID[size];
+		uuidMap = new UuidMap<UUID>();
+		concurrentHashMap = new ConcurrentHashMap<UUID, UUID>();
+		for(int i = 0; i < size; i++) {
+			ids[i] = UUID.randomUUID();
+			uuidMap.put(ids[i], ids[i]);
+			concurrentHashMap.put(ids[i], ids[i]);
+		}
+	}
+
+	@Benchmark
+	public UUID uuidMapGet() {
+		return uuidMap.get(nextId());
+	}
+
+	@Benchmark
+	public UUID concurrentHashMapGet() {
+		return concurrentHashMap.get(nextId());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public UuidMap<UUID> uuidMapFill() {
+		UuidMap<UUID> map = new UuidMap<UUID>();
+		for(UUID id : ids) {
+			map.put(id, id);
+		}
+		return map;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Map<UUID, UUID> concurrentHashMapFill() {
+		Map<UUID, UUID> map = new ConcurrentHashMap<UUID, UUID>();
+		for(UUID id : ids) {
+			map.put(id, id);
+		}
+		return map;
+	}
+
+	private UUID nextId() {
+		UUID id = ids[next];
+		next = (next + 1) % ids.length;
+		return id;
+	}
+}
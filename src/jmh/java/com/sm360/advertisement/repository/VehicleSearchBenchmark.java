@@ -0,0 +1,142 @@
+package com.sm360.advertisement.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Latency of a page of published listings matching one, two and three terms of their vehicle, as
+ * "toyota", "toyota corolla" and "2018 toyota corolla". Descriptions are "year make model trim" out of
+ * 8 makes, 4 models each and 10 years, so one term matches an eighth of the listings and three terms
+ * about a three hundredth. The heap of a {@link VehicleTokenIndex} with the same descriptions is measured
+ * with JOL and reported as the indexBytes and indexBytesPerListing counters.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VehicleSearchBenchmark {
+
+	private static final int LISTINGS_PER_DEALER = 1000;
+
+	private static final String[][] MODELS = {
+			{"Toyota", "Corolla", "Camry", "RAV4", "Tacoma"},
+			{"Honda", "Civic", "Accord", "CR-V", "Pilot"},
+			{"Ford", "Focus", "Fusion", "Escape", "F-150"},
+			{"Chevrolet", "Cruze", "Malibu", "Equinox", "Silverado"},
+			{"Nissan", "Sentra", "Altima", "Rogue", "Frontier"},
+			{"Hyundai", "Elantra", "Sonata", "Tucson", "Santa Fe"},
+			{"Mazda", "Mazda3", "Mazda6", "CX-5", "CX-9"},
+			{"Kia", "Forte", "Optima", "Sportage", "Sorento"}};
+
+	private static final String[] TRIMS = {"LE", "SE", "XLE", "Sport", "Limited", "Touring"};
+
+	private static final int FIRST_YEAR = 2012;
+
+	private static final int YEARS = 10;
+
+	@Param({"cache", "columnar"})
+	String store;
+
+	@Param({"1000000"})
+	int listings;
+
+	@Param({"20"})
+	int pageSize;
+
+	ListingRepository listingRepository;
+
+	long indexBytes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		listingRepository = "columnar".equals(store) ? new ListingColumnarRepository() : new ListingCacheRepository();
+		val index = new VehicleTokenIndex();
+		val random = ThreadLocalRandom.current();
+		val now = LocalDateTime.now();
+		Dealer dealer = null;
+		for(int i = 0; i < listings; i++) {
+			if(i % LISTINGS_PER_DEALER == 0) {
+				dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(LISTINGS_PER_DEALER).build();
+			}
+			val make = MODELS[random.nextInt(MODELS.length)];
+			val vehicle = (FIRST_YEAR + random.nextInt(YEARS)) + " " + make[0] + " " + make[1 + random.nextInt(make.length - 1)]
+					+ " " + TRIMS[random.nextInt(TRIMS.length)];
+			listingRepository.save(Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle(vehicle)
+					.price(5000 + random.nextDouble(50000)).createdAt(now)
+					.state(i % 2 == 0 ? ListingState.draft : ListingState.published).build());
+			index.update(i, null, vehicle);
+		}
+		indexBytes = GraphLayout.parseInstance(index).totalSize();
+	}
+
+	@Benchmark
+	public List<Listing> oneTerm(Footprint footprint) {
+		report(footprint);
+		return search(MODELS[ThreadLocalRandom.current().nextInt(MODELS.length)][0]);
+	}
+
+	@Benchmark
+	public List<Listing> twoTerms(Footprint footprint) {
+		report(footprint);
+		return search(model());
+	}
+
+	@Benchmark
+	public List<Listing> threeTerms(Footprint footprint) {
+		report(footprint);
+		return search((FIRST_YEAR + ThreadLocalRandom.current().nextInt(YEARS)) + " " + model());
+	}
+
+	private List<Listing> search(String query) {
+		return listingRepository.findPublishedByVehicle(query, null, null, null, null, pageSize);
+	}
+
+	private static String model() {
+		val random = ThreadLocalRandom.current();
+		val make = MODELS[random.nextInt(MODELS.length)];
+		return make[0] + " " + make[1 + random.nextInt(make.length - 1)];
+	}
+
+	private void report(Footprint footprint) {
+		footprint.indexBytes = indexBytes;
+		footprint.indexBytesPerListing = indexBytes / listings;
+	}
+
+	/**
+	 * Reports the footprint of the index measured in the setup next to the score.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public long indexBytes;
+		public long indexBytesPerListing;
+	}
+}
@@ -0,0 +1,75 @@
+package com.sm360.advertisement.scheduling;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lombok.val;
+
+/**
+ * Latency of scheduling and cancelling a change among millions pending, due within a year with ticks of
+ * a second, and of advancing the wheel a tick. Scheduling and cancelling must not depend on the pending
+ * changes, a tick only reads the changes due and those moved down a level.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimingWheelBenchmark {
+
+	private static final long TICK = 1000;
+
+	private static final long YEAR = 365L * 24 * 3600 * TICK;
+
+	@Param({"1000", "1000000"})
+	int pending;
+
+	TimingWheel<Integer> wheel;
+
+	long now;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		now = System.currentTimeMillis();
+		wheel = new TimingWheel<Integer>(TICK, 8, 4, now);
+		val random = ThreadLocalRandom.current();
+		for(int i = 0; i < pending; i++) {
+			wheel.schedule(now + random.nextLong(YEAR), i);
+		}
+	}
+
+	@Benchmark
+	public boolean scheduleAndCancel() {
+		return wheel.cancel(wheel.schedule(now + ThreadLocalRandom.current().nextLong(YEAR), 0));
+	}
+
+	/**
+	 * Advances the wheel a tick, scheduling as many changes as are due on average to keep them pending.
+	 */
+	@Benchmark
+	public List<Integer> advance() {
+		val random = ThreadLocalRandom.current();
+		val due = wheel.advance(now += TICK);
+		for(int i = 0; i < due.size(); i++) {
+			wheel.schedule(now + random.nextLong(YEAR), i);
+		}
+		return due;
+	}
+}
@@ -0,0 +1,172 @@
+package com.sm360.advertisement.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.exception.ListingVersionConflictException;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+import com.sm360.advertisement.repository.ListingColumnarRepository;
+import com.sm360.advertisement.repository.ListingRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+
+import lombok.val;
+
+/**
+ * Many threads updating the same set of listings, the fewer listings the more updates are based on
+ * a listing changed meanwhile. Updates without a version are applied again over the current listing,
+ * updates with the version read before are rejected and counted as conflicts. The mixed group runs
+ * updates, publications and reads of the same listings at once, reads never wait for the writers.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ListingUpdateContentionBenchmark {
+
+	private static final int DEALERS = 4;
+
+	private static final int TIER_LIMIT = 2;
+
+	@Param({"cache", "columnar"})
+	String repository;
+
+	@Param({"4", "64", "4096"})
+	int listings;
+
+	VehicleAdvertisementServiceImpl vehicleAdvertisementService;
+
+	ListingRepository listingRepository;
+
+	List<Dealer> dealers;
+
+	List<UUID> listingIds;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Outcomes {
+
+		public long updated;
+
+		public long conflicts;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		listingRepository = "columnar".equals(repository) ? new ListingColumnarRepository() : new ListingCacheRepository();
+		vehicleAdvertisementService = new VehicleAdvertisementServiceImpl();
+		vehicleAdvertisementService.listingRepository = listingRepository;
+		vehicleAdvertisementService.dealerRepository = new DealerCacheRepository();
+		vehicleAdvertisementService.listingMapper = new ListingMapper();
+		vehicleAdvertisementService.dealerMapper = new DealerMapper();
+		vehicleAdvertisementService.dealerLocks = new StripedLocks();
+		vehicleAdvertisementService.validator = Validation.buildDefaultValidatorFactory().getValidator();
+		vehicleAdvertisementService.listingResponseCache = new ListingResponseCache(new ListingCacheProperties());
+
+		dealers = new ArrayList<Dealer>(DEALERS);
+		for(int i = 0; i < DEALERS; i++) {
+			val dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(TIER_LIMIT).build();
+			vehicleAdvertisementService.dealerRepository.save(dealer);
+			dealers.add(dealer);
+		}
+		listingIds = new ArrayList<UUID>(listings);
+		for(int i = 0; i < listings; i++) {
+			val listing = Listing.builder().id(UUID.randomUUID()).dealer(dealers.get(i % DEALERS)).vehicle("Toyota " + i)
+					.price(100.0 + i).createdAt(LocalDateTime.now()).state(ListingState.draft).build();
+			listingRepository.save(listing);
+			listingIds.add(listing.getId());
+		}
+	}
+
+	@Benchmark
+	@Threads(8)
+	public ListingUpdateResponse update() {
+		return vehicleAdvertisementService.updateListing(updateRequest(null));
+	}
+
+	@Benchmark
+	@Threads(8)
+	public ListingUpdateResponse updateWithVersion(Outcomes outcomes) {
+		val index = ThreadLocalRandom.current().nextInt(listingIds.size());
+		val version = listingRepository.findById(listingIds.get(index)).getVersion();
+		try {
+			val response = vehicleAdvertisementService.updateListing(updateRequest(index, version));
+			outcomes.updated++;
+			return response;
+		} catch (ListingVersionConflictException e) {
+			outcomes.conflicts++;
+			return null;
+		}
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(4)
+	public ListingUpdateResponse mixedUpdate() {
+		return vehicleAdvertisementService.updateListing(updateRequest(null));
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public void mixedPublish() {
+		val id = listingIds.get(ThreadLocalRandom.current().nextInt(listingIds.size()));
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(id).showErrorLimitIsReached(false).build());
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public Listing mixedRead() {
+		return listingRepository.findById(listingIds.get(ThreadLocalRandom.current().nextInt(listingIds.size())));
+	}
+
+	private ListingUpdateRequest updateRequest(Long version) {
+		return updateRequest(ThreadLocalRandom.current().nextInt(listingIds.size()), version);
+	}
+
+	/**
+	 * Update a listing keeping it in its dealer, so only the listings change.
+	 */
+	private ListingUpdateRequest updateRequest(int index, Long version) {
+		return ListingUpdateRequest.builder().id(listingIds.get(index)).dealerId(dealers.get(index % DEALERS).getId())
+				.vehicle("Honda " + ThreadLocalRandom.current().nextInt(100)).price(200.0).version(version).build();
+	}
+}
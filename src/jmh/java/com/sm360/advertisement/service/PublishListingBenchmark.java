@@ -0,0 +1,91 @@
+package com.sm360.advertisement.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+
+import lombok.val;
+
+/**
+ * Publish latency of a dealer that is already at its tier limit, every publish evicts
+ * a previous listing. The latency must not depend on the number of listings of the dealer.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PublishListingBenchmark {
+
+	private static final int TIER_LIMIT = 2;
+
+	@Param({"5", "500", "50000"})
+	int listingsPerDealer;
+
+	VehicleAdvertisementServiceImpl vehicleAdvertisementService;
+
+	List<ListingPublishRequest> requests;
+
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		vehicleAdvertisementService = new VehicleAdvertisementServiceImpl();
+		vehicleAdvertisementService.listingRepository = new ListingCacheRepository();
+		vehicleAdvertisementService.dealerRepository = new DealerCacheRepository();
+		vehicleAdvertisementService.listingMapper = new ListingMapper();
+		vehicleAdvertisementService.dealerMapper = new DealerMapper();
+		vehicleAdvertisementService.dealerLocks = new StripedLocks();
+		vehicleAdvertisementService.listingResponseCache = new ListingResponseCache(new ListingCacheProperties());
+
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(TIER_LIMIT).build();
+		vehicleAdvertisementService.dealerRepository.save(dealer);
+
+		requests = new ArrayList<ListingPublishRequest>(listingsPerDealer);
+		for(int i = 0; i < listingsPerDealer; i++) {
+			val listing = Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota " + i)
+					.price(100.0 + i).createdAt(LocalDateTime.now()).state(ListingState.draft).build();
+			vehicleAdvertisementService.listingRepository.save(listing);
+			requests.add(ListingPublishRequest.builder().id(listing.getId()).showErrorLimitIsReached(false).build());
+		}
+		for(int i = 0; i < TIER_LIMIT; i++) {
+			publishAtTierLimit();
+		}
+	}
+
+	@Benchmark
+	public void publishAtTierLimit() {
+		vehicleAdvertisementService.publishListing(requests.get(next));
+		next = (next + 1) % requests.size();
+	}
+}
@@ -0,0 +1,154 @@
+package com.sm360.advertisement.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+
+/**
+ * Cost of the metrics on the hot paths: the same operations run over a service without meters and over
+ * a service timed by the {@link TimedAspect}, with the repositories and the service bound to a registry
+ * publishing the histograms and percentiles configured in application.yml.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ServiceMetricsBenchmark {
+
+	private static final int LISTINGS = 10_000;
+
+	private static final int LISTINGS_PER_DEALER = 100;
+
+	private static final int TIER_LIMIT = 10;
+
+	private static final int PAGE_SIZE = 20;
+
+	@Param({"false", "true"})
+	boolean metrics;
+
+	VehicleAdvertisementService vehicleAdvertisementService;
+
+	Dealer dealer;
+
+	List<UUID> dealerListings;
+
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		val listingRepository = new ListingCacheRepository();
+		val dealerRepository = new DealerCacheRepository();
+		val service = new VehicleAdvertisementServiceImpl();
+		service.listingRepository = listingRepository;
+		service.dealerRepository = dealerRepository;
+		service.listingMapper = new ListingMapper();
+		service.dealerMapper = new DealerMapper();
+		service.dealerLocks = new StripedLocks();
+		service.validator = Validation.buildDefaultValidatorFactory().getValidator();
+		service.listingResponseCache = new ListingResponseCache(new ListingCacheProperties());
+		vehicleAdvertisementService = service;
+
+		if(metrics) {
+			val registry = new SimpleMeterRegistry();
+			registry.config().meterFilter(new MeterFilter() {
+				@Override
+				public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+					if(!id.getName().equals(VehicleAdvertisementServiceImpl.OPERATIONS)) {
+						return config;
+					}
+					return DistributionStatisticConfig.builder().percentilesHistogram(true).percentiles(0.5, 0.95, 0.99)
+							.build().merge(config);
+				}
+			});
+			listingRepository.bindTo(registry);
+			dealerRepository.bindTo(registry);
+			service.bindTo(registry);
+			val factory = new AspectJProxyFactory(service);
+			factory.addAspect(new TimedAspect(registry));
+			vehicleAdvertisementService = factory.getProxy();
+		}
+
+		val now = LocalDateTime.now();
+		Dealer current = null;
+		for(int i = 0; i < LISTINGS; i++) {
+			if(i % LISTINGS_PER_DEALER == 0) {
+				current = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(TIER_LIMIT).build();
+				dealerRepository.save(current);
+			}
+			val listing = Listing.builder().id(UUID.randomUUID()).dealer(current).vehicle("Toyota " + i).price(100.0 + i)
+					.createdAt(now).state(ListingState.draft).build();
+			listingRepository.save(listing);
+		}
+		dealer = current;
+		dealerListings = new ArrayList<UUID>();
+		listingRepository.stream(dealer.getId(), ListingState.draft).forEach(listing-> dealerListings.add(listing.getId()));
+		for(int i = 0; i < TIER_LIMIT; i++) {
+			publishListingAtTierLimit();
+		}
+	}
+
+	@Benchmark
+	public String getListingTag() {
+		return vehicleAdvertisementService.getListingTag(dealer.getId());
+	}
+
+	@Benchmark
+	public PageResponse<ListingGetResponse> getListingPage() {
+		return vehicleAdvertisementService.getListing(dealer.getId(), ListingState.draft, ListingSort.price, PAGE_SIZE, null);
+	}
+
+	@Benchmark
+	public void publishListingAtTierLimit() {
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(nextListing()).showErrorLimitIsReached(false).build());
+	}
+
+	private UUID nextListing() {
+		val id = dealerListings.get(next);
+		next = (next + 1) % dealerListings.size();
+		return id;
+	}
+}
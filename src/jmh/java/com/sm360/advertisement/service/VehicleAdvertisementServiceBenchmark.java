@@ -0,0 +1,161 @@
+package com.sm360.advertisement.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.BatchItemResponse;
+import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerCreateResponse;
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+
+import lombok.val;
+
+/**
+ * Throughput of the service operations with a store populated with 1k, 100k and 1M listings.
+ * Listings are spread over dealers of {@link #LISTINGS_PER_DEALER} listings and the operations
+ * run over one of them, so results only change with the store size if an operation scans it.
+ * Run with the gc profiler, configured in build.gradle, to get the allocation rate.
+ * @author Luis Bazan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VehicleAdvertisementServiceBenchmark {
+
+	private static final int LISTINGS_PER_DEALER = 100;
+
+	private static final int TIER_LIMIT = 10;
+
+	private static final int PAGE_SIZE = 20;
+
+	private static final int BATCH_SIZE = 1000;
+
+	@Param({"1000", "100000", "1000000"})
+	int listings;
+
+	VehicleAdvertisementServiceImpl vehicleAdvertisementService;
+
+	Dealer dealer;
+
+	List<UUID> dealerListings;
+
+	int next;
+
+	long sequence;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		vehicleAdvertisementService = new VehicleAdvertisementServiceImpl();
+		vehicleAdvertisementService.listingRepository = new ListingCacheRepository();
+		vehicleAdvertisementService.dealerRepository = new DealerCacheRepository();
+		vehicleAdvertisementService.listingMapper = new ListingMapper();
+		vehicleAdvertisementService.dealerMapper = new DealerMapper();
+		vehicleAdvertisementService.dealerLocks = new StripedLocks();
+		vehicleAdvertisementService.validator = Validation.buildDefaultValidatorFactory().getValidator();
+		vehicleAdvertisementService.listingResponseCache = new ListingResponseCache(new ListingCacheProperties());
+
+		val now = LocalDateTime.now();
+		Dealer current = null;
+		for(int i = 0; i < listings; i++) {
+			if(i % LISTINGS_PER_DEALER == 0) {
+				current = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(TIER_LIMIT).build();
+				vehicleAdvertisementService.dealerRepository.save(current);
+			}
+			val listing = Listing.builder().id(UUID.randomUUID()).dealer(current).vehicle("Toyota " + i).price(100.0 + i)
+					.createdAt(now).state(ListingState.draft).build();
+			vehicleAdvertisementService.listingRepository.save(listing);
+		}
+		dealer = current;
+		dealerListings = new ArrayList<UUID>();
+		vehicleAdvertisementService.listingRepository.stream(dealer.getId(), ListingState.draft).forEach(listing-> dealerListings.add(listing.getId()));
+		for(int i = 0; i < TIER_LIMIT; i++) {
+			publishListingAtTierLimit();
+		}
+	}
+
+	@Benchmark
+	public ListingCreateResponse saveListing() {
+		return vehicleAdvertisementService.saveListing(ListingCreateRequest.builder().dealerId(dealer.getId())
+				.vehicle("Honda " + sequence++).price(100.0).build());
+	}
+
+	@Benchmark
+	public List<BatchItemResponse<ListingCreateResponse>> saveListings() {
+		val requests = new ArrayList<ListingCreateRequest>(BATCH_SIZE);
+		for(int i = 0; i < BATCH_SIZE; i++) {
+			requests.add(ListingCreateRequest.builder().dealerId(dealer.getId()).vehicle("Honda " + sequence++).price(100.0).build());
+		}
+		return vehicleAdvertisementService.saveListings(requests);
+	}
+
+	@Benchmark
+	public PageResponse<ListingGetResponse> getListing() {
+		return vehicleAdvertisementService.getListing(dealer.getId(), ListingState.draft, null, null, null);
+	}
+
+	@Benchmark
+	public PageResponse<ListingGetResponse> getListingPage() {
+		return vehicleAdvertisementService.getListing(dealer.getId(), ListingState.draft, ListingSort.price, PAGE_SIZE, null);
+	}
+
+	@Benchmark
+	public void publishListingAtTierLimit() {
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(nextListing()).showErrorLimitIsReached(false).build());
+	}
+
+	@Benchmark
+	public ListingUpdateResponse updateListing() {
+		return vehicleAdvertisementService.updateListing(ListingUpdateRequest.builder().id(nextListing()).dealerId(dealer.getId())
+				.vehicle("Toyota " + sequence++).price(200.0).build());
+	}
+
+	@Benchmark
+	public DealerCreateResponse saveDealer() {
+		return vehicleAdvertisementService.saveDealer(DealerCreateRequest.builder().name("Benchmark Dealer " + sequence++).tierLimit(TIER_LIMIT).build());
+	}
+
+	private UUID nextListing() {
+		val id = dealerListings.get(next);
+		next = (next + 1) % dealerListings.size();
+		return id;
+	}
+}
@@ -0,0 +1,214 @@
+package com.sm360.advertisement.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sm360.advertisement.Sm360ApiApplication;
+import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerCreateResponse;
+import com.sm360.advertisement.dto.ListingCreateRequest;
+
+import lombok.val;
+
+/**
+ * Compares the servlet and the reactive API under slow clients. For each of them the application is started,
+ * a dealer with {@code listings} listings is created and {@code connections} clients start exporting them
+ * without reading the response, as a client on a slow network would. Meanwhile {@code probes} requests for a
+ * small page are sent and their latency is measured.
+ * <p>
+ * Reported per mode: the slow clients whose response started within {@code timeout}, which is the amount of
+ * connections the server could serve at the same time, and the p50, p99 and timeouts of the probes.
+ * <pre>
+ *   ./gradlew loadTest -Pconnections=2000 -Pprobes=2000 -Plistings=50000
+ * </pre>
+ * @author Luis Bazan
+ *
+ */
+public class ApiLoadTest {
+
+	private static final String BASE_PATH = "/api/v1/vehicle-advertisement";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+	private final int connections;
+
+	private final int probes;
+
+	private final int listings;
+
+	private final Duration timeout;
+
+	public ApiLoadTest(int connections, int probes, int listings, Duration timeout) {
+		this.connections = connections;
+		this.probes = probes;
+		this.listings = listings;
+		this.timeout = timeout;
+	}
+
+	public static void main(String[] args) throws Exception {
+		val test = new ApiLoadTest(
+				Integer.getInteger("connections", 2000),
+				Integer.getInteger("probes", 2000),
+				Integer.getInteger("listings", 50_000),
+				Duration.ofSeconds(Long.getLong("timeoutSeconds", 10)));
+		val results = new ArrayList<String>();
+		for(val mode : List.of("servlet", "reactive")) {
+			results.add(test.run(mode));
+		}
+		System.out.println(String.format("%-10s %12s %10s %10s %10s", "mode", "connections", "p50 ms", "p99 ms", "timeouts"));
+		results.forEach(System.out::println);
+	}
+
+	/**
+	 * Start the application in the given mode and run the slow clients and the probes against it.
+	 */
+	public String run(String mode) throws Exception {
+		try(ConfigurableApplicationContext context = new SpringApplicationBuilder(Sm360ApiApplication.class)
+				.profiles("reactive".equals(mode) ? new String[] {"reactive"} : new String[0])
+				.properties("server.port=0", "logging.level.com.sm360=warn")
+				.run()) {
+			val port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+			val dealerId = seed(port);
+
+			val slowClients = new ArrayList<Socket>();
+			val started = new AtomicInteger();
+			val readers = Executors.newFixedThreadPool(Math.min(connections, 512));
+			try {
+				for(int i = 0; i < connections; i++) {
+					val socket = openSlowClient(port, dealerId);
+					slowClients.add(socket);
+					readers.submit(()-> readStatusLine(socket, started));
+				}
+				val latencies = probe(port, dealerId);
+				readers.shutdown();
+				readers.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+				val completed = Arrays.stream(latencies).filter(latency-> latency >= 0).sorted().toArray();
+				val timeouts = latencies.length - completed.length;
+				return String.format("%-10s %12d %10.1f %10.1f %10d", mode, started.get(),
+						percentile(completed, 0.50) / 1e6, percentile(completed, 0.99) / 1e6, timeouts);
+			} finally {
+				readers.shutdownNow();
+				for(val socket : slowClients) {
+					socket.close();
+				}
+			}
+		}
+	}
+
+	private UUID seed(int port) throws Exception {
+		val dealer = post(port, "/dealer", DealerCreateRequest.builder().name("load-test").tierLimit(1).build());
+		val dealerId = mapper.readValue(dealer, DealerCreateResponse.class).getId();
+		val batch = new ArrayList<ListingCreateRequest>();
+		for(int i = 0; i < listings; i++) {
+			batch.add(ListingCreateRequest.builder().dealerId(dealerId).vehicle("Vehicle " + (i % 1000)).price(1000.0 + i).build());
+			if(batch.size() == 10_000 || i == listings - 1) {
+				post(port, "/listing/batch", batch);
+				batch.clear();
+			}
+		}
+		return dealerId;
+	}
+
+	private String post(int port, String path, Object body) throws Exception {
+		val request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + BASE_PATH + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+				.build();
+		val response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if(response.statusCode() != 200) {
+			throw new IllegalStateException(String.format("POST %s failed with [%s] %s", path, response.statusCode(), response.body()));
+		}
+		return response.body();
+	}
+
+	/**
+	 * Request the export of every listing of the dealer with a small receive buffer, the response is
+	 * never read after its status line, so the server has to keep it until the socket is closed.
+	 */
+	private Socket openSlowClient(int port, UUID dealerId) throws IOException {
+		val socket = new Socket();
+		socket.setReceiveBufferSize(1024);
+		socket.setSoTimeout((int) timeout.toMillis());
+		socket.connect(new InetSocketAddress("localhost", port), (int) timeout.toMillis());
+		OutputStream output = socket.getOutputStream();
+		output.write(String.format("GET %s/listing/export?dealerId=%s HTTP/1.1\r\nHost: localhost\r\nAccept: application/x-ndjson\r\n\r\n",
+				BASE_PATH, dealerId).getBytes(StandardCharsets.US_ASCII));
+		output.flush();
+		return socket;
+	}
+
+	private void readStatusLine(Socket socket, AtomicInteger started) {
+		try {
+			val reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 64);
+			val statusLine = reader.readLine();
+			if(statusLine != null && statusLine.contains(" 200")) {
+				started.incrementAndGet();
+			}
+		} catch (IOException e) {
+			// timed out or closed, the response did not start
+		}
+	}
+
+	/**
+	 * Send the probes from 64 threads and return their latency in nanos, -1 when they timed out or failed.
+	 */
+	private long[] probe(int port, UUID dealerId) throws Exception {
+		val uri = URI.create(String.format("http://localhost:%s%s/listing?dealerId=%s&state=draft&limit=10", port, BASE_PATH, dealerId));
+		val executor = Executors.newFixedThreadPool(64);
+		try {
+			val futures = new ArrayList<Future<Long>>();
+			for(int i = 0; i < probes; i++) {
+				futures.add(executor.submit(()-> {
+					val request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+					val start = System.nanoTime();
+					try {
+						val response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						return response.statusCode() == 200 ? System.nanoTime() - start : -1L;
+					} catch (IOException e) {
+						return -1L;
+					}
+				}));
+			}
+			val latencies = new long[futures.size()];
+			for(int i = 0; i < latencies.length; i++) {
+				latencies[i] = futures.get(i).get();
+			}
+			return latencies;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		if(sorted.length == 0) {
+			return Double.NaN;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+	}
+}
@@ -0,0 +1,66 @@
+package com.sm360.advertisement.accesslog;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes one record per request to the access logger, which logback-spring.xml hands to an
+ * asynchronous appender so requests never wait for the output. Filters check {@link #isEnabled()}
+ * and {@link #isSampled(int)} before building anything, so requests which are not logged do not allocate.
+ * @author Luis Bazan
+ *
+ */
+@Component
+@Slf4j(topic = "access")
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLog {
+
+	/**
+	 * Request attribute with the class of the exception handled for the request.
+	 */
+	public static final String ERROR_ATTRIBUTE = AccessLog.class.getName() + ".error";
+
+	/**
+	 * Header with the id of the request given by the client or a proxy.
+	 */
+	public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+	private final AccessLogProperties properties;
+
+	public AccessLog(AccessLogProperties properties) {
+		this.properties = properties;
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled() && log.isInfoEnabled();
+	}
+
+	/**
+	 * Whether a finished request has to be logged, server errors always are.
+	 * @param status HTTP status of the response
+	 */
+	public boolean isSampled(int status) {
+		double sampleRate = properties.getSampleRate();
+		return status >= 500 || sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+	}
+
+	/**
+	 * Write the record of a request.
+	 * @param method HTTP method
+	 * @param path request path
+	 * @param query query string, it holds the ids of the GET requests, it can be null
+	 * @param status HTTP status of the response
+	 * @param start {@link System#nanoTime()} when the request was received
+	 * @param error class of the exception handled for the request, it can be null
+	 * @param requestId value of the {@value #REQUEST_ID_HEADER} header, it can be null
+	 */
+	public void log(String method, String path, String query, int status, long start, Class<?> error, String requestId) {
+		log.info("method={} path={} query={} status={} durationUs={} error={} requestId={}", method, path, query, status,
+				TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), error == null ? null : error.getSimpleName(), requestId);
+	}
+}
@@ -0,0 +1,87 @@
+package com.sm360.advertisement.accesslog;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Log the servlet requests through the {@link AccessLog}. Requests answered asynchronously, as the
+ * exports, are logged once their response is complete.
+ * @author Luis Bazan
+ *
+ */
+@Component
+@Profile("!reactive")
+public class AccessLogFilter extends OncePerRequestFilter {
+
+	@Autowired
+	public AccessLog accessLog;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if(!accessLog.isEnabled()) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			filterChain.doFilter(request, response);
+			failed = false;
+		} finally {
+			if(!failed && request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new Completion(start));
+			} else {
+				log(request, response, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), start);
+			}
+		}
+	}
+
+	private void log(HttpServletRequest request, HttpServletResponse response, int status, long start) {
+		if(accessLog.isSampled(status)) {
+			accessLog.log(request.getMethod(), request.getRequestURI(), request.getQueryString(), status, start,
+					(Class<?>) request.getAttribute(AccessLog.ERROR_ATTRIBUTE), request.getHeader(AccessLog.REQUEST_ID_HEADER));
+		}
+	}
+
+	private class Completion implements AsyncListener {
+
+		private final long start;
+
+		Completion(long start) {
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+			log((HttpServletRequest) event.getSuppliedRequest(), response, response.getStatus(), start);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// logged on complete
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			// logged on complete
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			event.getAsyncContext().addListener(this);
+		}
+	}
+}
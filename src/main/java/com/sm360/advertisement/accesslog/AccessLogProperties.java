@@ -0,0 +1,28 @@
+package com.sm360.advertisement.accesslog;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration of the access log, under config.access-log.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@ConfigurationProperties(prefix = "config.access-log")
+public class AccessLogProperties {
+	/**
+	 * Write a record per request to the access logger.
+	 */
+	private boolean enabled = true;
+	/**
+	 * Fraction of the requests which are logged, between 0 and 1. Server errors are always logged.
+	 */
+	private double sampleRate = 0.1;
+	/**
+	 * Records buffered by the asynchronous appender, records are dropped instead of blocking
+	 * requests once it is full. Read by logback-spring.xml.
+	 */
+	private int queueSize = 8192;
+}
@@ -0,0 +1,46 @@
+package com.sm360.advertisement.accesslog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import lombok.val;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Log the reactive requests through the {@link AccessLog} once their response is complete.
+ * @author Luis Bazan
+ *
+ */
+@Component
+@Profile("reactive")
+public class ReactiveAccessLogFilter implements WebFilter {
+
+	@Autowired
+	public AccessLog accessLog;
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		if(!accessLog.isEnabled()) {
+			return chain.filter(exchange);
+		}
+		long start = System.nanoTime();
+		return chain.filter(exchange).doFinally(signal-> log(exchange, signal, start));
+	}
+
+	private void log(ServerWebExchange exchange, SignalType signal, long start) {
+		Integer rawStatus = exchange.getResponse().getRawStatusCode();
+		int status = SignalType.ON_ERROR.equals(signal) ? HttpStatus.INTERNAL_SERVER_ERROR.value()
+				: rawStatus == null ? HttpStatus.OK.value() : rawStatus;
+		if(accessLog.isSampled(status)) {
+			val request = exchange.getRequest();
+			accessLog.log(request.getMethodValue(), request.getPath().value(), request.getURI().getRawQuery(), status, start,
+					exchange.getAttribute(AccessLog.ERROR_ATTRIBUTE), request.getHeaders().getFirst(AccessLog.REQUEST_ID_HEADER));
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.sm360.advertisement.api;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Serve the reactive API with Reactor Netty, otherwise Tomcat would be picked as it is on the classpath
+ * for the servlet API.
+ * @author Luis Bazan
+ *
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfiguration {
+
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+}
@@ -0,0 +1,169 @@
+package com.sm360.advertisement.api;
+
+import static com.sm360.advertisement.api.VehicleAdvertisementController.MAX_BATCH_SIZE;
+import static com.sm360.advertisement.api.VehicleAdvertisementController.MAX_PAGE_SIZE;
+import static com.sm360.advertisement.api.VehicleAdvertisementController.NEXT_CURSOR_HEADER;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.sm360.advertisement.dto.BatchItemResponse;
+import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerCreateResponse;
+import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
+import com.sm360.advertisement.dto.ListingUnpublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.exception.BatchSizeExceededException;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.service.ReactiveVehicleAdvertisementService;
+
+import lombok.val;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive version of {@link VehicleAdvertisementController} with the same routes, enabled with the
+ * reactive profile. Lists are written as {@link Flux} of items, so a slow client only holds its connection
+ * and the items are serialized as it reads them instead of holding a thread until the response is written.
+ * @author Luis Bazan
+ *
+ */
+@RestController
+@RequestMapping("vehicle-advertisement")
+@Profile("reactive")
+@Validated
+public class ReactiveVehicleAdvertisementController {
+
+	@Autowired
+	public ReactiveVehicleAdvertisementService vehicleAdvertisementService;
+
+	@PostMapping("listing")
+	public Mono<ResponseEntity<ListingCreateResponse>> saveListing(@RequestBody @Valid final ListingCreateRequest request) {
+		return vehicleAdvertisementService.saveListing(request).map(ResponseEntity::ok);
+	}
+
+	@PostMapping(value = "listing/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+	public Mono<ResponseEntity<List<BatchItemResponse<ListingCreateResponse>>>> saveListings(@RequestBody final Flux<ListingCreateRequest> body) {
+		return readBatch(body).flatMap(vehicleAdvertisementService::saveListings).map(ResponseEntity::ok);
+	}
+
+	@PutMapping("listing")
+	public Mono<ResponseEntity<ListingUpdateResponse>> updateListing(@RequestBody @Valid final ListingUpdateRequest request) {
+		return vehicleAdvertisementService.updateListing(request).map(ResponseEntity::ok);
+	}
+
+	/**
+	 * Answer 304 Not Modified while the ETag sent in If-None-Match is current, otherwise the page is
+	 * read and its listings are written as they are serialized.
+	 */
+	@GetMapping("listing")
+	public Mono<ResponseEntity<Flux<ListingGetResponse>>> getListing(@RequestParam final UUID dealerId, @RequestParam final ListingState state,
+			@RequestParam(required = false) final ListingSort sort,
+			@RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) final Integer limit,
+			@RequestParam(required = false) final String cursor, final ServerWebExchange exchange) {
+		return vehicleAdvertisementService.getListingTag(dealerId)
+				.filter(tag-> !exchange.checkNotModified(tag))
+				.flatMap(tag-> vehicleAdvertisementService.getListing(dealerId, state, sort, limit, cursor))
+				.map(this::page);
+	}
+
+	@GetMapping("listing/search")
+	public Mono<ResponseEntity<Flux<ListingGetResponse>>> searchListings(@RequestParam(required = false) final String q,
+			@RequestParam(required = false) final Double minPrice,
+			@RequestParam(required = false) final Double maxPrice, @RequestParam(required = false) final UUID dealerId,
+			@RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) final Integer limit,
+			@RequestParam(required = false) final String cursor) {
+		return vehicleAdvertisementService.searchListings(q, dealerId, minPrice, maxPrice, limit, cursor).map(this::page);
+	}
+
+	@GetMapping(value = "listing/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<ListingGetResponse> exportListings(@RequestParam(required = false) final UUID dealerId,
+			@RequestParam(required = false) final ListingState state) {
+		return vehicleAdvertisementService.exportListings(dealerId, state);
+	}
+
+	@PostMapping("listing/publish")
+	public Mono<ResponseEntity<String>> publishListing(@RequestBody @Valid final ListingPublishRequest request) {
+		return vehicleAdvertisementService.publishListing(request)
+				.thenReturn(ResponseEntity.ok(request.getAt() == null ? "It was published" : "It was scheduled"));
+	}
+
+	@PostMapping("listing/unpublish")
+	public Mono<ResponseEntity<String>> unpublishListing(@RequestBody @Valid final ListingUnpublishRequest request) {
+		return vehicleAdvertisementService.unpublishListing(request)
+				.thenReturn(ResponseEntity.ok(request.getAt() == null ? "It was unpublished" : "It was scheduled"));
+	}
+
+	@DeleteMapping("listing/{id}/schedule")
+	public Mono<ResponseEntity<String>> cancelSchedule(@PathVariable final UUID id, @RequestParam(required = false) final ListingState state) {
+		return vehicleAdvertisementService.cancelSchedule(id, state).thenReturn(ResponseEntity.ok("It was cancelled"));
+	}
+
+	@PostMapping(value = "listing/state/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+	public Mono<ResponseEntity<List<BatchItemResponse<ListingGetResponse>>>> changeListingStates(@RequestBody final Flux<ListingStateRequest> body) {
+		return readBatch(body).flatMap(vehicleAdvertisementService::changeListingStates).map(ResponseEntity::ok);
+	}
+
+	@PostMapping("dealer")
+	public Mono<ResponseEntity<DealerCreateResponse>> saveDealer(@RequestBody @Valid final DealerCreateRequest request) {
+		return vehicleAdvertisementService.saveDealer(request).map(ResponseEntity::ok);
+	}
+
+	@GetMapping("dealer")
+	public Mono<ResponseEntity<Flux<DealerGetResponse>>> getAllDealers(@RequestParam(required = false) final String prefix,
+			@RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) final Integer limit,
+			@RequestParam(required = false) final String cursor) {
+		return vehicleAdvertisementService.getDealers(prefix, limit, cursor).map(this::page);
+	}
+
+	@GetMapping("dealer/{id}/stats")
+	public Mono<ResponseEntity<DealerStatsResponse>> getDealerStats(@PathVariable final UUID id) {
+		return vehicleAdvertisementService.getDealerStats(id).map(ResponseEntity::ok);
+	}
+
+	/**
+	 * Collect the items of a JSON array or of newline delimited JSON, both are decoded as a {@link Flux}
+	 * of items, failing once the batch exceeds its max size.
+	 */
+	private <T> Mono<List<T>> readBatch(Flux<T> body) {
+		return body.take(MAX_BATCH_SIZE + 1L).collectList().flatMap(items-> items.size() > MAX_BATCH_SIZE
+				? Mono.<List<T>>error(new BatchSizeExceededException(MAX_BATCH_SIZE)) : Mono.just(items));
+	}
+
+	private <T> ResponseEntity<Flux<T>> page(PageResponse<T> response) {
+		val builder = ResponseEntity.ok();
+		if(response.getNextCursor() != null) {
+			builder.header(NEXT_CURSOR_HEADER, response.getNextCursor());
+		}
+		return builder.body(Flux.fromIterable(response.getItems()));
+	}
+}
@@ -1,37 +1,70 @@
 package com.sm360.advertisement.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import com.sm360.advertisement.cache.CachedPage;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.BatchItemResponse;
 import com.sm360.advertisement.dto.DealerCreateRequest;
 import com.sm360.advertisement.dto.DealerCreateResponse;
 import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
 import com.sm360.advertisement.dto.ListingCreateRequest;
 import com.sm360.advertisement.dto.ListingCreateResponse;
 import com.sm360.advertisement.dto.ListingGetResponse;
 import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
 import com.sm360.advertisement.dto.ListingUnpublishRequest;
 import com.sm360.advertisement.dto.ListingUpdateRequest;
 import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.exception.BatchSizeExceededException;
+import com.sm360.advertisement.model.ListingSort;
 import com.sm360.advertisement.model.ListingState;
 import com.sm360.advertisement.service.VehicleAdvertisementService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.val;
-import lombok.extern.slf4j.Slf4j;
 
 /**
  * Rest Controller to provide the list of apis for vehicle advertisement
@@ -40,73 +73,229 @@ import lombok.extern.slf4j.Slf4j;
  */
 @RestController
 @RequestMapping("vehicle-advertisement")
-@Slf4j
+@Profile("!reactive")
 @Validated
 public class VehicleAdvertisementController {
 	
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	
+	public static final long MAX_PAGE_SIZE = 1000;
+	
+	public static final int MAX_BATCH_SIZE = 100_000;
+	
+	/**
+	 * Appended to the ETag of the pages sent to clients accepting gzip, so the compressed and identity
+	 * bodies never share a strong ETag.
+	 */
+	public static final String GZIP_TAG_SUFFIX = "-gzip";
+
+	/**
+	 * Timeout of an export, set on its own async request so the other endpoints keep the default one.
+	 */
+	public static final Duration EXPORT_TIMEOUT = Duration.ofMinutes(30);
+	
 	@Autowired
 	public VehicleAdvertisementService vehicleAdvertisementService;
 	
+	@Autowired
+	public ObjectMapper objectMapper;
+	
+	@Autowired
+	public ListingResponseCache listingResponseCache;
+	
 	@Operation(summary = "Save a listing but you must enter a valid dealer id.")
 	@PostMapping("listing")
 	public ResponseEntity<ListingCreateResponse> saveListing(@RequestBody @Valid final ListingCreateRequest request)  {
-		log.info("VehicleAdvertisementController#saveListing start");
 		val response = vehicleAdvertisementService.saveListing(request);
-		log.info("VehicleAdvertisementController#saveListing end");
+		return ResponseEntity.ok(response);
+    }
+	
+	@Operation(summary = "Save a batch of listings sent as a JSON array or as newline delimited JSON, at most "
+			+ MAX_BATCH_SIZE + " listings. The result of every listing is returned in the same order.")
+	@PostMapping(value = "listing/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+	public ResponseEntity<List<BatchItemResponse<ListingCreateResponse>>> saveListings(final InputStream body) throws IOException {
+		val response = vehicleAdvertisementService.saveListings(readBatch(body, ListingCreateRequest.class));
 		return ResponseEntity.ok(response);
     }
 	
 	@Operation(summary = "Update a listing, you must enter a valid id in order to update.")
 	@PutMapping("listing")
 	public ResponseEntity<ListingUpdateResponse> updateListing(@RequestBody @Valid final ListingUpdateRequest request)  {
-		log.info("VehicleAdvertisementController#updateListing start");
 		val response = vehicleAdvertisementService.updateListing(request);
-		log.info("VehicleAdvertisementController#updateListing end");
 		return ResponseEntity.ok(response);
     }
 	
-	@Operation(summary = "Get a listing by dealerId and state.")
+	@Operation(summary = "Get a listing by dealerId and state, optionally sorted by createdAt, publishedAt or price and paged. "
+			+ "The cursor of the next page is returned in the " + NEXT_CURSOR_HEADER + " header. The ETag changes with "
+			+ "the dealer's listings, send it in If-None-Match to get 304 Not Modified while they are unchanged.")
 	@GetMapping("listing")
-	public ResponseEntity<List<ListingGetResponse>> getListing(@RequestParam final UUID dealerId, @RequestParam final ListingState state)  {
-		log.info("VehicleAdvertisementController#getListing start");
-		val response = vehicleAdvertisementService.getListing(dealerId, state);
-		log.info("VehicleAdvertisementController#getListing end");
-		return ResponseEntity.ok(response);
+	@ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+			array = @ArraySchema(schema = @Schema(implementation = ListingGetResponse.class))))
+	public ResponseEntity<byte[]> getListing(@RequestParam final UUID dealerId, @RequestParam final ListingState state,
+			@RequestParam(required = false) final ListingSort sort,
+			@RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) final Integer limit,
+			@RequestParam(required = false) final String cursor, final WebRequest webRequest,
+			final HttpServletResponse servletResponse) throws IOException  {
+		val gzip = listingResponseCache.isGzip() && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+		if(listingResponseCache.isGzip()) {
+			// also on 304 responses, so caches keep the compressed and identity pages apart
+			servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		}
+		val tag = vehicleAdvertisementService.getListingTag(dealerId);
+		if(webRequest.checkNotModified(gzip ? tag + GZIP_TAG_SUFFIX : tag)) {
+			return null;
+		}
+		val query = new ListingResponseCache.Query(dealerId, state, sort, limit, cursor);
+		CachedPage page = listingResponseCache.get(query, tag);
+		if(page == null) {
+			val response = vehicleAdvertisementService.getListing(dealerId, state, sort, limit, cursor);
+			page = listingResponseCache.put(query, tag, objectMapper.writeValueAsBytes(response.getItems()), response.getNextCursor());
+		}
+		return cachedPage(page, gzip);
+    }
+	
+	@Operation(summary = "Search the published listings with a price between minPrice and maxPrice, both included and optional, "
+			+ "optionally of a dealer and with every term of q in their vehicle, ordered by price and paged. "
+			+ "The cursor of the next page is returned in the " + NEXT_CURSOR_HEADER + " header.")
+	@GetMapping("listing/search")
+	public ResponseEntity<List<ListingGetResponse>> searchListings(@RequestParam(required = false) final String q,
+			@RequestParam(required = false) final Double minPrice,
+			@RequestParam(required = false) final Double maxPrice, @RequestParam(required = false) final UUID dealerId,
+			@RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) final Integer limit,
+			@RequestParam(required = false) final String cursor)  {
+		val response = vehicleAdvertisementService.searchListings(q, dealerId, minPrice, maxPrice, limit, cursor);
+		return page(response);
+    }
+	
+	@Operation(summary = "Export the listings as newline delimited JSON, optionally filtered by dealerId and state. "
+			+ "Listings are written while they are read, so the export runs in constant memory.")
+	@GetMapping(value = "listing/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public WebAsyncTask<ResponseEntity<Void>> exportListings(@RequestParam(required = false) final UUID dealerId,
+			@RequestParam(required = false) final ListingState state, final HttpServletResponse servletResponse)  {
+		val listings = vehicleAdvertisementService.exportListings(dealerId, state);
+		// written by the task on the MVC async executor, the response is complete once it returns
+		return new WebAsyncTask<ResponseEntity<Void>>(EXPORT_TIMEOUT.toMillis(), ()-> {
+			servletResponse.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+			val output = servletResponse.getOutputStream();
+			writeNdjson(listings, output);
+			output.flush();
+			return ResponseEntity.ok().build();
+		});
     }
 	
-	@Operation(summary = "Publish a listing.")
+	@Operation(summary = "Publish a listing, or schedule its publication at the time given in at.")
 	@PostMapping("listing/publish")
 	public ResponseEntity<String> publishListing(@RequestBody @Valid final ListingPublishRequest request)  {
-		log.info("VehicleAdvertisementController#publishListing start");
 		vehicleAdvertisementService.publishListing(request);
-		log.info("VehicleAdvertisementController#publishListing end");
-		return ResponseEntity.ok("It was published");
+		return ResponseEntity.ok(request.getAt() == null ? "It was published" : "It was scheduled");
     }
 	
-	@Operation(summary = "Unpublish a listing.")
+	@Operation(summary = "Unpublish a listing, or schedule its unpublication at the time given in at.")
 	@PostMapping("listing/unpublish")
 	public ResponseEntity<String> unpublishListing(@RequestBody @Valid final ListingUnpublishRequest request)  {
-		log.info("VehicleAdvertisementController#unpublishListing start");
 		vehicleAdvertisementService.unpublishListing(request);
-		log.info("VehicleAdvertisementController#unpublishListing end");
-		return ResponseEntity.ok("It was unpublished");
+		return ResponseEntity.ok(request.getAt() == null ? "It was unpublished" : "It was scheduled");
+    }
+	
+	@Operation(summary = "Cancel the scheduled publication (state published) or unpublication (state draft) of a listing, "
+			+ "both without a state.")
+	@DeleteMapping("listing/{id}/schedule")
+	public ResponseEntity<String> cancelSchedule(@PathVariable final UUID id, @RequestParam(required = false) final ListingState state)  {
+		vehicleAdvertisementService.cancelSchedule(id, state);
+		return ResponseEntity.ok("It was cancelled");
+    }
+	
+	@Operation(summary = "Publish (state published) and unpublish (state draft) a batch of listings sent as a JSON array "
+			+ "or as newline delimited JSON, at most " + MAX_BATCH_SIZE + " listings. The requests of a dealer are applied in order "
+			+ "and the result of every request is returned in the same order.")
+	@PostMapping(value = "listing/state/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+	public ResponseEntity<List<BatchItemResponse<ListingGetResponse>>> changeListingStates(final InputStream body) throws IOException {
+		val response = vehicleAdvertisementService.changeListingStates(readBatch(body, ListingStateRequest.class));
+		return ResponseEntity.ok(response);
     }
 	
 	@Operation(summary = "Save a dealer.")
 	@PostMapping("dealer")
 	public ResponseEntity<DealerCreateResponse> saveDealer(@RequestBody @Valid final DealerCreateRequest request)  {
-		log.info("VehicleAdvertisementController#saveDealer start");
 		val response = vehicleAdvertisementService.saveDealer(request);
-		log.info("VehicleAdvertisementController#saveDealer end");
 		return ResponseEntity.ok(response);
     }
 	
-	@Operation(summary = "Get all dealers.")
+	@Operation(summary = "Get dealers ordered by name, optionally filtered by a name prefix and paged. "
+			+ "The cursor of the next page is returned in the " + NEXT_CURSOR_HEADER + " header.")
 	@GetMapping("dealer")
-	public ResponseEntity<List<DealerGetResponse>> getAllDealers()  {
-		log.info("VehicleAdvertisementController#getAllDealers start");
-		val response = vehicleAdvertisementService.getAllDealers();
-		log.info("VehicleAdvertisementController#getAllDealers end");
+	public ResponseEntity<List<DealerGetResponse>> getAllDealers(@RequestParam(required = false) final String prefix,
+			@RequestParam(required = false) @Min(1) @Max(MAX_PAGE_SIZE) final Integer limit,
+			@RequestParam(required = false) final String cursor)  {
+		val response = vehicleAdvertisementService.getDealers(prefix, limit, cursor);
+		return page(response);
+    }
+	
+	@Operation(summary = "Get the draft and published listings of a dealer, the remainder of its tier and the average, "
+			+ "min and max price of its published listings. Totals are kept on every change instead of reading the listings.")
+	@GetMapping("dealer/{id}/stats")
+	public ResponseEntity<DealerStatsResponse> getDealerStats(@PathVariable final UUID id)  {
+		val response = vehicleAdvertisementService.getDealerStats(id);
 		return ResponseEntity.ok(response);
     }
+	
+	/**
+	 * Read the items of a JSON array or of newline delimited JSON, both are read by the same
+	 * iterator since the items of a root array are iterated as if they were root values.
+	 */
+	private <T> List<T> readBatch(InputStream input, Class<T> type) throws IOException {
+		val items = new ArrayList<T>();
+		try(MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(input)) {
+			while(iterator.hasNextValue()) {
+				if(items.size() >= MAX_BATCH_SIZE) {
+					throw new BatchSizeExceededException(MAX_BATCH_SIZE);
+				}
+				items.add(iterator.nextValue());
+			}
+		}
+		return items;
+	}
+	
+	/**
+	 * Write one JSON document per line, the output is flushed by the container as its buffer fills
+	 * instead of after every listing.
+	 */
+	private <T> void writeNdjson(Stream<T> items, OutputStream output) throws IOException {
+		val writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try(items; JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			val iterator = items.iterator();
+			while(iterator.hasNext()) {
+				writer.writeValue(generator, iterator.next());
+				generator.writeRaw('\n');
+			}
+		}
+	}
+	
+	/**
+	 * Write a cached page as it is, compressed if it has a gzip copy and the client accepts it.
+	 */
+	private ResponseEntity<byte[]> cachedPage(CachedPage page, boolean gzip) {
+		val builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+		if(page.getNextCursor() != null) {
+			builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		if(gzip && page.getGzipBody() != null) {
+			return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(page.getGzipBody());
+		}
+		return builder.body(page.getBody());
+	}
+	
+	private static boolean acceptsGzip(String acceptEncoding) {
+		return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+	}
+	
+	private <T> ResponseEntity<List<T>> page(PageResponse<T> response) {
+		val builder = ResponseEntity.ok();
+		if(response.getNextCursor() != null) {
+			builder.header(NEXT_CURSOR_HEADER, response.getNextCursor());
+		}
+		return builder.body(response.getItems());
+	}
 }
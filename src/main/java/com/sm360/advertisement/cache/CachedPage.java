@@ -0,0 +1,26 @@
+package com.sm360.advertisement.cache;
+
+import lombok.Value;
+
+/**
+ * Page of listings serialized to JSON, ready to be written.
+ * @author Luis Bazan
+ *
+ */
+@Value
+public class CachedPage {
+	/**
+	 * Tag of the dealer's listings the page was read with.
+	 */
+	String tag;
+	byte[] body;
+	/**
+	 * Body compressed with gzip, null if it is not kept.
+	 */
+	byte[] gzipBody;
+	String nextCursor;
+
+	int weight() {
+		return body.length + (gzipBody == null ? 0 : gzipBody.length) + (nextCursor == null ? 0 : nextCursor.length());
+	}
+}
@@ -0,0 +1,29 @@
+package com.sm360.advertisement.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Configuration of the cache of serialized listing pages, under config.listing-cache.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@ConfigurationProperties(prefix = "config.listing-cache")
+public class ListingCacheProperties {
+	/**
+	 * Keep the serialized pages of GET /listing so unchanged pages are not read and serialized again.
+	 */
+	private boolean enabled = true;
+	/**
+	 * Max size of the cached pages, the least valuable pages are evicted beyond it.
+	 */
+	private DataSize maximumSize = DataSize.ofMegabytes(64);
+	/**
+	 * Also keep a gzip copy of the pages larger than gzipMinSize, sent to clients accepting gzip.
+	 */
+	private boolean gzip;
+	private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+}
@@ -0,0 +1,166 @@
+package com.sm360.advertisement.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.val;
+
+/**
+ * Bounded cache of the serialized pages of GET /listing, evicted by size with the TinyLFU policy of
+ * Caffeine so the pages of hot dealers stay. A page is only returned with the tag of the dealer's listings
+ * it was read with, so a changed dealer never gets an old page, and the pages of a dealer are dropped
+ * as soon as its listings are changed through {@link #invalidate(UUID...)}.
+ * @author Luis Bazan
+ *
+ */
+@Component
+@EnableConfigurationProperties(ListingCacheProperties.class)
+public class ListingResponseCache implements MeterBinder {
+
+	private final ListingCacheProperties properties;
+
+	private final Cache<Query, CachedPage> cache;
+
+	/**
+	 * Cached queries of each dealer, to drop them without scanning the cache.
+	 */
+	private final Map<UUID, Set<Query>> dealerQueries = new ConcurrentHashMap<UUID, Set<Query>>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	public ListingResponseCache(ListingCacheProperties properties) {
+		this.properties = properties;
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(properties.getMaximumSize().toBytes())
+				.weigher((Query query, CachedPage page)-> page.weight())
+				.removalListener((Query query, CachedPage page, RemovalCause cause)-> {
+					if(query != null && cause.wasEvicted()) {
+						forget(query);
+					}
+				})
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Get a cached page.
+	 * @param query {@link Query}
+	 * @param tag current tag of the dealer's listings
+	 * @return the {@link CachedPage} or null if it is not cached with that tag
+	 */
+	public CachedPage get(Query query, String tag) {
+		if(!properties.isEnabled()) {
+			return null;
+		}
+		val page = cache.asMap().get(query);
+		if(page == null || !page.getTag().equals(tag)) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return page;
+	}
+
+	/**
+	 * Cache a page read after getting the tag, a page cached with a previous tag is replaced.
+	 * @param query {@link Query}
+	 * @param tag tag of the dealer's listings got before reading the page
+	 * @param body page serialized to JSON
+	 * @param nextCursor cursor of the next page, null for the last page
+	 * @return the {@link CachedPage}
+	 */
+	public CachedPage put(Query query, String tag, byte[] body, String nextCursor) {
+		val gzip = properties.isGzip() && body.length >= properties.getGzipMinSize().toBytes();
+		val page = new CachedPage(tag, body, gzip ? gzip(body) : null, nextCursor);
+		if(properties.isEnabled()) {
+			dealerQueries.computeIfAbsent(query.getDealerId(), item-> ConcurrentHashMap.newKeySet()).add(query);
+			cache.put(query, page);
+		}
+		return page;
+	}
+
+	/**
+	 * Whether pages may be sent compressed, their responses then vary with the Accept-Encoding of the request.
+	 */
+	public boolean isGzip() {
+		return properties.isGzip();
+	}
+
+	/**
+	 * Drop the cached pages of the given dealers, null dealers are ignored.
+	 * @param dealerIds {@link UUID}
+	 */
+	public void invalidate(UUID... dealerIds) {
+		for(val dealerId : dealerIds) {
+			val queries = dealerId == null ? null : dealerQueries.remove(dealerId);
+			if(queries != null) {
+				cache.invalidateAll(queries);
+			}
+		}
+	}
+
+	/**
+	 * Publish the hits, misses, evictions and size of the cache, hits and misses are counted here as pages
+	 * are read through the map view of the cache, which Caffeine does not record.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("listing.cache.gets", hits, LongAdder::sum).tag("result", "hit").register(registry);
+		FunctionCounter.builder("listing.cache.gets", misses, LongAdder::sum).tag("result", "miss").register(registry);
+		FunctionCounter.builder("listing.cache.evictions", cache, item-> item.stats().evictionCount()).register(registry);
+		Gauge.builder("listing.cache.entries", cache, Cache::estimatedSize).register(registry);
+		Gauge.builder("listing.cache.size", cache, item-> item.policy().eviction().map(eviction-> eviction.weightedSize().orElse(0)).orElse(0L)).baseUnit("bytes").register(registry);
+	}
+
+	private void forget(Query query) {
+		dealerQueries.computeIfPresent(query.getDealerId(), (item, queries)-> {
+			queries.remove(query);
+			return queries.isEmpty() ? null : queries;
+		});
+	}
+
+	private static byte[] gzip(byte[] body) {
+		val output = new ByteArrayOutputStream(body.length / 4);
+		try(GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+			gzip.write(body);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Parameters of a GET /listing request.
+	 */
+	@Value
+	public static class Query {
+		UUID dealerId;
+		ListingState state;
+		ListingSort sort;
+		Integer limit;
+		String cursor;
+	}
+}
@@ -0,0 +1,26 @@
+package com.sm360.advertisement.dto;
+
+import org.springframework.http.HttpStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of one item of a batch request, the item is set when the item succeeded
+ * and the message when it failed.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResponse<T> {
+	private int index;
+	private HttpStatus status;
+	private int code;
+	private String message;
+	private T item;
+}
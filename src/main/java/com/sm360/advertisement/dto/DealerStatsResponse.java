@@ -0,0 +1,24 @@
+package com.sm360.advertisement.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DealerStatsResponse {
+	private UUID id;
+	private String name;
+	private long draftListings;
+	private long publishedListings;
+	private int tierLimit;
+	private int remainderTierLimit;
+	private Double averagePrice;
+	private Double minPrice;
+	private Double maxPrice;
+}
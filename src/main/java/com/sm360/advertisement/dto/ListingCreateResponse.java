@@ -21,4 +21,5 @@ public class ListingCreateResponse {
 	private Double price;
 	private LocalDateTime createdAt;
 	private ListingState state;
+	private long version;
 }
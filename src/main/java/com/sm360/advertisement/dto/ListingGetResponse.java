@@ -21,7 +21,9 @@ public class ListingGetResponse {
 	private Double price;
 	private LocalDateTime createdAt;
 	private LocalDateTime updatedAt;
+	private LocalDateTime publishedAt;
 	private ListingState state;
+	private long version;
 	
 	@Data
 	@Builder
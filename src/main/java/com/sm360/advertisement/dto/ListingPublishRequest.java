@@ -1,7 +1,9 @@
 package com.sm360.advertisement.dto;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
+import javax.validation.constraints.Future;
 import javax.validation.constraints.NotNull;
 
 import lombok.AllArgsConstructor;
@@ -18,4 +20,9 @@ public class ListingPublishRequest {
 	private UUID id;
 	@NotNull
 	private boolean showErrorLimitIsReached;
+	/**
+	 * Time of the change, null to change it now.
+	 */
+	@Future
+	private LocalDateTime at;
 }
@@ -0,0 +1,29 @@
+package com.sm360.advertisement.dto;
+
+import java.util.UUID;
+
+import javax.validation.constraints.NotNull;
+
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Publish a listing when the state is published, unpublish it when the state is draft.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ListingStateRequest {
+	@NotNull
+	private UUID id;
+	@NotNull
+	private ListingState state;
+	private boolean showErrorLimitIsReached;
+}
@@ -1,7 +1,9 @@
 package com.sm360.advertisement.dto;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
+import javax.validation.constraints.Future;
 import javax.validation.constraints.NotNull;
 
 import lombok.AllArgsConstructor;
@@ -16,4 +18,9 @@ import lombok.NoArgsConstructor;
 public class ListingUnpublishRequest {
 	@NotNull
 	private UUID id;
+	/**
+	 * Time of the change, null to change it now.
+	 */
+	@Future
+	private LocalDateTime at;
 }
@@ -23,4 +23,9 @@ public class ListingUpdateRequest {
 	private String vehicle;
 	@NotNull
 	private Double price;
+	/**
+	 * Version of the listing the update is based on, when given the update is rejected
+	 * if the listing was changed meanwhile.
+	 */
+	private Long version;
 }
@@ -21,4 +21,5 @@ public class ListingUpdateResponse {
 	private Double price;
 	private LocalDateTime updatedAt;
 	private ListingState state;
+	private long version;
 }
@@ -2,6 +2,9 @@ package com.sm360.advertisement.errorhandling;
 
 import java.util.Locale;
 
+import javax.validation.ConstraintViolationException;
+
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -11,9 +14,13 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sm360.advertisement.accesslog.AccessLog;
+
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,6 +32,7 @@ import lombok.extern.slf4j.Slf4j;
  *
  */
 @RestControllerAdvice
+@Profile("!reactive")
 @Slf4j
 public class CustomRestExceptionHandler {
 
@@ -40,8 +48,13 @@ public class CustomRestExceptionHandler {
 	@ExceptionHandler
     public ResponseEntity<?> handleException(Throwable exception, WebRequest webRequest, Locale locale) {
 		if (locale == null) locale = Locale.ROOT;
-		log.error("Exception: ", exception);
 		val error = handleError(exception, webRequest, locale);
+		if(error.getStatus().is5xxServerError()) {
+			log.error("Exception: ", exception);
+		} else if(log.isDebugEnabled()) {
+			log.debug("Exception: {}", error.getMessage());
+		}
+		webRequest.setAttribute(AccessLog.ERROR_ATTRIBUTE, exception.getClass(), RequestAttributes.SCOPE_REQUEST);
 		return ResponseEntity.status(error.getStatus()).body(error);
     }
 
@@ -70,6 +83,8 @@ public class CustomRestExceptionHandler {
 			message = String.format("Value [%s] incorrect", typeExeption.getValue());
 			httpStatus = HttpStatus.BAD_REQUEST;
 		} else if (exception instanceof HttpMessageNotReadableException
+				|| exception instanceof JsonProcessingException
+				|| exception instanceof ConstraintViolationException
 				|| exception instanceof MissingServletRequestParameterException
 				|| exception instanceof HttpRequestMethodNotSupportedException) {
 			httpStatus = HttpStatus.BAD_REQUEST;
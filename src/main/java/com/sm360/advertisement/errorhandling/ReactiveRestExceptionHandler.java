@@ -0,0 +1,82 @@
+package com.sm360.advertisement.errorhandling;
+
+import javax.validation.ConstraintViolationException;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sm360.advertisement.accesslog.AccessLog;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counterpart of {@link CustomRestExceptionHandler} for the reactive API, the same {@link Error} body
+ * is returned for the exceptions raised by WebFlux.
+ * @author Luis Bazan
+ *
+ */
+@RestControllerAdvice
+@Profile("reactive")
+@Slf4j
+public class ReactiveRestExceptionHandler {
+
+	/**
+	 * Catches any exception and converts it to a HTTP response with appropriate status
+	 * code and error code-message combinations.
+	 *
+	 * @param exception The caught exception.
+	 * @param exchange The current exchange.
+	 * @return A HTTP response with appropriate error body and status code.
+	 */
+	@ExceptionHandler
+	public ResponseEntity<Error> handleException(Throwable exception, ServerWebExchange exchange) {
+		val error = handleError(exception);
+		if(error.getStatus().is5xxServerError()) {
+			log.error("Exception: ", exception);
+		} else if(log.isDebugEnabled()) {
+			log.debug("Exception: {}", error.getMessage());
+		}
+		exchange.getAttributes().put(AccessLog.ERROR_ATTRIBUTE, exception.getClass());
+		return ResponseEntity.status(error.getStatus()).body(error);
+	}
+
+	private Error handleError(Throwable exception) {
+		HttpStatus httpStatus = HttpStatus.INTERNAL_SERVER_ERROR;
+		String message = exception.getMessage();
+
+		if(exception instanceof WebExchangeBindException) {
+			WebExchangeBindException bindException = (WebExchangeBindException) exception;
+			StringBuilder sb = new StringBuilder();
+			sb.append("Invalid arguments:");
+			bindException.getFieldErrors().forEach(item-> {
+				sb.append(String.format(" [%s %s] ", item.getField(), item.getDefaultMessage()));
+			});
+			message = sb.toString();
+			httpStatus = HttpStatus.BAD_REQUEST;
+		} else if (exception instanceof ResponseStatusException) {
+			ResponseStatusException statusException = (ResponseStatusException) exception;
+			message = statusException.getReason();
+			httpStatus = statusException.getStatus();
+		} else if (exception instanceof DecodingException
+				|| exception instanceof JsonProcessingException
+				|| exception instanceof ConstraintViolationException) {
+			httpStatus = HttpStatus.BAD_REQUEST;
+		} else {
+			ResponseStatus responseStatus = exception.getClass().getAnnotation(ResponseStatus.class);
+			if(responseStatus != null) {
+				httpStatus = responseStatus.value();
+			}
+		}
+		return Error.builder().status(httpStatus).code(httpStatus.value()).message(message).build();
+	}
+}
@@ -0,0 +1,17 @@
+package com.sm360.advertisement.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE)
+public class BatchSizeExceededException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -5285317830526612390L;
+
+	public BatchSizeExceededException(long maxSize) {
+		super(String.format("A batch can not have more than [%s] items", maxSize));
+	}
+}
@@ -0,0 +1,17 @@
+package com.sm360.advertisement.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4629470319658236501L;
+
+	public InvalidCursorException(String cursor) {
+		super(String.format("Invalid cursor: [%s]", cursor));
+	}
+}
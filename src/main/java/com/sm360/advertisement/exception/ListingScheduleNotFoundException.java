@@ -0,0 +1,19 @@
+package com.sm360.advertisement.exception;
+
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.NOT_FOUND)
+public class ListingScheduleNotFoundException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public ListingScheduleNotFoundException(UUID id) {
+		super("No pending schedule for listing ID:" + id.toString());
+	}
+}
@@ -0,0 +1,19 @@
+package com.sm360.advertisement.exception;
+
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class ListingVersionConflictException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public ListingVersionConflictException(UUID id, long version) {
+		super("Listing ID:" + id.toString() + " has been changed, its current version is " + version);
+	}
+}
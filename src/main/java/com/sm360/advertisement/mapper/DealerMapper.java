@@ -0,0 +1,71 @@
+package com.sm360.advertisement.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerCreateResponse;
+import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.DealerStats;
+
+import lombok.val;
+
+/**
+ * Converts dealers from and to their DTOs without reflection.
+ * @author Luis Bazan
+ *
+ */
+@Component
+public class DealerMapper {
+
+	public Dealer toDealer(DealerCreateRequest request) {
+		return Dealer.builder()
+				.name(request.getName())
+				.tierLimit(request.getTierLimit() == null ? 0 : request.getTierLimit())
+				.build();
+	}
+
+	public DealerCreateResponse toCreateResponse(Dealer dealer) {
+		return DealerCreateResponse.builder()
+				.id(dealer.getId())
+				.name(dealer.getName())
+				.tierLimit(dealer.getTierLimit())
+				.build();
+	}
+
+	public DealerGetResponse toGetResponse(Dealer dealer) {
+		return DealerGetResponse.builder()
+				.id(dealer.getId())
+				.name(dealer.getName())
+				.build();
+	}
+
+	/**
+	 * The remainder of the tier is what is left of the limit once the published listings are counted.
+	 */
+	public DealerStatsResponse toStatsResponse(Dealer dealer, DealerStats stats) {
+		return DealerStatsResponse.builder()
+				.id(dealer.getId())
+				.name(dealer.getName())
+				.draftListings(stats.getDraftListings())
+				.publishedListings(stats.getPublishedListings())
+				.tierLimit(dealer.getTierLimit())
+				.remainderTierLimit((int) Math.max(0, dealer.getTierLimit() - stats.getPublishedListings()))
+				.averagePrice(stats.getAveragePrice())
+				.minPrice(stats.getMinPrice())
+				.maxPrice(stats.getMaxPrice())
+				.build();
+	}
+
+	public List<DealerGetResponse> toGetResponses(List<Dealer> dealers) {
+		val responses = new ArrayList<DealerGetResponse>(dealers.size());
+		for(val dealer : dealers) {
+			responses.add(toGetResponse(dealer));
+		}
+		return responses;
+	}
+}
@@ -0,0 +1,86 @@
+package com.sm360.advertisement.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.model.Listing;
+
+import lombok.val;
+
+/**
+ * Converts listings from and to their DTOs without reflection.
+ * @author Luis Bazan
+ *
+ */
+@Component
+public class ListingMapper {
+
+	/**
+	 * Create a listing with the values of a {@link ListingCreateRequest}, the dealer
+	 * is not resolved here.
+	 * @param request
+	 * @return a {@link Listing}
+	 */
+	public Listing toListing(ListingCreateRequest request) {
+		return Listing.builder()
+				.vehicle(request.getVehicle())
+				.price(request.getPrice())
+				.build();
+	}
+
+	public ListingCreateResponse toCreateResponse(Listing listing) {
+		return ListingCreateResponse.builder()
+				.id(listing.getId())
+				.dealerId(listing.getDealer() == null ? null : listing.getDealer().getId())
+				.vehicle(listing.getVehicle())
+				.price(listing.getPrice())
+				.createdAt(listing.getCreatedAt())
+				.state(listing.getState())
+				.version(listing.getVersion())
+				.build();
+	}
+
+	public ListingUpdateResponse toUpdateResponse(Listing listing) {
+		return ListingUpdateResponse.builder()
+				.id(listing.getId())
+				.dealerId(listing.getDealer() == null ? null : listing.getDealer().getId())
+				.vehicle(listing.getVehicle())
+				.price(listing.getPrice())
+				.updatedAt(listing.getUpdatedAt())
+				.state(listing.getState())
+				.version(listing.getVersion())
+				.build();
+	}
+
+	public ListingGetResponse toGetResponse(Listing listing) {
+		val dealer = listing.getDealer() == null ? null : ListingGetResponse.DealerResponse.builder()
+				.id(listing.getDealer().getId())
+				.name(listing.getDealer().getName())
+				.build();
+		return ListingGetResponse.builder()
+				.id(listing.getId())
+				.dealer(dealer)
+				.vehicle(listing.getVehicle())
+				.price(listing.getPrice())
+				.createdAt(listing.getCreatedAt())
+				.updatedAt(listing.getUpdatedAt())
+				.publishedAt(listing.getPublishedAt())
+				.state(listing.getState())
+				.version(listing.getVersion())
+				.build();
+	}
+
+	public List<ListingGetResponse> toGetResponses(List<Listing> listings) {
+		val responses = new ArrayList<ListingGetResponse>(listings.size());
+		for(val listing : listings) {
+			responses.add(toGetResponse(listing));
+		}
+		return responses;
+	}
+}
@@ -0,0 +1,24 @@
+package com.sm360.advertisement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totals of the listings of a dealer, prices are of the published listings with a price and are
+ * null when there is none.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class DealerStats {
+	private long draftListings;
+	private long publishedListings;
+	private Double averagePrice;
+	private Double minPrice;
+	private Double maxPrice;
+}
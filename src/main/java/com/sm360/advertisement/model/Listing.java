@@ -3,22 +3,24 @@ package com.sm360.advertisement.model;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@Builder
-@AllArgsConstructor
-@NoArgsConstructor
+/**
+ * Listings are never changed once built, a change is saved as a copy made with {@link #toBuilder()}.
+ * @author Luis Bazan
+ *
+ */
+@Value
+@Builder(toBuilder = true)
 public class Listing {
-	private UUID id;
-	private Dealer dealer;
-	private String vehicle;
-	private Double price;
-	private LocalDateTime createdAt;
-	private LocalDateTime updatedAt;
-	private LocalDateTime publishedAt;
-	private ListingState state;
+	UUID id;
+	Dealer dealer;
+	String vehicle;
+	Double price;
+	LocalDateTime createdAt;
+	LocalDateTime updatedAt;
+	LocalDateTime publishedAt;
+	ListingState state;
+	long version;
 }
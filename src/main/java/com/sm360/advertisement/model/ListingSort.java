@@ -0,0 +1,7 @@
+package com.sm360.advertisement.model;
+
+public enum ListingSort {
+	createdAt,
+	publishedAt,
+	price
+}
@@ -0,0 +1,23 @@
+package com.sm360.advertisement.persistence;
+
+/**
+ * When the write ahead log forces its records to the disk.
+ * @author Luis Bazan
+ *
+ */
+public enum FsyncPolicy {
+	/**
+	 * Every append waits until its record is forced to the disk, appends waiting
+	 * at the same time share one fsync.
+	 */
+	always,
+	/**
+	 * Appends return once the record is buffered, records are forced at a fixed interval
+	 * so at most one interval of changes can be lost.
+	 */
+	interval,
+	/**
+	 * Appends return once the record is buffered, the operating system decides when records reach the disk.
+	 */
+	never
+}
@@ -0,0 +1,34 @@
+package com.sm360.advertisement.persistence;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration of the optional persistence of the cache repositories, under config.persistence.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@ConfigurationProperties(prefix = "config.persistence")
+public class PersistenceProperties {
+	/**
+	 * Record every change in a write ahead log and rebuild the repositories from it on startup.
+	 */
+	private boolean enabled;
+	/**
+	 * Directory of the log segments and snapshots.
+	 */
+	private String directory = "data";
+	private FsyncPolicy fsync = FsyncPolicy.interval;
+	/**
+	 * Interval between fsyncs with {@link FsyncPolicy#interval}.
+	 */
+	private Duration fsyncInterval = Duration.ofMillis(100);
+	/**
+	 * Interval between snapshots, a snapshot lets older log segments be deleted.
+	 */
+	private Duration snapshotInterval = Duration.ofMinutes(10);
+}
@@ -0,0 +1,161 @@
+package com.sm360.advertisement.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.function.Function;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Binary encoding of the dealers and listings stored in the write ahead log and the snapshots.
+ * Every record holds the whole entity, so replaying the records of an entity in order leaves
+ * its last saved state and replaying them twice has no effect.
+ * @author Luis Bazan
+ *
+ */
+final class RecordCodec {
+
+	static final byte DEALER = 1;
+
+	static final byte LISTING = 2;
+
+	private static final ListingState[] STATES = ListingState.values();
+
+	private RecordCodec() {
+	}
+
+	static byte[] encode(Dealer dealer) {
+		val name = bytes(dealer.getName());
+		val buffer = ByteBuffer.allocate(16 + size(name) + 4);
+		putUuid(buffer, dealer.getId());
+		putString(buffer, name);
+		buffer.putInt(dealer.getTierLimit());
+		return buffer.array();
+	}
+
+	static Dealer decodeDealer(ByteBuffer buffer) {
+		return Dealer.builder()
+				.id(getUuid(buffer))
+				.name(getString(buffer))
+				.tierLimit(buffer.getInt())
+				.build();
+	}
+
+	static byte[] encode(Listing listing) {
+		val vehicle = bytes(listing.getVehicle());
+		val dealerId = listing.getDealer() == null ? null : listing.getDealer().getId();
+		// exact size, so the record holds only the encoded bytes
+		val buffer = ByteBuffer.allocate(16 + 1 + (dealerId == null ? 0 : 16) + size(vehicle) + 1 + (listing.getPrice() == null ? 0 : 8)
+				+ size(listing.getCreatedAt()) + size(listing.getUpdatedAt()) + size(listing.getPublishedAt()) + 1 + 8);
+		putUuid(buffer, listing.getId());
+		buffer.put((byte) (dealerId == null ? 0 : 1));
+		if(dealerId != null) {
+			putUuid(buffer, dealerId);
+		}
+		putString(buffer, vehicle);
+		buffer.put((byte) (listing.getPrice() == null ? 0 : 1));
+		if(listing.getPrice() != null) {
+			buffer.putDouble(listing.getPrice());
+		}
+		putDateTime(buffer, listing.getCreatedAt());
+		putDateTime(buffer, listing.getUpdatedAt());
+		putDateTime(buffer, listing.getPublishedAt());
+		buffer.put((byte) (listing.getState() == null ? -1 : listing.getState().ordinal()));
+		buffer.putLong(listing.getVersion());
+		return buffer.array();
+	}
+
+	/**
+	 * Decode a listing, its dealer is resolved by id and replaced by a dealer with only
+	 * the id when it can not be resolved.
+	 */
+	static Listing decodeListing(ByteBuffer buffer, Function<UUID, Dealer> dealers) {
+		val id = getUuid(buffer);
+		Dealer dealer = null;
+		if(buffer.get() == 1) {
+			val dealerId = getUuid(buffer);
+			dealer = dealers.apply(dealerId);
+			if(dealer == null) {
+				dealer = Dealer.builder().id(dealerId).build();
+			}
+		}
+		val vehicle = getString(buffer);
+		val price = buffer.get() == 1 ? buffer.getDouble() : null;
+		val createdAt = getDateTime(buffer);
+		val updatedAt = getDateTime(buffer);
+		val publishedAt = getDateTime(buffer);
+		val state = buffer.get();
+		val version = buffer.getLong();
+		return Listing.builder()
+				.id(id)
+				.dealer(dealer)
+				.vehicle(vehicle)
+				.price(price)
+				.createdAt(createdAt)
+				.updatedAt(updatedAt)
+				.publishedAt(publishedAt)
+				.state(state < 0 ? null : STATES[state])
+				.version(version)
+				.build();
+	}
+
+	private static byte[] bytes(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int size(byte[] value) {
+		return 4 + (value == null ? 0 : value.length);
+	}
+
+	private static int size(LocalDateTime value) {
+		return value == null ? 1 : 13;
+	}
+
+	private static void putString(ByteBuffer buffer, byte[] value) {
+		if(value == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(value.length).put(value);
+		}
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		val length = buffer.getInt();
+		if(length < 0) {
+			return null;
+		}
+		val value = new byte[length];
+		buffer.get(value);
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	private static void putUuid(ByteBuffer buffer, UUID value) {
+		buffer.putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits());
+	}
+
+	private static UUID getUuid(ByteBuffer buffer) {
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+	private static void putDateTime(ByteBuffer buffer, LocalDateTime value) {
+		if(value == null) {
+			buffer.put((byte) 0);
+		} else {
+			buffer.put((byte) 1).putLong(value.toEpochSecond(ZoneOffset.UTC)).putInt(value.getNano());
+		}
+	}
+
+	private static LocalDateTime getDateTime(ByteBuffer buffer) {
+		if(buffer.get() == 0) {
+			return null;
+		}
+		return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+	}
+}
@@ -0,0 +1,252 @@
+package com.sm360.advertisement.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.repository.DealerRepository;
+import com.sm360.advertisement.repository.JournaledRepository;
+import com.sm360.advertisement.repository.ListingRepository;
+import com.sm360.advertisement.repository.RepositoryJournal;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Makes the in memory repositories durable when config.persistence.enabled is true. On startup the repositories
+ * are rebuilt from the latest snapshot and the log segments written since, then every saved dealer and listing
+ * is appended to a {@link WriteAheadLog}. Snapshots are taken periodically so older segments can be deleted.
+ * @author Luis Bazan
+ *
+ */
+@Component
+@ConditionalOnProperty(prefix = "config.persistence", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(PersistenceProperties.class)
+@Slf4j
+public class RepositoryPersistence implements RepositoryJournal {
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+	private static final String SNAPSHOT_SUFFIX = ".bin";
+
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	@Autowired
+	public PersistenceProperties properties;
+
+	@Autowired
+	public DealerRepository dealerRepository;
+
+	@Autowired
+	public ListingRepository listingRepository;
+
+	WriteAheadLog writeAheadLog;
+
+	ScheduledExecutorService scheduler;
+
+	@PostConstruct
+	public void start() throws IOException {
+		val directory = directory();
+		Files.createDirectories(directory);
+		val segment = recover(directory);
+		writeAheadLog = new WriteAheadLog(directory, segment, properties.getFsync(), properties.getFsyncInterval());
+		setJournal(this);
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable-> {
+			val thread = new Thread(runnable, "repository-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		val interval = properties.getSnapshotInterval().toMillis();
+		scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() throws IOException {
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		setJournal(null);
+		writeAheadLog.close();
+	}
+
+	@Override
+	public void listingSaved(Listing listing) {
+		writeAheadLog.append(RecordCodec.LISTING, RecordCodec.encode(listing));
+	}
+
+	@Override
+	public void dealerSaved(Dealer dealer) {
+		writeAheadLog.append(RecordCodec.DEALER, RecordCodec.encode(dealer));
+	}
+
+	/**
+	 * Take a snapshot of the repositories. The log is rolled first, so the snapshot and the segments
+	 * from the new one hold every change: repositories keep changing while the snapshot is written,
+	 * and the records of those changes are in the new segment, replaying them again has no effect.
+	 * Once the snapshot is complete and its name is forced to the disk the previous snapshots and segments are deleted.
+	 * @throws IOException if the snapshot can not be written
+	 */
+	public synchronized void snapshot() throws IOException {
+		val begin = System.nanoTime();
+		val directory = directory();
+		val number = writeAheadLog.roll();
+		val temporary = numbered(directory, SNAPSHOT_PREFIX, number, TEMPORARY_SUFFIX);
+		long records = 0;
+		try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			val buffer = ByteBuffer.allocate(WriteAheadLog.BUFFER_SIZE);
+			val crc = new CRC32();
+			for(val dealer : dealerRepository.findAll()) {
+				write(channel, buffer, crc, RecordCodec.DEALER, RecordCodec.encode(dealer));
+				records++;
+			}
+			try(Stream<Listing> listings = listingRepository.stream(null, null)) {
+				val iterator = listings.iterator();
+				while(iterator.hasNext()) {
+					write(channel, buffer, crc, RecordCodec.LISTING, RecordCodec.encode(iterator.next()));
+					records++;
+				}
+			}
+			flush(channel, buffer);
+			channel.force(true);
+		}
+		Files.move(temporary, numbered(directory, SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+		// the rename has to be on the disk before the files it replaces are deleted
+		WriteAheadLog.forceDirectory(directory);
+		for(val previous : WriteAheadLog.numbers(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if(previous < number) {
+				Files.deleteIfExists(numbered(directory, SNAPSHOT_PREFIX, previous, SNAPSHOT_SUFFIX));
+			}
+		}
+		for(val previous : WriteAheadLog.segments(directory)) {
+			if(previous < number) {
+				Files.deleteIfExists(WriteAheadLog.segmentPath(directory, previous));
+			}
+		}
+		log.info("Snapshot {} of {} records written in {} ms", number, records, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+	}
+
+	/**
+	 * Load the latest snapshot and replay the segments written since, an incomplete record at the end
+	 * of a segment is the last append before a crash and is discarded, as the temporary file of a
+	 * snapshot which was not complete.
+	 * @return number of the segment to append to, greater than the existing ones
+	 */
+	long recover(Path directory) throws IOException {
+		val begin = System.nanoTime();
+		for(val number : WriteAheadLog.numbers(directory, SNAPSHOT_PREFIX, TEMPORARY_SUFFIX)) {
+			log.warn("Deleting the incomplete snapshot {}", number);
+			Files.deleteIfExists(numbered(directory, SNAPSHOT_PREFIX, number, TEMPORARY_SUFFIX));
+		}
+		val snapshots = WriteAheadLog.numbers(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		long first = 0;
+		if(!snapshots.isEmpty()) {
+			first = snapshots.get(snapshots.size() - 1);
+			val file = numbered(directory, SNAPSHOT_PREFIX, first, SNAPSHOT_SUFFIX);
+			if(WriteAheadLog.read(file, this::apply) < Files.size(file)) {
+				log.error("Snapshot {} is corrupt, only its valid records were loaded", file);
+			}
+		}
+		long last = first;
+		for(val number : WriteAheadLog.segments(directory)) {
+			last = Math.max(last, number);
+			if(number < first) {
+				continue;
+			}
+			val file = WriteAheadLog.segmentPath(directory, number);
+			val valid = WriteAheadLog.read(file, this::apply);
+			if(valid < Files.size(file)) {
+				log.warn("Discarding the incomplete records at the end of {}", file);
+				try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					channel.truncate(valid);
+				}
+			}
+		}
+		log.info("Recovered {} dealers and {} listings in {} ms", dealerRepository.findAll().size(),
+				listingRepository.stream(null, null).count(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+		return last + 1;
+	}
+
+	private void apply(byte type, ByteBuffer payload) {
+		switch(type) {
+		case RecordCodec.DEALER:
+			dealerRepository.save(RecordCodec.decodeDealer(payload));
+			break;
+		case RecordCodec.LISTING:
+			listingRepository.save(RecordCodec.decodeListing(payload, dealerRepository::findById));
+			break;
+		default:
+			log.warn("Ignoring a record of unknown type {}", type);
+		}
+	}
+
+	private void setJournal(RepositoryJournal journal) {
+		for(val repository : List.<Object>of(dealerRepository, listingRepository)) {
+			if(!(repository instanceof JournaledRepository)) {
+				throw new IllegalStateException(repository.getClass().getSimpleName() + " can not record its changes");
+			}
+			((JournaledRepository) repository).setJournal(journal);
+		}
+	}
+
+	private void scheduledSnapshot() {
+		try {
+			snapshot();
+		} catch (IOException | RuntimeException e) {
+			log.error("The snapshot failed, log segments are kept until the next one", e);
+		}
+	}
+
+	private void write(FileChannel channel, ByteBuffer buffer, CRC32 crc, byte type, byte[] payload) throws IOException {
+		val size = WriteAheadLog.HEADER_SIZE + payload.length;
+		if(buffer.remaining() < size) {
+			flush(channel, buffer);
+		}
+		if(buffer.remaining() < size) {
+			val large = ByteBuffer.allocate(size);
+			WriteAheadLog.put(large, crc, type, payload);
+			flush(channel, large);
+			return;
+		}
+		WriteAheadLog.put(buffer, crc, type, payload);
+	}
+
+	private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private Path directory() {
+		return Paths.get(properties.getDirectory());
+	}
+
+	private static Path numbered(Path directory, String prefix, long number, String suffix) {
+		return directory.resolve(String.format("%s%020d%s", prefix, number, suffix));
+	}
+}
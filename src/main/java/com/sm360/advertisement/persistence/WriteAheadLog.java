@@ -0,0 +1,411 @@
+package com.sm360.advertisement.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append only log of records written with a {@link FileChannel}. Appends copy the record to a buffer
+ * and a single thread writes it, so one write and one fsync cover every record appended meanwhile
+ * (group commit). The log is split in numbered segments, {@link #roll()} starts a new one so the
+ * older segments can be deleted once a snapshot covers them.
+ * Record layout: payload length (int) | crc32 of type and payload (int) | type (byte) | payload
+ * @author Luis Bazan
+ *
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+	static final int HEADER_SIZE = 9;
+
+	static final int MAX_RECORD_SIZE = 1 << 24;
+
+	/**
+	 * Initial size of the buffers, a buffer grown for a burst of appends is replaced by one of this
+	 * size once it is written, so the log does not keep the memory of its largest burst.
+	 */
+	static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Appends wait for the writer once this many bytes are buffered, so a slow disk can not exhaust the heap.
+	 */
+	private static final int MAX_BUFFERED = 64 << 20;
+
+	private static final String SEGMENT_PREFIX = "wal-";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final Path directory;
+
+	private final FsyncPolicy policy;
+
+	private final long fsyncIntervalNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition appended = lock.newCondition();
+
+	private final Condition written = lock.newCondition();
+
+	private final CRC32 crc = new CRC32();
+
+	private final Thread writer;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private long appendedRecords;
+
+	private long writtenRecords;
+
+	private long segment;
+
+	private boolean rollRequested;
+
+	private boolean closed;
+
+	private IOException failure;
+
+	/**
+	 * Only used by the writer thread once it is started.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Open the log appending to a new segment.
+	 * @param directory directory of the segments
+	 * @param segment number of the first segment, greater than the number of any existing segment
+	 * @param policy {@link FsyncPolicy}
+	 * @param fsyncInterval interval between fsyncs with {@link FsyncPolicy#interval}
+	 * @throws IOException if the segment can not be created
+	 */
+	public WriteAheadLog(Path directory, long segment, FsyncPolicy policy, Duration fsyncInterval) throws IOException {
+		this.directory = directory;
+		this.segment = segment;
+		this.policy = policy;
+		this.fsyncIntervalNanos = fsyncInterval.toNanos();
+		this.channel = open(segment);
+		this.writer = new Thread(this::write, "write-ahead-log");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Append a record, with {@link FsyncPolicy#always} it returns once the record is on the disk,
+	 * otherwise once it is buffered.
+	 * @param type type of the record
+	 * @param payload content of the record
+	 */
+	public void append(byte type, byte[] payload) {
+		if(payload.length > MAX_RECORD_SIZE) {
+			throw new IllegalArgumentException("Record too large: " + payload.length);
+		}
+		lock.lock();
+		try {
+			while(buffer.position() >= MAX_BUFFERED && failure == null && !closed) {
+				written.awaitUninterruptibly();
+			}
+			check();
+			if(buffer.remaining() < HEADER_SIZE + payload.length) {
+				val grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + HEADER_SIZE + payload.length));
+				buffer.flip();
+				buffer = grown.put(buffer);
+			}
+			put(buffer, crc, type, payload);
+			val record = ++appendedRecords;
+			appended.signal();
+			if(policy == FsyncPolicy.always) {
+				while(writtenRecords < record && failure == null) {
+					written.awaitUninterruptibly();
+				}
+				check();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Write the buffered records to the current segment and start a new one, records appended
+	 * once this method returns go to the new segment.
+	 * @return number of the new segment
+	 */
+	public long roll() {
+		lock.lock();
+		try {
+			check();
+			rollRequested = true;
+			appended.signal();
+			while(rollRequested && failure == null) {
+				written.awaitUninterruptibly();
+			}
+			check();
+			return segment;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Write and force the buffered records and stop the writer.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			closed = true;
+			appended.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+	private void write() {
+		long lastSync = System.nanoTime();
+		boolean dirty = false;
+		try {
+			while(true) {
+				long records;
+				boolean roll;
+				boolean stop;
+				lock.lock();
+				try {
+					awaitWork(dirty, lastSync);
+					val swap = writing;
+					writing = buffer;
+					buffer = swap;
+					records = appendedRecords;
+					roll = rollRequested;
+					stop = closed;
+				} finally {
+					lock.unlock();
+				}
+				writing.flip();
+				dirty |= writing.hasRemaining();
+				while(writing.hasRemaining()) {
+					channel.write(writing);
+				}
+				if(writing.capacity() > BUFFER_SIZE) {
+					writing = ByteBuffer.allocate(BUFFER_SIZE);
+				} else {
+					writing.clear();
+				}
+				val now = System.nanoTime();
+				if(dirty && (roll || stop || policy == FsyncPolicy.always
+						|| (policy == FsyncPolicy.interval && now - lastSync >= fsyncIntervalNanos))) {
+					channel.force(false);
+					lastSync = now;
+					dirty = false;
+				}
+				if(roll || stop) {
+					channel.close();
+				}
+				if(roll && !stop) {
+					channel = open(segment + 1);
+				}
+				lock.lock();
+				try {
+					writtenRecords = records;
+					if(roll) {
+						segment++;
+						rollRequested = false;
+					}
+					written.signalAll();
+				} finally {
+					lock.unlock();
+				}
+				if(stop) {
+					return;
+				}
+			}
+		} catch (IOException e) {
+			log.error("The write ahead log stopped, changes are no longer recorded", e);
+			lock.lock();
+			try {
+				failure = e;
+				written.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Wait until there is something to write, a segment to roll, the log is closed or,
+	 * with {@link FsyncPolicy#interval}, written records have to be forced.
+	 */
+	private void awaitWork(boolean dirty, long lastSync) {
+		while(buffer.position() == 0 && !rollRequested && !closed) {
+			if(!dirty || policy != FsyncPolicy.interval) {
+				appended.awaitUninterruptibly();
+				continue;
+			}
+			val remaining = fsyncIntervalNanos - (System.nanoTime() - lastSync);
+			if(remaining <= 0) {
+				return;
+			}
+			try {
+				appended.awaitNanos(remaining);
+			} catch (InterruptedException e) {
+				// only close stops the writer, the interval is checked again
+			}
+		}
+	}
+
+	private void check() {
+		if(failure != null) {
+			throw new UncheckedIOException("The write ahead log stopped", failure);
+		}
+		if(closed) {
+			throw new IllegalStateException("The write ahead log is closed");
+		}
+	}
+
+	/**
+	 * Create a segment, the directory is forced so the segment is found after a power loss.
+	 */
+	private FileChannel open(long number) throws IOException {
+		val created = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		try {
+			forceDirectory(directory);
+		} catch (IOException e) {
+			created.close();
+			throw e;
+		}
+		return created;
+	}
+
+	/**
+	 * Force the entries of a directory to the disk, so the files created or renamed in it survive a power loss.
+	 * @param directory directory
+	 * @throws IOException if the directory can not be forced
+	 */
+	static void forceDirectory(Path directory) throws IOException {
+		try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+
+	static void put(ByteBuffer buffer, CRC32 crc, byte type, byte[] payload) {
+		crc.reset();
+		crc.update(type);
+		crc.update(payload);
+		buffer.putInt(payload.length).putInt((int) crc.getValue()).put(type).put(payload);
+	}
+
+	static Path segmentPath(Path directory, long number) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * Numbers of the existing segments in ascending order.
+	 */
+	static List<Long> segments(Path directory) throws IOException {
+		return numbers(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Numbers of the files named prefix + number + suffix in ascending order.
+	 */
+	static List<Long> numbers(Path directory, String prefix, String suffix) throws IOException {
+		try(Stream<Path> files = Files.list(directory)) {
+			return files.map(item-> item.getFileName().toString())
+					.filter(item-> item.startsWith(prefix) && item.endsWith(suffix))
+					.map(item-> item.substring(prefix.length(), item.length() - suffix.length()))
+					.filter(item-> !item.isEmpty() && item.chars().allMatch(Character::isDigit))
+					.map(Long::valueOf)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Read the records of a file in order until its end or the first incomplete or corrupt record,
+	 * which is expected at the end of the last segment after a crash.
+	 * @param file segment or snapshot
+	 * @param consumer receives the type and the payload of every record, the payload is only valid during the call
+	 * @return size of the valid records
+	 * @throws IOException if the file can not be read
+	 */
+	static long read(Path file, RecordConsumer consumer) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			val crc = new CRC32();
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+			long valid = 0;
+			while(true) {
+				buffer = fill(channel, buffer, HEADER_SIZE);
+				if(buffer.remaining() < HEADER_SIZE) {
+					return valid;
+				}
+				val length = buffer.getInt(buffer.position());
+				if(length < 0 || length > MAX_RECORD_SIZE) {
+					return valid;
+				}
+				buffer = fill(channel, buffer, HEADER_SIZE + length);
+				if(buffer.remaining() < HEADER_SIZE + length) {
+					return valid;
+				}
+				buffer.getInt();
+				val checksum = buffer.getInt();
+				val type = buffer.get();
+				val payload = buffer.slice().limit(length);
+				crc.reset();
+				crc.update(type);
+				crc.update(payload.duplicate());
+				if((int) crc.getValue() != checksum) {
+					return valid;
+				}
+				consumer.accept(type, payload);
+				buffer.position(buffer.position() + length);
+				valid += HEADER_SIZE + length;
+			}
+		}
+	}
+
+	/**
+	 * Read until the buffer has the given number of bytes or the end of the file is reached,
+	 * the buffer is replaced by a larger one if it can not hold them.
+	 */
+	private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int size) throws IOException {
+		if(buffer.remaining() >= size) {
+			return buffer;
+		}
+		val target = buffer.capacity() >= size ? buffer.compact()
+				: ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2)).put(buffer);
+		while(target.position() < size && channel.read(target) >= 0) {
+			// keep reading until the record is complete
+		}
+		return target.flip();
+	}
+
+	/**
+	 * Receives the records read from a file.
+	 */
+	interface RecordConsumer {
+		void accept(byte type, ByteBuffer payload);
+	}
+}
@@ -1,33 +1,103 @@
 package com.sm360.advertisement.repository;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Repository;
 
+import com.sm360.advertisement.exception.DealerAlreadyExistsException;
 import com.sm360.advertisement.model.Dealer;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.val;
+
 /**
  * 
  * @author Luis Bazan
  *
  */
 @Repository
-public class DealerCacheRepository implements DealerRepository {
+public class DealerCacheRepository implements DealerRepository, JournaledRepository, MeterBinder {
 
-	Map<UUID, Dealer> map = new HashMap<UUID, Dealer>();
+	/**
+	 * Dealers by id, without entry objects.
+	 */
+	UuidMap<Dealer> map = new UuidMap<Dealer>();
+	
+	/**
+	 * Dealers by lower case name, for uniqueness checks.
+	 */
+	Map<String, Dealer> nameIndex = new ConcurrentHashMap<String, Dealer>();
+	
+	/**
+	 * Dealers ordered by lower case name, for prefix searches.
+	 */
+	NavigableMap<String, Dealer> sortedNameIndex = new ConcurrentSkipListMap<String, Dealer>();
+	
+	/**
+	 * Name used the last time each dealer was indexed.
+	 */
+	Map<UUID, String> indexedNames = new ConcurrentHashMap<UUID, String>();
+	
+	StripedLocks locks = new StripedLocks();
+	
+	/**
+	 * Journal of the saved dealers, null while nothing has to be recorded.
+	 */
+	volatile RepositoryJournal journal;
 	
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("dealers", this, item-> item.map.size())
+				.description("Dealers in the store")
+				.register(registry);
+	}
+
 	@Override
 	public void save(Dealer dealer) {
-		map.put(dealer.getId(), dealer);
+		try(StripedLocks.Held held = locks.acquire(dealer.getId())) {
+			val name = normalize(dealer.getName());
+			if(name != null) {
+				// claimed before anything is saved, dealers of other stripes may save the same name concurrently
+				val existing = nameIndex.putIfAbsent(name, dealer);
+				if(existing != null && !existing.getId().equals(dealer.getId())) {
+					throw new DealerAlreadyExistsException(dealer.getName());
+				}
+				nameIndex.put(name, dealer);
+			}
+			map.put(dealer.getId(), dealer);
+			val previous = name == null ? indexedNames.remove(dealer.getId()) : indexedNames.put(dealer.getId(), name);
+			if(previous != null && !previous.equals(name)) {
+				nameIndex.computeIfPresent(previous, (key, item)-> item.getId().equals(dealer.getId()) ? null : item);
+				sortedNameIndex.computeIfPresent(previous, (key, item)-> item.getId().equals(dealer.getId()) ? null : item);
+			}
+			if(name != null) {
+				sortedNameIndex.put(name, dealer);
+			}
+			val current = journal;
+			if(current != null) {
+				current.dealerSaved(dealer);
+			}
+		}
+	}
+	
+	@Override
+	public void setJournal(RepositoryJournal journal) {
+		this.journal = journal;
 	}
 
 	@Override
 	public List<Dealer> findAll() {
-		return map.values().stream().collect(Collectors.toList());
+		return map.values().collect(Collectors.toList());
 	}
 
 	@Override
@@ -35,4 +105,30 @@ public class DealerCacheRepository implements DealerRepository {
 		return map.get(dealerId);
 	}
 
+	@Override
+	public Dealer findByName(String name) {
+		val key = normalize(name);
+		return key == null ? null : nameIndex.get(key);
+	}
+
+	@Override
+	public List<Dealer> findByNamePrefix(String prefix, String afterName, int limit) {
+		val start = prefix == null ? "" : normalize(prefix);
+		val after = normalize(afterName);
+		val dealers = after != null && after.compareTo(start) >= 0
+				? sortedNameIndex.tailMap(after, false) : sortedNameIndex.tailMap(start, true);
+		val result = new ArrayList<Dealer>();
+		for(val entry : dealers.entrySet()) {
+			if(result.size() >= limit || !entry.getKey().startsWith(start)) {
+				break;
+			}
+			result.add(entry.getValue());
+		}
+		return result;
+	}
+
+	private String normalize(String name) {
+		return name == null ? null : name.toLowerCase(Locale.ROOT);
+	}
+
 }
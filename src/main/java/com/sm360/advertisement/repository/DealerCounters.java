@@ -0,0 +1,90 @@
+package com.sm360.advertisement.repository;
+
+import java.util.UUID;
+
+import com.sm360.advertisement.model.DealerStats;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+/**
+ * Counters of the listings of each dealer by state, and the number and the sum of the prices of the
+ * published ones. They are changed by the repositories every time a listing enters or leaves their
+ * index, so totals and averages are read in constant time instead of scanning the listings.
+ * @author Luis Bazan
+ *
+ */
+public class DealerCounters {
+
+	private static final ListingState[] STATES = ListingState.values();
+
+	private final UuidMap<Counters> counters = new UuidMap<Counters>();
+
+	/**
+	 * Count a listing indexed for a dealer in a state.
+	 * @param dealerId {@link UUID}
+	 * @param state {@link ListingState}
+	 * @param price price of the listing, null if it has none
+	 */
+	public void add(UUID dealerId, ListingState state, Double price) {
+		counters.computeIfAbsent(dealerId, item-> new Counters()).change(state, price, 1);
+	}
+
+	/**
+	 * Discount a listing removed from the index of a dealer in a state.
+	 * @param dealerId {@link UUID}
+	 * @param state {@link ListingState}
+	 * @param price price the listing was counted with, null if it had none
+	 */
+	public void remove(UUID dealerId, ListingState state, Double price) {
+		counters.computeIfAbsent(dealerId, item-> new Counters()).change(state, price, -1);
+	}
+
+	/**
+	 * Listings of a dealer in a state.
+	 * @param dealerId {@link UUID}
+	 * @param state {@link ListingState}
+	 * @return total, 0 if the dealer has no listings
+	 */
+	public long count(UUID dealerId, ListingState state) {
+		val current = dealerId == null || state == null ? null : counters.get(dealerId);
+		return current == null ? 0 : current.count(state);
+	}
+
+	/**
+	 * Totals of a dealer, without the min and max prices which are read from the price indexes.
+	 * @param dealerId {@link UUID}
+	 * @return {@link DealerStats}, empty if the dealer has no listings
+	 */
+	public DealerStats get(UUID dealerId) {
+		val current = counters.get(dealerId);
+		return current == null ? DealerStats.builder().build() : current.stats();
+	}
+
+	static class Counters {
+		private final long[] states = new long[STATES.length];
+		private long priced;
+		private double priceSum;
+
+		synchronized void change(ListingState state, Double price, int delta) {
+			states[state.ordinal()] += delta;
+			if(state == ListingState.published && price != null) {
+				priced += delta;
+				// restart from zero once empty, so rounding errors of removed prices do not stay
+				priceSum = priced == 0 ? 0 : priceSum + delta * price;
+			}
+		}
+
+		synchronized long count(ListingState state) {
+			return states[state.ordinal()];
+		}
+
+		synchronized DealerStats stats() {
+			return DealerStats.builder()
+					.draftListings(states[ListingState.draft.ordinal()])
+					.publishedListings(states[ListingState.published.ordinal()])
+					.averagePrice(priced == 0 ? null : priceSum / priced)
+					.build();
+		}
+	}
+}
@@ -3,14 +3,36 @@ package com.sm360.advertisement.repository;
 import java.util.List;
 import java.util.UUID;
 
+import com.sm360.advertisement.exception.DealerAlreadyExistsException;
 import com.sm360.advertisement.model.Dealer;
 
 public interface DealerRepository {
 
+	/**
+	 * Save a dealer, its name is unique ignoring case.
+	 * @param dealer {@link Dealer}
+	 * @throws DealerAlreadyExistsException if another dealer has the same name
+	 */
 	void save(Dealer dealer);
 
 	List<Dealer> findAll();
 
 	Dealer findById(UUID dealerId);
 
+	/**
+	 * Find a dealer by name ignoring case in constant time.
+	 * @param name dealer's name
+	 * @return a {@link Dealer} or null if it does not exist
+	 */
+	Dealer findByName(String name);
+
+	/**
+	 * Find the dealers whose name starts with a prefix ignoring case, ordered by name.
+	 * @param prefix dealer's name prefix, null or empty for all dealers
+	 * @param afterName only dealers after this name are returned, it can be null
+	 * @param limit max number of dealers
+	 * @return a list of {@link Dealer}
+	 */
+	List<Dealer> findByNamePrefix(String prefix, String afterName, int limit);
+
 }
@@ -0,0 +1,35 @@
+package com.sm360.advertisement.repository;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the listings of each dealer, increased after every save changing them, so an unchanged
+ * version means the listings of the dealer are unchanged. Reading a version is a single lookup.
+ * @author Luis Bazan
+ *
+ */
+public class DealerVersions {
+
+	private final UuidMap<AtomicLong> versions = new UuidMap<AtomicLong>();
+
+	/**
+	 * Current version of the listings of a dealer.
+	 * @param dealerId {@link UUID}
+	 * @return version, 0 if no listing of the dealer was ever saved
+	 */
+	public long get(UUID dealerId) {
+		AtomicLong version = versions.get(dealerId);
+		return version == null ? 0 : version.get();
+	}
+
+	/**
+	 * Increase the version of a dealer once its listings are changed, null dealers are ignored.
+	 * @param dealerId {@link UUID}
+	 */
+	public void increment(UUID dealerId) {
+		if(dealerId != null) {
+			versions.computeIfAbsent(dealerId, item-> new AtomicLong()).incrementAndGet();
+		}
+	}
+}
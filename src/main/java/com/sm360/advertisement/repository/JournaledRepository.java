@@ -0,0 +1,15 @@
+package com.sm360.advertisement.repository;
+
+/**
+ * Repository which reports every change to a {@link RepositoryJournal}.
+ * @author Luis Bazan
+ *
+ */
+public interface JournaledRepository {
+
+	/**
+	 * Set the journal receiving the changes.
+	 * @param journal {@link RepositoryJournal}, null to stop reporting changes
+	 */
+	void setJournal(RepositoryJournal journal);
+}
@@ -1,14 +1,36 @@
 package com.sm360.advertisement.repository;
 
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import com.sm360.advertisement.model.DealerStats;
 import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.val;
 
 /**
  * 
@@ -16,18 +38,153 @@ import com.sm360.advertisement.model.Listing;
  *
  */
 @Repository
-public class ListingCacheRepository implements ListingRepository {
+@ConditionalOnProperty(prefix = "config", name = "listing-store", havingValue = "cache", matchIfMissing = true)
+public class ListingCacheRepository implements ListingRepository, JournaledRepository, MeterBinder {
+
+	static final Comparator<IndexKey> CREATED_ORDER = Comparator
+			.comparing(IndexKey::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+			.thenComparing(IndexKey::getId);
+
+	static final Comparator<IndexKey> PUBLISHED_ORDER = Comparator
+			.comparing(IndexKey::getPublishedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+			.thenComparing(IndexKey::getId);
+
+	static final Comparator<IndexKey> PRICE_ORDER = Comparator
+			.comparing(IndexKey::getPrice, Comparator.nullsFirst(Comparator.<Double>naturalOrder()))
+			.thenComparing(IndexKey::getId);
+
+	/**
+	 * Listings by id, without entry objects.
+	 */
+	UuidMap<Listing> map = new UuidMap<Listing>();
+
+	/**
+	 * Listings of each dealer grouped by state, each state is ordered by every {@link ListingSort}.
+	 */
+	Map<UUID, DealerIndex> dealerIndex = new ConcurrentHashMap<UUID, DealerIndex>();
+
+	/**
+	 * Published listings of every dealer ordered by price, the published listings of a dealer
+	 * are ordered by price in its {@link DealerIndex}.
+	 */
+	NavigableMap<IndexKey, Listing> publishedByPrice = new ConcurrentSkipListMap<IndexKey, Listing>(PRICE_ORDER);
+
+	/**
+	 * Listings by dealer, vehicle group and price, used to detect duplicates.
+	 */
+	Map<UniqueKey, Map<UUID, Listing>> uniqueIndex = new ConcurrentHashMap<UniqueKey, Map<UUID, Listing>>();
+
+	/**
+	 * Keys used the last time each listing was indexed, they keep the dictionary code of its vehicle
+	 * so a save finds the entries to replace without looking the description up again.
+	 */
+	Map<UUID, IndexKey> indexKeys = new ConcurrentHashMap<UUID, IndexKey>();
+
+	/**
+	 * Shared vehicle descriptions, saved listings keep the shared instance of their description.
+	 */
+	VehicleDictionary vehicles = new VehicleDictionary();
+
+	/**
+	 * Terms of the vehicle descriptions, listings get an ordinal the first time they have a vehicle.
+	 */
+	VehicleTokenIndex tokens = new VehicleTokenIndex();
+
+	/**
+	 * Id of each ordinal of {@link #tokens}.
+	 */
+	List<UUID> tokenIds = new ArrayList<UUID>();
+
+	Map<UUID, Integer> tokenOrdinals = new HashMap<UUID, Integer>();
+
+	/**
+	 * Guards {@link #tokens}, it is only taken for writing when the vehicle of a listing changes.
+	 */
+	ReentrantReadWriteLock tokenLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Totals of the listings of each dealer.
+	 */
+	DealerCounters counters = new DealerCounters();
+
+	/**
+	 * Version of the listings of each dealer.
+	 */
+	DealerVersions versions = new DealerVersions();
+
+	/**
+	 * Serializes the saves of the same listing, so its index entries are replaced atomically.
+	 */
+	StripedLocks locks = new StripedLocks();
+
+	/**
+	 * Journal of the saved listings, null while nothing has to be recorded.
+	 */
+	volatile RepositoryJournal journal;
+
+	ListingMeters meters = new ListingMeters();
 
-	Map<UUID, Listing> map = new HashMap<UUID, Listing>();
-	
 	@Override
 	public void save(Listing listing) {
-		map.put(listing.getId(), listing);
+		try(StripedLocks.Held held = locks.acquire(listing.getId())) {
+			write(listing);
+		}
+	}
+
+	/**
+	 * Only the listing's stripe is held while the versions are compared. The indexes written afterwards
+	 * are concurrent maps, the id map locks one of its segments and the vehicle dictionary and its terms
+	 * are only changed with the vehicle, so saves of unrelated listings seldom meet and readers never wait.
+	 */
+	@Override
+	public boolean compareAndSave(Listing listing, long expectedVersion) {
+		try(StripedLocks.Held held = locks.acquire(listing.getId())) {
+			val stored = map.get(listing.getId());
+			if(stored == null || stored.getVersion() != expectedVersion) {
+				return false;
+			}
+			write(listing);
+			return true;
+		}
+	}
+
+	/**
+	 * Store and index the listing with the shared instance of its description, the caller holds its lock.
+	 */
+	private void write(Listing listing) {
+		val previous = indexKeys.get(listing.getId());
+		val previousVehicle = previous == null ? VehicleDictionary.NONE : previous.getVehicle();
+		// the code is kept while the description does not change, so publishing or repricing takes no reference
+		val vehicle = Objects.equals(listing.getVehicle(), vehicles.value(previousVehicle)) ? previousVehicle : vehicles.acquire(listing.getVehicle());
+		val stored = listing.getVehicle() == vehicles.value(vehicle) ? listing : listing.toBuilder().vehicle(vehicles.value(vehicle)).build();
+		reindex(stored, previous, vehicle);
+		map.put(stored.getId(), stored);
+		val previousDealerId = previous == null ? null : previous.getDealerId();
+		versions.increment(previousDealerId);
+		if(!Objects.equals(previousDealerId, getDealerId(stored))) {
+			versions.increment(getDealerId(stored));
+		}
+		val current = journal;
+		if(current != null) {
+			current.listingSaved(stored);
+		}
+	}
+
+	@Override
+	public void setJournal(RepositoryJournal journal) {
+		this.journal = journal;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		meters.bindTo(registry, this);
 	}
 
 	@Override
-	public List<Listing> findAll() {
-		return map.values().stream().collect(Collectors.toList());
+	public void saveAll(Collection<Listing> listings) {
+		for(val listing : listings) {
+			save(listing);
+		}
 	}
 
 	@Override
@@ -35,4 +192,334 @@ public class ListingCacheRepository implements ListingRepository {
 		return map.get(id);
 	}
 
+	@Override
+	public List<Listing> findByDealerAndState(UUID dealerId, ListingState state, ListingSort sort, Listing after, int limit) {
+		val result = new ArrayList<Listing>();
+		val index = dealerIndex.get(dealerId);
+		if(index == null) {
+			return result;
+		}
+		NavigableMap<IndexKey, Listing> listings = index.sorted(state, sort);
+		if(after != null) {
+			listings = listings.tailMap(IndexKey.of(after), false);
+		}
+		for(val listing : listings.values()) {
+			if(result.size() >= limit) {
+				break;
+			}
+			result.add(listing);
+		}
+		meters.page(result.size());
+		return result;
+	}
+
+	@Override
+	public long countByDealerAndState(UUID dealerId, ListingState state) {
+		return counters.count(dealerId, state);
+	}
+
+	@Override
+	public DealerStats findStats(UUID dealerId) {
+		val stats = counters.get(dealerId);
+		val index = dealerIndex.get(dealerId);
+		if(index == null) {
+			return stats;
+		}
+		val prices = index.sorted(ListingState.published, ListingSort.price);
+		val min = prices.ceilingKey(IndexKey.of(Double.NEGATIVE_INFINITY, IndexKey.FIRST_ID));
+		val max = prices.lastEntry();
+		return stats.toBuilder().minPrice(min == null ? null : min.getPrice()).maxPrice(max == null ? null : max.getKey().getPrice()).build();
+	}
+
+	/**
+	 * Walks the price index from the first listing in the range, so only the listings returned are read.
+	 */
+	@Override
+	public List<Listing> findPublishedByPrice(UUID dealerId, Double minPrice, Double maxPrice, Listing after, int limit) {
+		val result = new ArrayList<Listing>();
+		NavigableMap<IndexKey, Listing> listings = publishedByPrice;
+		if(dealerId != null) {
+			val index = dealerIndex.get(dealerId);
+			if(index == null) {
+				return result;
+			}
+			listings = index.sorted(ListingState.published, ListingSort.price);
+		}
+		IndexKey from = IndexKey.of(minPrice == null ? Double.NEGATIVE_INFINITY : minPrice, IndexKey.FIRST_ID);
+		val to = IndexKey.of(maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice, IndexKey.LAST_ID);
+		boolean fromInclusive = true;
+		if(after != null && PRICE_ORDER.compare(IndexKey.of(after), from) >= 0) {
+			from = IndexKey.of(after);
+			fromInclusive = false;
+		}
+		if(PRICE_ORDER.compare(from, to) > 0) {
+			meters.search(0);
+			return result;
+		}
+		for(val listing : listings.subMap(from, fromInclusive, to, true).values()) {
+			if(result.size() >= limit) {
+				break;
+			}
+			result.add(listing);
+		}
+		meters.search(result.size());
+		return result;
+	}
+
+	/**
+	 * Intersects the posting lists of the terms and keeps the first {@code limit} matching listings after the
+	 * cursor in a heap ordered by price, so a page never copies nor sorts every match.
+	 */
+	@Override
+	public List<Listing> findPublishedByVehicle(String query, UUID dealerId, Double minPrice, Double maxPrice, Listing after, int limit) {
+		val ids = new ArrayList<UUID>();
+		tokenLock.readLock().lock();
+		try {
+			for(val ordinal : tokens.search(query)) {
+				ids.add(tokenIds.get(ordinal));
+			}
+		} finally {
+			tokenLock.readLock().unlock();
+		}
+		val from = after == null ? null : IndexKey.of(after);
+		// the most expensive listing of the page is on top, replaced by any cheaper match
+		val page = new PriorityQueue<Map.Entry<IndexKey, Listing>>(Map.Entry.comparingByKey(PRICE_ORDER.reversed()));
+		for(val id : ids) {
+			val listing = map.get(id);
+			if(listing == null || listing.getState() != ListingState.published || listing.getPrice() == null
+					|| (dealerId != null && !dealerId.equals(getDealerId(listing)))
+					|| (minPrice != null && listing.getPrice() < minPrice) || (maxPrice != null && listing.getPrice() > maxPrice)) {
+				continue;
+			}
+			val key = IndexKey.of(listing);
+			if(from != null && PRICE_ORDER.compare(key, from) <= 0) {
+				continue;
+			}
+			if(page.size() < limit) {
+				page.add(new AbstractMap.SimpleImmutableEntry<IndexKey, Listing>(key, listing));
+			} else if(limit > 0 && PRICE_ORDER.compare(key, page.peek().getKey()) < 0) {
+				page.poll();
+				page.add(new AbstractMap.SimpleImmutableEntry<IndexKey, Listing>(key, listing));
+			}
+		}
+		meters.search(ids.size());
+		val result = new ArrayList<Listing>(page.size());
+		while(!page.isEmpty()) {
+			result.add(page.poll().getValue());
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+	@Override
+	public long countByState(ListingState state) {
+		long total = 0;
+		for(val index : dealerIndex.values()) {
+			total += index.getByState().get(state).size();
+		}
+		return total;
+	}
+
+	@Override
+	public Listing findLastPublished(UUID dealerId, UUID excludedId) {
+		val index = dealerIndex.get(dealerId);
+		if(index == null) {
+			return null;
+		}
+		int scanned = 0;
+		Listing result = null;
+		for(val entry : index.sorted(ListingState.published, ListingSort.publishedAt).descendingMap().entrySet()) {
+			scanned++;
+			if(entry.getKey().getPublishedAt() == null) {
+				break;
+			}
+			if(!entry.getKey().getId().equals(excludedId)) {
+				result = entry.getValue();
+				break;
+			}
+		}
+		meters.lastPublished(scanned);
+		return result;
+	}
+
+	@Override
+	public Listing findByDealerAndVehicleAndPrice(UUID dealerId, String vehicle, Double price) {
+		val group = vehicles.findGroup(vehicle);
+		val listings = group == null ? null : uniqueIndex.get(new UniqueKey(dealerId, group, price));
+		if(listings == null) {
+			meters.duplicate(0);
+			return null;
+		}
+		meters.duplicate(1);
+		return listings.values().stream().findFirst().orElse(null);
+	}
+
+	@Override
+	public Stream<Listing> stream(UUID dealerId, ListingState state) {
+		if(dealerId == null) {
+			val listings = map.values();
+			return state == null ? listings : listings.filter(item-> state.equals(item.getState()));
+		}
+		val index = dealerIndex.get(dealerId);
+		if(index == null) {
+			return Stream.empty();
+		}
+		if(state == null) {
+			return index.getByState().values().stream().flatMap(item-> item.values().stream());
+		}
+		return index.getByState().get(state).values().stream();
+	}
+
+	@Override
+	public long findVersion(UUID dealerId) {
+		return versions.get(dealerId);
+	}
+
+	/**
+	 * Replace the index entries of a listing.
+	 * @param listing listing stored
+	 * @param previous key of the listing when it was indexed before
+	 * @param vehicle code of its vehicle, acquired when it changed
+	 */
+	private void reindex(Listing listing, IndexKey previous, int vehicle) {
+		val previousVehicle = previous == null ? VehicleDictionary.NONE : previous.getVehicle();
+		val key = IndexKey.of(listing, vehicle, vehicles.group(vehicle));
+		indexKeys.put(listing.getId(), key);
+		if(previousVehicle != vehicle) {
+			indexTerms(listing.getId(), vehicles.value(previousVehicle), listing.getVehicle());
+		}
+		// counted before the previous entry is discounted, so a concurrent tier check never misses the listing
+		if(key.isIndexable()) {
+			counters.add(key.getDealerId(), key.getState(), key.getPrice());
+		}
+		if(previous != null && previous.isIndexable()) {
+			counters.remove(previous.getDealerId(), previous.getState(), previous.getPrice());
+			val index = dealerIndex.get(previous.getDealerId());
+			index.getByState().get(previous.getState()).remove(listing.getId());
+			for(val sorted : index.getSorted().get(previous.getState()).values()) {
+				sorted.remove(previous);
+			}
+			if(previous.getState() == ListingState.published) {
+				publishedByPrice.remove(previous);
+			}
+			uniqueIndex.computeIfPresent(previous.getUniqueKey(), (item, listings)-> {
+				listings.remove(listing.getId());
+				return listings.isEmpty() ? null : listings;
+			});
+		}
+		if(previousVehicle != vehicle) {
+			vehicles.release(previousVehicle);
+		}
+		if(key.isIndexable()) {
+			val index = dealerIndex.computeIfAbsent(key.getDealerId(), item-> new DealerIndex());
+			index.getByState().get(key.getState()).put(listing.getId(), listing);
+			for(val sorted : index.getSorted().get(key.getState()).values()) {
+				sorted.put(key, listing);
+			}
+			if(key.getState() == ListingState.published) {
+				publishedByPrice.put(key, listing);
+			}
+			uniqueIndex.compute(key.getUniqueKey(), (item, listings)-> {
+				Map<UUID, Listing> result = listings == null ? new ConcurrentHashMap<UUID, Listing>() : listings;
+				result.put(listing.getId(), listing);
+				return result;
+			});
+		}
+	}
+
+	private void indexTerms(UUID id, String previous, String vehicle) {
+		tokenLock.writeLock().lock();
+		try {
+			Integer ordinal = tokenOrdinals.get(id);
+			if(ordinal == null) {
+				ordinal = tokenIds.size();
+				tokenIds.add(id);
+				tokenOrdinals.put(id, ordinal);
+			}
+			tokens.update(ordinal, previous, vehicle);
+		} finally {
+			tokenLock.writeLock().unlock();
+		}
+	}
+
+	private static UUID getDealerId(Listing listing) {
+		return listing.getDealer() == null ? null : listing.getDealer().getId();
+	}
+
+	@Value
+	static class DealerIndex {
+		Map<ListingState, Map<UUID, Listing>> byState = new EnumMap<ListingState, Map<UUID, Listing>>(ListingState.class);
+		Map<ListingState, Map<ListingSort, NavigableMap<IndexKey, Listing>>> sorted = new EnumMap<ListingState, Map<ListingSort, NavigableMap<IndexKey, Listing>>>(ListingState.class);
+
+		DealerIndex() {
+			for(val state : ListingState.values()) {
+				byState.put(state, new ConcurrentHashMap<UUID, Listing>());
+				val orders = new EnumMap<ListingSort, NavigableMap<IndexKey, Listing>>(ListingSort.class);
+				for(val sort : ListingSort.values()) {
+					orders.put(sort, new ConcurrentSkipListMap<IndexKey, Listing>(order(sort)));
+				}
+				sorted.put(state, orders);
+			}
+		}
+
+		NavigableMap<IndexKey, Listing> sorted(ListingState state, ListingSort sort) {
+			return sorted.get(state).get(sort);
+		}
+
+		static Comparator<IndexKey> order(ListingSort sort) {
+			switch(sort) {
+			case publishedAt:
+				return PUBLISHED_ORDER;
+			case price:
+				return PRICE_ORDER;
+			default:
+				return CREATED_ORDER;
+			}
+		}
+	}
+
+	@Value
+	static class IndexKey {
+		static final UUID FIRST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+		static final UUID LAST_ID = new UUID(Long.MAX_VALUE, Long.MAX_VALUE);
+
+		UUID id;
+		UUID dealerId;
+		ListingState state;
+		LocalDateTime createdAt;
+		LocalDateTime publishedAt;
+		Double price;
+		int vehicle;
+		UniqueKey uniqueKey;
+
+		static IndexKey of(Listing listing) {
+			return of(listing, VehicleDictionary.NONE, VehicleDictionary.NONE);
+		}
+
+		static IndexKey of(Listing listing, int vehicle, int vehicleGroup) {
+			val dealerId = listing.getDealer() == null ? null : listing.getDealer().getId();
+			return new IndexKey(listing.getId(), dealerId, listing.getState(), listing.getCreatedAt(), listing.getPublishedAt(),
+					listing.getPrice(), vehicle, new UniqueKey(dealerId, vehicleGroup, listing.getPrice()));
+		}
+
+		/**
+		 * Key of a price bound, with {@link #FIRST_ID} it is before the listings with that price and
+		 * with {@link #LAST_ID} after them.
+		 */
+		static IndexKey of(double price, UUID id) {
+			return new IndexKey(id, null, null, null, null, price, VehicleDictionary.NONE, null);
+		}
+
+		boolean isIndexable() {
+			return dealerId != null && state != null;
+		}
+	}
+
+	@Value
+	static class UniqueKey {
+		UUID dealerId;
+		int vehicleGroup;
+		Double price;
+	}
+
 }
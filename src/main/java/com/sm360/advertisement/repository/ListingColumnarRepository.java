@@ -0,0 +1,950 @@
+package com.sm360.advertisement.repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.DealerStats;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.val;
+
+/**
+ * {@link ListingRepository} keeping the listings in columns of primitive arrays instead of objects:
+ * ids as two longs, prices as doubles, dates as epoch nanoseconds, states as bytes, dealers as int
+ * ordinals and vehicles as {@link VehicleDictionary} codes. A {@link Listing} is created on every read
+ * and its changed copies are stored by {@link #save(Listing)}. Enabled with config.listing-store=columnar.
+ * The indexes hold row numbers only: the rows of a dealer in a state are kept in int arrays ordered by the
+ * columns of every {@link ListingSort}, so pages read only the rows returned, and published rows are also
+ * kept ordered by price for every dealer. Rows with the same dealer, vehicle group and price are linked in
+ * two int columns from a {@link LongIntMap} keyed by their hash, and the terms of the vehicles index the rows
+ * containing them.
+ * Columns are written holding the write lock, and the journal is appended after releasing it holding
+ * only the stripe of the listing, so a slow journal does not block the saves of other listings.
+ * @author Luis Bazan
+ *
+ */
+@Repository
+@ConditionalOnProperty(prefix = "config", name = "listing-store", havingValue = "columnar")
+public class ListingColumnarRepository implements ListingRepository, JournaledRepository, MeterBinder {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static final long NULL_TIME = Long.MIN_VALUE;
+
+	private static final ListingState[] STATES = ListingState.values();
+
+	private static final ListingSort[] SORTS = ListingSort.values();
+
+	/**
+	 * Rows of a block of {@link SortedRows}, a full block is split in two.
+	 */
+	private static final int BLOCK_SIZE = 1024;
+
+	private static final int[] NO_ROWS = new int[0];
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	long[] mostSigBits = new long[INITIAL_CAPACITY];
+
+	long[] leastSigBits = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Codes of the vehicle descriptions in {@link #dictionary}.
+	 */
+	int[] vehicles = new int[INITIAL_CAPACITY];
+
+	VehicleDictionary dictionary = new VehicleDictionary();
+
+	/**
+	 * Terms of the vehicle descriptions, the ordinals are the rows.
+	 */
+	VehicleTokenIndex tokens = new VehicleTokenIndex();
+
+	/**
+	 * Prices, NaN when the listing has no price.
+	 */
+	double[] prices = new double[INITIAL_CAPACITY];
+
+	long[] createdAt = new long[INITIAL_CAPACITY];
+
+	long[] updatedAt = new long[INITIAL_CAPACITY];
+
+	long[] publishedAt = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Version of each listing, compared by {@link #compareAndSave(Listing, long)}.
+	 */
+	long[] listingVersions = new long[INITIAL_CAPACITY];
+
+	/**
+	 * State ordinals, -1 when the listing has no state.
+	 */
+	byte[] states = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Dealer ordinals, -1 when the listing has no dealer.
+	 */
+	int[] dealers = new int[INITIAL_CAPACITY];
+
+	/**
+	 * Next and previous rows with the same key in {@link #duplicates}, {@link LongIntMap#MISSING} at the ends.
+	 */
+	int[] nextDuplicates = new int[INITIAL_CAPACITY];
+
+	int[] previousDuplicates = new int[INITIAL_CAPACITY];
+
+	int size;
+
+	/**
+	 * Row of each listing id.
+	 */
+	UuidIntMap rowIndex = new UuidIntMap();
+
+	Map<UUID, Integer> dealerOrdinals = new HashMap<UUID, Integer>();
+
+	/**
+	 * Last saved dealer of each ordinal, shared by the listings read.
+	 */
+	List<Dealer> dealerTable = new ArrayList<Dealer>();
+
+	/**
+	 * Published rows of every dealer ordered by price.
+	 */
+	SortedRows publishedByPrice = new SortedRows(ListingSort.price);
+
+	/**
+	 * Rows of each dealer ordinal, one {@link SortedRows} for each state and {@link ListingSort}.
+	 */
+	List<SortedRows[]> dealerSortedRows = new ArrayList<SortedRows[]>();
+
+	/**
+	 * First row of each hash of dealer, vehicle group and price, used to detect duplicates.
+	 */
+	LongIntMap duplicates = new LongIntMap();
+
+	/**
+	 * Totals of the listings of each dealer, a save discounts and counts a row again holding the write lock.
+	 */
+	DealerCounters counters = new DealerCounters();
+
+	/**
+	 * Version of the listings of each dealer, read without the lock.
+	 */
+	DealerVersions versions = new DealerVersions();
+
+	/**
+	 * Serializes the saves of the same listing, so its records are journaled in the order they are stored.
+	 */
+	StripedLocks locks = new StripedLocks();
+
+	volatile RepositoryJournal journal;
+
+	ListingMeters meters = new ListingMeters();
+
+	@Override
+	public void save(Listing listing) {
+		try(StripedLocks.Held held = locks.acquire(listing.getId())) {
+			lock.writeLock().lock();
+			try {
+				write(listing);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			journal(listing);
+		}
+	}
+
+	@Override
+	public boolean compareAndSave(Listing listing, long expectedVersion) {
+		try(StripedLocks.Held held = locks.acquire(listing.getId())) {
+			lock.writeLock().lock();
+			try {
+				val row = rowIndex.get(listing.getId());
+				if(row == UuidIntMap.MISSING || listingVersions[row] != expectedVersion) {
+					return false;
+				}
+				write(listing);
+			} finally {
+				lock.writeLock().unlock();
+			}
+			journal(listing);
+			return true;
+		}
+	}
+
+	/**
+	 * Save the listings holding the write lock once, the stripes of the listings are held until they are journaled.
+	 */
+	@Override
+	public void saveAll(Collection<Listing> listings) {
+		val ids = listings.stream().map(Listing::getId).toArray(UUID[]::new);
+		try(StripedLocks.Held held = locks.acquire(ids)) {
+			lock.writeLock().lock();
+			try {
+				for(val listing : listings) {
+					write(listing);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+			for(val listing : listings) {
+				journal(listing);
+			}
+		}
+	}
+
+	@Override
+	public Listing findById(UUID id) {
+		lock.readLock().lock();
+		try {
+			val row = rowIndex.get(id);
+			return row == UuidIntMap.MISSING ? null : read(row);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Listing> findByDealerAndState(UUID dealerId, ListingState state, ListingSort sort, Listing after, int limit) {
+		lock.readLock().lock();
+		try {
+			val result = new ArrayList<Listing>();
+			val ordinal = dealerId == null ? null : dealerOrdinals.get(dealerId);
+			if(ordinal == null || state == null) {
+				return result;
+			}
+			val rows = sorted(ordinal, state.ordinal(), sort).from(after == null ? null : SortKey.of(sort, after), false);
+			while(result.size() < limit && rows.hasNext()) {
+				result.add(read(rows.nextInt()));
+			}
+			meters.page(result.size());
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long countByDealerAndState(UUID dealerId, ListingState state) {
+		lock.readLock().lock();
+		try {
+			return counters.count(dealerId, state);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public DealerStats findStats(UUID dealerId) {
+		lock.readLock().lock();
+		try {
+			val stats = counters.get(dealerId);
+			val ordinal = dealerOrdinals.get(dealerId);
+			if(ordinal == null) {
+				return stats;
+			}
+			val rows = sorted(ordinal, ListingState.published.ordinal(), ListingSort.price);
+			// rows without a price are first
+			val min = rows.from(priceBound(Double.NEGATIVE_INFINITY, Long.MIN_VALUE), true);
+			val max = rows.last();
+			return stats.toBuilder().minPrice(min.hasNext() ? toPrice(prices[min.nextInt()]) : null)
+					.maxPrice(max < 0 ? null : toPrice(prices[max])).build();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Listing> findPublishedByPrice(UUID dealerId, Double minPrice, Double maxPrice, Listing after, int limit) {
+		lock.readLock().lock();
+		try {
+			val result = new ArrayList<Listing>();
+			SortedRows published = publishedByPrice;
+			if(dealerId != null) {
+				val ordinal = dealerOrdinals.get(dealerId);
+				if(ordinal == null) {
+					return result;
+				}
+				published = sorted(ordinal, ListingState.published.ordinal(), ListingSort.price);
+			}
+			val order = order(ListingSort.price);
+			SortKey from = priceBound(minPrice == null ? Double.NEGATIVE_INFINITY : minPrice, Long.MIN_VALUE);
+			val to = priceBound(maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice, Long.MAX_VALUE);
+			boolean fromInclusive = true;
+			if(after != null && order.compare(SortKey.of(ListingSort.price, after), from) >= 0) {
+				from = SortKey.of(ListingSort.price, after);
+				fromInclusive = false;
+			}
+			if(order.compare(from, to) > 0) {
+				meters.search(0);
+				return result;
+			}
+			val rows = published.from(from, fromInclusive);
+			while(result.size() < limit && rows.hasNext()) {
+				val row = rows.nextInt();
+				if(compare(ListingSort.price, row, to) > 0) {
+					break;
+				}
+				result.add(read(row));
+			}
+			meters.search(result.size());
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Intersects the posting lists of the terms and keeps the first {@code limit} matching rows after the
+	 * cursor in a heap ordered by price, so a page never copies nor sorts every match.
+	 */
+	@Override
+	public List<Listing> findPublishedByVehicle(String query, UUID dealerId, Double minPrice, Double maxPrice, Listing after, int limit) {
+		lock.readLock().lock();
+		try {
+			val result = new ArrayList<Listing>();
+			val ordinal = dealerId == null ? null : dealerOrdinals.get(dealerId);
+			if(dealerId != null && ordinal == null) {
+				return result;
+			}
+			val rows = tokens.search(query);
+			val order = order(ListingSort.price);
+			val from = after == null ? null : SortKey.of(ListingSort.price, after);
+			// the most expensive row of the page is on top, replaced by any cheaper match
+			val page = new PriorityQueue<SortKey>(order.reversed());
+			for(val row : rows) {
+				val price = prices[row];
+				if(states[row] != ListingState.published.ordinal() || Double.isNaN(price) || (ordinal != null && dealers[row] != ordinal)
+						|| (minPrice != null && price < minPrice) || (maxPrice != null && price > maxPrice)) {
+					continue;
+				}
+				val key = key(ListingSort.price, row);
+				if(from != null && order.compare(key, from) <= 0) {
+					continue;
+				}
+				if(page.size() < limit) {
+					page.add(key);
+				} else if(limit > 0 && order.compare(key, page.peek()) < 0) {
+					page.poll();
+					page.add(key);
+				}
+			}
+			while(!page.isEmpty()) {
+				result.add(read(page.poll().getRow()));
+			}
+			Collections.reverse(result);
+			meters.search(rows.length);
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public long countByState(ListingState state) {
+		lock.readLock().lock();
+		try {
+			long total = 0;
+			for(int ordinal = 0; ordinal < dealerSortedRows.size(); ordinal++) {
+				total += sorted(ordinal, state.ordinal(), ListingSort.createdAt).size;
+			}
+			return total;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Listing findLastPublished(UUID dealerId, UUID excludedId) {
+		lock.readLock().lock();
+		try {
+			val ordinal = dealerId == null ? null : dealerOrdinals.get(dealerId);
+			if(ordinal == null) {
+				return null;
+			}
+			int scanned = 0;
+			Listing result = null;
+			val rows = sorted(ordinal, ListingState.published.ordinal(), ListingSort.publishedAt).descending();
+			while(rows.hasNext()) {
+				val row = rows.nextInt();
+				scanned++;
+				if(publishedAt[row] == NULL_TIME) {
+					break;
+				}
+				if(excludedId == null || mostSigBits[row] != excludedId.getMostSignificantBits()
+						|| leastSigBits[row] != excludedId.getLeastSignificantBits()) {
+					result = read(row);
+					break;
+				}
+			}
+			meters.lastPublished(scanned);
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Listing findByDealerAndVehicleAndPrice(UUID dealerId, String vehicle, Double price) {
+		lock.readLock().lock();
+		try {
+			val ordinal = dealerId == null ? null : dealerOrdinals.get(dealerId);
+			val group = dictionary.findGroup(vehicle);
+			if(ordinal == null || group == null) {
+				meters.duplicate(0);
+				return null;
+			}
+			val column = toColumn(price);
+			int scanned = 0;
+			// rows of other keys with the same hash are skipped
+			for(int row = duplicates.get(duplicateKey(ordinal, group, column)); row != LongIntMap.MISSING; row = nextDuplicates[row]) {
+				scanned++;
+				if(dealers[row] == ordinal && dictionary.group(vehicles[row]) == group
+						&& Double.doubleToLongBits(prices[row]) == Double.doubleToLongBits(column)) {
+					meters.duplicate(scanned);
+					return read(row);
+				}
+			}
+			meters.duplicate(scanned);
+			return null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Rows are never removed, so the stream walks them by position taking the read lock for each
+	 * listing instead of holding it while the stream is consumed.
+	 */
+	@Override
+	public Stream<Listing> stream(UUID dealerId, ListingState state) {
+		int[] candidates;
+		lock.readLock().lock();
+		try {
+			if(dealerId == null) {
+				candidates = null;
+			} else {
+				val ordinal = dealerOrdinals.get(dealerId);
+				if(ordinal == null) {
+					return Stream.empty();
+				}
+				candidates = IntStream.range(0, STATES.length)
+						.filter(item-> state == null || state.ordinal() == item)
+						.flatMap(item-> IntStream.of(sorted(ordinal, item, ListingSort.createdAt).toArray()))
+						.toArray();
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		val rows = candidates == null ? IntStream.range(0, size()) : IntStream.of(candidates);
+		return rows.mapToObj(row-> readIf(row, dealerId, state)).filter(item-> item != null);
+	}
+
+	@Override
+	public long findVersion(UUID dealerId) {
+		return versions.get(dealerId);
+	}
+
+	@Override
+	public void setJournal(RepositoryJournal journal) {
+		this.journal = journal;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		meters.bindTo(registry, this);
+	}
+
+	private int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Listing readIf(int row, UUID dealerId, ListingState state) {
+		lock.readLock().lock();
+		try {
+			if(state != null && states[row] != state.ordinal()) {
+				return null;
+			}
+			if(dealerId != null && (dealers[row] < 0 || !dealerId.equals(dealerTable.get(dealers[row]).getId()))) {
+				return null;
+			}
+			return read(row);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void write(Listing listing) {
+		val stored = rowIndex.get(listing.getId());
+		int row;
+		if(stored == UuidIntMap.MISSING) {
+			row = append(listing.getId());
+		} else {
+			row = stored;
+			unindex(row);
+		}
+		val previousVehicle = vehicles[row];
+		// the code is kept while the description does not change, so publishing or repricing takes no reference
+		if(!Objects.equals(listing.getVehicle(), dictionary.value(previousVehicle))) {
+			vehicles[row] = dictionary.acquire(listing.getVehicle());
+			tokens.update(row, dictionary.value(previousVehicle), listing.getVehicle());
+			dictionary.release(previousVehicle);
+		}
+		prices[row] = toColumn(listing.getPrice());
+		createdAt[row] = toColumn(listing.getCreatedAt());
+		updatedAt[row] = toColumn(listing.getUpdatedAt());
+		publishedAt[row] = toColumn(listing.getPublishedAt());
+		listingVersions[row] = listing.getVersion();
+		states[row] = (byte) (listing.getState() == null ? -1 : listing.getState().ordinal());
+		val previousDealer = dealers[row];
+		dealers[row] = dealerOrdinal(listing.getDealer());
+		index(row);
+		if(previousDealer >= 0) {
+			versions.increment(dealerTable.get(previousDealer).getId());
+		}
+		if(dealers[row] >= 0 && dealers[row] != previousDealer) {
+			versions.increment(dealerTable.get(dealers[row]).getId());
+		}
+	}
+
+	/**
+	 * Record a saved listing, called holding its stripe after releasing the write lock.
+	 */
+	private void journal(Listing listing) {
+		val current = journal;
+		if(current != null) {
+			current.listingSaved(listing);
+		}
+	}
+
+	private int append(UUID id) {
+		if(size == mostSigBits.length) {
+			grow();
+		}
+		val row = size++;
+		mostSigBits[row] = id.getMostSignificantBits();
+		leastSigBits[row] = id.getLeastSignificantBits();
+		vehicles[row] = VehicleDictionary.NONE;
+		states[row] = -1;
+		dealers[row] = -1;
+		rowIndex.put(id, row);
+		return row;
+	}
+
+	private void grow() {
+		val capacity = mostSigBits.length * 2;
+		mostSigBits = Arrays.copyOf(mostSigBits, capacity);
+		leastSigBits = Arrays.copyOf(leastSigBits, capacity);
+		vehicles = Arrays.copyOf(vehicles, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		createdAt = Arrays.copyOf(createdAt, capacity);
+		updatedAt = Arrays.copyOf(updatedAt, capacity);
+		publishedAt = Arrays.copyOf(publishedAt, capacity);
+		listingVersions = Arrays.copyOf(listingVersions, capacity);
+		states = Arrays.copyOf(states, capacity);
+		dealers = Arrays.copyOf(dealers, capacity);
+		nextDuplicates = Arrays.copyOf(nextDuplicates, capacity);
+		previousDuplicates = Arrays.copyOf(previousDuplicates, capacity);
+	}
+
+	private Listing read(int row) {
+		return Listing.builder()
+				.id(new UUID(mostSigBits[row], leastSigBits[row]))
+				.dealer(dealers[row] < 0 ? null : dealerTable.get(dealers[row]))
+				.vehicle(dictionary.value(vehicles[row]))
+				.price(toPrice(prices[row]))
+				.createdAt(toDateTime(createdAt[row]))
+				.updatedAt(toDateTime(updatedAt[row]))
+				.publishedAt(toDateTime(publishedAt[row]))
+				.state(states[row] < 0 ? null : STATES[states[row]])
+				.version(listingVersions[row])
+				.build();
+	}
+
+	private void index(int row) {
+		if(dealers[row] >= 0 && states[row] >= 0) {
+			counters.add(dealerTable.get(dealers[row]).getId(), STATES[states[row]], toPrice(prices[row]));
+			for(val sort : SORTS) {
+				sorted(dealers[row], states[row], sort).add(key(sort, row));
+			}
+			if(states[row] == ListingState.published.ordinal()) {
+				publishedByPrice.add(key(ListingSort.price, row));
+			}
+			if(vehicles[row] != VehicleDictionary.NONE) {
+				val next = duplicates.put(duplicateKey(dealers[row], dictionary.group(vehicles[row]), prices[row]), row);
+				nextDuplicates[row] = next;
+				previousDuplicates[row] = LongIntMap.MISSING;
+				if(next != LongIntMap.MISSING) {
+					previousDuplicates[next] = row;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the row from the indexes, called before its columns are overwritten.
+	 */
+	private void unindex(int row) {
+		if(dealers[row] >= 0 && states[row] >= 0) {
+			counters.remove(dealerTable.get(dealers[row]).getId(), STATES[states[row]], toPrice(prices[row]));
+			for(val sort : SORTS) {
+				sorted(dealers[row], states[row], sort).remove(key(sort, row));
+			}
+			if(states[row] == ListingState.published.ordinal()) {
+				publishedByPrice.remove(key(ListingSort.price, row));
+			}
+			if(vehicles[row] != VehicleDictionary.NONE) {
+				val next = nextDuplicates[row];
+				val previous = previousDuplicates[row];
+				if(previous != LongIntMap.MISSING) {
+					nextDuplicates[previous] = next;
+				} else {
+					val key = duplicateKey(dealers[row], dictionary.group(vehicles[row]), prices[row]);
+					if(next == LongIntMap.MISSING) {
+						duplicates.remove(key);
+					} else {
+						duplicates.put(key, next);
+					}
+				}
+				if(next != LongIntMap.MISSING) {
+					previousDuplicates[next] = previous;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ordinal of the dealer, the dealer is kept as the one shared by the listings read.
+	 */
+	private int dealerOrdinal(Dealer dealer) {
+		if(dealer == null || dealer.getId() == null) {
+			return -1;
+		}
+		Integer ordinal = dealerOrdinals.get(dealer.getId());
+		if(ordinal == null) {
+			ordinal = dealerTable.size();
+			dealerOrdinals.put(dealer.getId(), ordinal);
+			dealerTable.add(dealer);
+			val rows = new SortedRows[STATES.length * SORTS.length];
+			for(int i = 0; i < rows.length; i++) {
+				rows[i] = new SortedRows(SORTS[i % SORTS.length]);
+			}
+			dealerSortedRows.add(rows);
+		} else {
+			dealerTable.set(ordinal, dealer);
+		}
+		return ordinal;
+	}
+
+	private SortedRows sorted(int ordinal, int state, ListingSort sort) {
+		return dealerSortedRows.get(ordinal)[state * SORTS.length + sort.ordinal()];
+	}
+
+	/**
+	 * Compare a row with a key in the order of the sort, the same order of {@link #order(ListingSort)}.
+	 */
+	private int compare(ListingSort sort, int row, SortKey key) {
+		int result = sort == ListingSort.price ? comparePrices(prices[row], key.getPrice())
+				: Long.compare(sort == ListingSort.publishedAt ? publishedAt[row] : createdAt[row], key.getTime());
+		if(result == 0) {
+			result = Long.compare(mostSigBits[row], key.getMostSigBits());
+		}
+		return result == 0 ? Long.compare(leastSigBits[row], key.getLeastSigBits()) : result;
+	}
+
+	/**
+	 * Hash of the dealer, vehicle group and price of a row, rows with the same ones are duplicates.
+	 */
+	private static long duplicateKey(int dealer, int vehicleGroup, double price) {
+		return (((long) dealer << 32) | (vehicleGroup & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L ^ Double.doubleToLongBits(price);
+	}
+
+	private SortKey key(ListingSort sort, int row) {
+		val time = sort == ListingSort.publishedAt ? publishedAt[row] : createdAt[row];
+		return new SortKey(row, time, prices[row], mostSigBits[row], leastSigBits[row]);
+	}
+
+	/**
+	 * Same order of {@link ListingCacheRepository}, missing values first and then by id.
+	 */
+	private static Comparator<SortKey> order(ListingSort sort) {
+		Comparator<SortKey> value = sort == ListingSort.price
+				? (first, second)-> comparePrices(first.getPrice(), second.getPrice())
+				: Comparator.comparingLong(SortKey::getTime);
+		return value.thenComparingLong(SortKey::getMostSigBits).thenComparingLong(SortKey::getLeastSigBits);
+	}
+
+	/**
+	 * Key of a price bound, with the lowest id it is before the rows with that price and with the highest after them.
+	 */
+	private static SortKey priceBound(double price, long id) {
+		return new SortKey(-1, NULL_TIME, price, id, id);
+	}
+
+	private static int comparePrices(double first, double second) {
+		if(Double.isNaN(first) || Double.isNaN(second)) {
+			return Boolean.compare(!Double.isNaN(first), !Double.isNaN(second));
+		}
+		return Double.compare(first, second);
+	}
+
+	private static double toColumn(Double price) {
+		return price == null ? Double.NaN : price;
+	}
+
+	private static Double toPrice(double price) {
+		return Double.isNaN(price) ? null : price;
+	}
+
+	private static long toColumn(LocalDateTime value) {
+		return value == null ? NULL_TIME : value.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + value.getNano();
+	}
+
+	private static LocalDateTime toDateTime(long value) {
+		return value == NULL_TIME ? null
+				: LocalDateTime.ofEpochSecond(Math.floorDiv(value, 1_000_000_000L), (int) Math.floorMod(value, 1_000_000_000L), ZoneOffset.UTC);
+	}
+
+	/**
+	 * Sort value of a row searched in the indexes, the row is -1 for the listing of a cursor.
+	 */
+	@Value
+	static class SortKey {
+		int row;
+		long time;
+		double price;
+		long mostSigBits;
+		long leastSigBits;
+
+		static SortKey of(ListingSort sort, Listing listing) {
+			val time = toColumn(sort == ListingSort.publishedAt ? listing.getPublishedAt() : listing.getCreatedAt());
+			return new SortKey(-1, time, toColumn(listing.getPrice()), listing.getId().getMostSignificantBits(),
+					listing.getId().getLeastSignificantBits());
+		}
+	}
+
+	/**
+	 * Rows ordered by a {@link ListingSort} in blocks of at most {@link #BLOCK_SIZE} rows, so adding or removing
+	 * a row shifts only the rows of its block. A block doubles until it is full and is then split in two, only
+	 * the first block is empty when there are no rows.
+	 */
+	final class SortedRows {
+		final ListingSort sort;
+		int[][] blocks = {NO_ROWS};
+		int[] sizes = new int[1];
+		int blockCount = 1;
+		int size;
+
+		SortedRows(ListingSort sort) {
+			this.sort = sort;
+		}
+
+		void add(SortKey key) {
+			int block = block(key, true);
+			int index = index(block, key, true);
+			if(sizes[block] == blocks[block].length) {
+				if(blocks[block].length < BLOCK_SIZE) {
+					blocks[block] = Arrays.copyOf(blocks[block], Math.max(4, blocks[block].length * 2));
+				} else {
+					split(block);
+					if(index > sizes[block]) {
+						index -= sizes[block];
+						block++;
+					}
+				}
+			}
+			val rows = blocks[block];
+			System.arraycopy(rows, index, rows, index + 1, sizes[block] - index);
+			rows[index] = key.getRow();
+			sizes[block]++;
+			size++;
+		}
+
+		/**
+		 * Remove the row of the key, the key is made from the columns the row was added with.
+		 */
+		void remove(SortKey key) {
+			val block = block(key, true);
+			val index = index(block, key, true);
+			val rows = blocks[block];
+			System.arraycopy(rows, index + 1, rows, index, sizes[block] - index - 1);
+			size--;
+			if(--sizes[block] == 0 && blockCount > 1) {
+				System.arraycopy(blocks, block + 1, blocks, block, blockCount - block - 1);
+				System.arraycopy(sizes, block + 1, sizes, block, blockCount - block - 1);
+				blocks[--blockCount] = null;
+			}
+		}
+
+		/**
+		 * Rows in ascending order from the key.
+		 * @param key first key, null to start from the first row
+		 * @param inclusive whether the row of the key is included
+		 */
+		PrimitiveIterator.OfInt from(SortKey key, boolean inclusive) {
+			val block = key == null ? 0 : block(key, inclusive);
+			return new Ascending(block, key == null ? 0 : index(block, key, inclusive));
+		}
+
+		PrimitiveIterator.OfInt descending() {
+			return new Descending(blockCount - 1, sizes[blockCount - 1] - 1);
+		}
+
+		/**
+		 * Last row, -1 if there are none.
+		 */
+		int last() {
+			return size == 0 ? -1 : blocks[blockCount - 1][sizes[blockCount - 1] - 1];
+		}
+
+		int[] toArray() {
+			val result = new int[size];
+			int position = 0;
+			for(int block = 0; block < blockCount; block++) {
+				System.arraycopy(blocks[block], 0, result, position, sizes[block]);
+				position += sizes[block];
+			}
+			return result;
+		}
+
+		/**
+		 * First block whose last row is not before the key, or the last block.
+		 */
+		private int block(SortKey key, boolean inclusive) {
+			int low = 0;
+			int high = blockCount - 1;
+			while(low < high) {
+				val middle = (low + high) >>> 1;
+				if(before(blocks[middle][sizes[middle] - 1], key, inclusive)) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Position of the first row of the block not before the key.
+		 */
+		private int index(int block, SortKey key, boolean inclusive) {
+			val rows = blocks[block];
+			int low = 0;
+			int high = sizes[block];
+			while(low < high) {
+				val middle = (low + high) >>> 1;
+				if(before(rows[middle], key, inclusive)) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private boolean before(int row, SortKey key, boolean inclusive) {
+			val result = compare(sort, row, key);
+			return inclusive ? result < 0 : result <= 0;
+		}
+
+		private void split(int block) {
+			if(blockCount == blocks.length) {
+				blocks = Arrays.copyOf(blocks, blockCount * 2);
+				sizes = Arrays.copyOf(sizes, blockCount * 2);
+			}
+			System.arraycopy(blocks, block + 1, blocks, block + 2, blockCount - block - 1);
+			System.arraycopy(sizes, block + 1, sizes, block + 2, blockCount - block - 1);
+			val half = sizes[block] / 2;
+			val second = new int[BLOCK_SIZE];
+			System.arraycopy(blocks[block], half, second, 0, sizes[block] - half);
+			blocks[block + 1] = second;
+			sizes[block + 1] = sizes[block] - half;
+			sizes[block] = half;
+			blockCount++;
+		}
+
+		final class Ascending implements PrimitiveIterator.OfInt {
+			int block;
+			int index;
+
+			Ascending(int block, int index) {
+				this.block = block;
+				this.index = index;
+			}
+
+			@Override
+			public boolean hasNext() {
+				while(index >= sizes[block] && block < blockCount - 1) {
+					block++;
+					index = 0;
+				}
+				return index < sizes[block];
+			}
+
+			@Override
+			public int nextInt() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return blocks[block][index++];
+			}
+		}
+
+		final class Descending implements PrimitiveIterator.OfInt {
+			int block;
+			int index;
+
+			Descending(int block, int index) {
+				this.block = block;
+				this.index = index;
+			}
+
+			@Override
+			public boolean hasNext() {
+				while(index < 0 && block > 0) {
+					block--;
+					index = sizes[block] - 1;
+				}
+				return index >= 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return blocks[block][index--];
+			}
+		}
+	}
+}
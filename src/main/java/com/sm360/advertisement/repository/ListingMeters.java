@@ -0,0 +1,86 @@
+package com.sm360.advertisement.repository;
+
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Meters of a {@link ListingRepository}: a gauge of the listings in each state, read only when the
+ * registry is scraped, and the rows read by each query. Nothing is recorded until it is bound to a registry,
+ * so repositories created outside of Spring pay a volatile read per query.
+ * @author Luis Bazan
+ *
+ */
+class ListingMeters {
+
+	static final String LISTINGS = "listings";
+
+	static final String ROWS_SCANNED = "listings.rows.scanned";
+
+	/**
+	 * Queries reading a page of a dealer's listings.
+	 */
+	private volatile DistributionSummary page;
+
+	/**
+	 * Queries looking for the last published listing of a dealer.
+	 */
+	private volatile DistributionSummary lastPublished;
+
+	/**
+	 * Queries looking for a duplicated listing.
+	 */
+	private volatile DistributionSummary duplicate;
+
+	/**
+	 * Queries searching the published listings by price.
+	 */
+	private volatile DistributionSummary search;
+
+	void bindTo(MeterRegistry registry, ListingRepository repository) {
+		for(ListingState listingState : ListingState.values()) {
+			Gauge.builder(LISTINGS, repository, item-> item.countByState(listingState))
+					.description("Listings in the store")
+					.tag("state", listingState.name())
+					.register(registry);
+		}
+		page = rowsScanned(registry, "page");
+		lastPublished = rowsScanned(registry, "lastPublished");
+		duplicate = rowsScanned(registry, "duplicate");
+		search = rowsScanned(registry, "search");
+	}
+
+	void page(long rows) {
+		record(page, rows);
+	}
+
+	void lastPublished(long rows) {
+		record(lastPublished, rows);
+	}
+
+	void duplicate(long rows) {
+		record(duplicate, rows);
+	}
+
+	void search(long rows) {
+		record(search, rows);
+	}
+
+	private static void record(DistributionSummary summary, long rows) {
+		if(summary != null) {
+			summary.record(rows);
+		}
+	}
+
+	private static DistributionSummary rowsScanned(MeterRegistry registry, String query) {
+		return DistributionSummary.builder(ROWS_SCANNED)
+				.description("Listings read to answer a query")
+				.baseUnit("rows")
+				.tag("query", query)
+				.publishPercentileHistogram()
+				.maximumExpectedValue(1_000_000d)
+				.register(registry);
+	}
+}
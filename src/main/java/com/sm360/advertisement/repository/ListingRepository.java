@@ -1,16 +1,135 @@
 package com.sm360.advertisement.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import com.sm360.advertisement.model.DealerStats;
 import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
 
 public interface ListingRepository {
 
+	/**
+	 * Save a listing. Saved listings must not be changed afterwards, they are shared with readers,
+	 * a change is saved as a copy with a greater version.
+	 * @param listing {@link Listing}
+	 */
 	void save(Listing listing);
 
-	List<Listing> findAll();
+	/**
+	 * Save a listing only if the stored listing with its id still has the expected version, so
+	 * a change based on a listing which was changed meanwhile is not saved.
+	 * @param listing {@link Listing} with a version greater than the expected one
+	 * @param expectedVersion version of the listing the change was based on
+	 * @return true if it was saved, false if the listing does not exist or has another version
+	 */
+	boolean compareAndSave(Listing listing, long expectedVersion);
+
+	/**
+	 * Save several listings in one call.
+	 * @param listings a collection of {@link Listing}
+	 */
+	void saveAll(Collection<Listing> listings);
 
 	Listing findById(UUID id);
 	
+	/**
+	 * Find a page of the listings of a dealer in the given state. The page is read from an
+	 * ordered index starting after the given listing, so every page costs the same as the first one.
+	 * @param dealerId {@link UUID}
+	 * @param state {@link ListingState}
+	 * @param sort {@link ListingSort}
+	 * @param after last listing of the previous page, only its id and sort value are used, null for the first page
+	 * @param limit max number of listings
+	 * @return a list of {@link Listing}
+	 */
+	List<Listing> findByDealerAndState(UUID dealerId, ListingState state, ListingSort sort, Listing after, int limit);
+
+	/**
+	 * Count the listings of a dealer in the given state in constant time.
+	 * @param dealerId {@link UUID}
+	 * @param state {@link ListingState}
+	 * @return total of listings
+	 */
+	long countByDealerAndState(UUID dealerId, ListingState state);
+
+	/**
+	 * Get the totals of the listings of a dealer, read from counters kept on every save, the same
+	 * ones read by {@link #countByDealerAndState(UUID, ListingState)}, and from the ends of the
+	 * published listings ordered by price, so nothing is scanned.
+	 * @param dealerId {@link UUID}
+	 * @return {@link DealerStats}, with zero totals if the dealer has no listings
+	 */
+	DealerStats findStats(UUID dealerId);
+
+	/**
+	 * Get a page of the published listings with a price in a range, ordered by price and then by id.
+	 * Listings without a price are not returned.
+	 * @param dealerId {@link UUID} of the dealer, null for the listings of every dealer
+	 * @param minPrice lowest price included, null for no lower bound
+	 * @param maxPrice highest price included, null for no upper bound
+	 * @param after last listing of the previous page, only its id and price are read, null for the first page
+	 * @param limit max number of listings
+	 * @return a list of {@link Listing}
+	 */
+	List<Listing> findPublishedByPrice(UUID dealerId, Double minPrice, Double maxPrice, Listing after, int limit);
+
+	/**
+	 * Get a page of the published listings whose vehicle has every term of a query, with the filters
+	 * and the order of {@link #findPublishedByPrice(UUID, Double, Double, Listing, int)}. Terms are
+	 * letters and digits ignoring case and accents, "toyota 2018" finds "2018 Toyota Corolla SE".
+	 * @param query terms separated by spaces or punctuation
+	 * @param dealerId {@link UUID} of the dealer, null for the listings of every dealer
+	 * @param minPrice lowest price included, null for no lower bound
+	 * @param maxPrice highest price included, null for no upper bound
+	 * @param after last listing of the previous page, only its id and price are read, null for the first page
+	 * @param limit max number of listings
+	 * @return a list of {@link Listing}
+	 */
+	List<Listing> findPublishedByVehicle(String query, UUID dealerId, Double minPrice, Double maxPrice, Listing after, int limit);
+
+	/**
+	 * Count the listings in the given state, the cost grows with the number of dealers.
+	 * @param state {@link ListingState}
+	 * @return total of listings
+	 */
+	long countByState(ListingState state);
+
+	/**
+	 * Find the most recently published listing of a dealer.
+	 * @param dealerId {@link UUID}
+	 * @param excludedId listing which must not be returned, it can be null
+	 * @return a {@link Listing} or null if the dealer has no other published listing
+	 */
+	Listing findLastPublished(UUID dealerId, UUID excludedId);
+
+	/**
+	 * Find a listing of a dealer with the same vehicle, ignoring case, and price in constant time.
+	 * @param dealerId {@link UUID}
+	 * @param vehicle vehicle description
+	 * @param price price of the vehicle
+	 * @return a {@link Listing} or null if it does not exist
+	 */
+	Listing findByDealerAndVehicleAndPrice(UUID dealerId, String vehicle, Double price);
+
+	/**
+	 * Stream the listings matching the given filters without copying them, the stream is weakly
+	 * consistent so it can be consumed while listings are saved.
+	 * @param dealerId {@link UUID}, null for the listings of every dealer
+	 * @param state {@link ListingState}, null for the listings in every state
+	 * @return a stream of {@link Listing}
+	 */
+	Stream<Listing> stream(UUID dealerId, ListingState state);
+
+	/**
+	 * Find the version of the listings of a dealer, it increases after every save adding, changing or
+	 * moving away one of them, so reads of a dealer whose version did not change return the same result.
+	 * @param dealerId {@link UUID}
+	 * @return version, 0 if no listing of the dealer was saved
+	 */
+	long findVersion(UUID dealerId);
+	
 }
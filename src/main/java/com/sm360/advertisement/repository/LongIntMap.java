@@ -0,0 +1,140 @@
+package com.sm360.advertisement.repository;
+
+import java.util.Arrays;
+
+import lombok.val;
+
+/**
+ * Hash table from a long to a non negative int in two primitive arrays, with linear probing. A removal
+ * shifts back the following keys of its run, so no tombstones are left and lookups never probe removed
+ * slots. It is not thread safe, the caller serializes the writes with the reads.
+ * @author Luis Bazan
+ *
+ */
+public class LongIntMap {
+
+	public static final int MISSING = -1;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private long[] keys = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Values of the slots, {@link #MISSING} for an empty slot.
+	 */
+	private int[] values = empty(INITIAL_CAPACITY);
+
+	private int size;
+
+	/**
+	 * Value of the key.
+	 * @param key long
+	 * @return its value, {@link #MISSING} if the key is missing
+	 */
+	public int get(long key) {
+		val slot = slot(key);
+		return slot < 0 ? MISSING : values[slot];
+	}
+
+	/**
+	 * Associate the value with the key.
+	 * @param key long
+	 * @param value value, not negative
+	 * @return previous value of the key, {@link #MISSING} if it had none
+	 */
+	public int put(long key, int value) {
+		if(value < 0) {
+			throw new IllegalArgumentException("Negative values are not supported");
+		}
+		val previous = put(keys, values, key, value);
+		if(previous == MISSING && ++size * 2 > values.length) {
+			resize();
+		}
+		return previous;
+	}
+
+	/**
+	 * Remove the key.
+	 * @param key long
+	 * @return its value, {@link #MISSING} if the key was missing
+	 */
+	public int remove(long key) {
+		int slot = slot(key);
+		if(slot < 0) {
+			return MISSING;
+		}
+		val previous = values[slot];
+		val mask = values.length - 1;
+		values[slot] = MISSING;
+		size--;
+		// a following key moves to the empty slot unless its own slot is between them
+		for(int next = (slot + 1) & mask; values[next] != MISSING; next = (next + 1) & mask) {
+			val home = hash(keys[next]) & mask;
+			if(((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				values[next] = MISSING;
+				slot = next;
+			}
+		}
+		return previous;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Slot of the key, -1 if it is missing.
+	 */
+	private int slot(long key) {
+		val mask = values.length - 1;
+		for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			if(values[slot] == MISSING) {
+				return -1;
+			}
+			if(keys[slot] == key) {
+				return slot;
+			}
+		}
+	}
+
+	private void resize() {
+		val previousKeys = keys;
+		val previousValues = values;
+		keys = new long[previousValues.length * 2];
+		values = empty(previousValues.length * 2);
+		for(int slot = 0; slot < previousValues.length; slot++) {
+			if(previousValues[slot] != MISSING) {
+				put(keys, values, previousKeys[slot], previousValues[slot]);
+			}
+		}
+	}
+
+	private static int put(long[] keys, int[] values, long key, int value) {
+		val mask = values.length - 1;
+		for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			val current = values[slot];
+			if(current == MISSING) {
+				keys[slot] = key;
+				values[slot] = value;
+				return MISSING;
+			}
+			if(keys[slot] == key) {
+				values[slot] = value;
+				return current;
+			}
+		}
+	}
+
+	static int hash(long key) {
+		val hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private static int[] empty(int capacity) {
+		val values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		return values;
+	}
+}
@@ -0,0 +1,17 @@
+package com.sm360.advertisement.repository;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+
+/**
+ * Receives every change of the cache repositories, it is called holding the lock of
+ * the changed entity so the changes of the same entity are received in order.
+ * @author Luis Bazan
+ *
+ */
+public interface RepositoryJournal {
+
+	void listingSaved(Listing listing);
+
+	void dealerSaved(Dealer dealer);
+}
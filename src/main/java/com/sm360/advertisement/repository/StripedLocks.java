@@ -0,0 +1,74 @@
+package com.sm360.advertisement.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Fixed set of locks shared by hashing a key, actions over the same key are serialized
+ * while actions over keys of different stripes run in parallel.
+ * @author Luis Bazan
+ *
+ */
+@Component
+public class StripedLocks {
+
+	private static final int DEFAULT_STRIPES = 256;
+
+	private final ReentrantLock[] locks;
+
+	public StripedLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	public StripedLocks(int stripes) {
+		int size = 1;
+		while(size < stripes) {
+			size <<= 1;
+		}
+		this.locks = new ReentrantLock[size];
+		for(int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Acquire the locks of the given keys, always in the same order to avoid dead locks.
+	 * Null keys are ignored and keys sharing a stripe take its lock only once.
+	 * @param keys {@link UUID}
+	 * @return {@link Held} locks which must be released by closing them
+	 */
+	public Held acquire(UUID... keys) {
+		int[] stripes = Arrays.stream(keys).filter(item-> item != null).mapToInt(this::stripe).sorted().distinct().toArray();
+		for(int stripe : stripes) {
+			locks[stripe].lock();
+		}
+		return new Held(stripes);
+	}
+
+	private int stripe(UUID key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (locks.length - 1);
+	}
+
+	/**
+	 * Locks acquired by {@link StripedLocks#acquire(UUID...)}.
+	 */
+	public class Held implements AutoCloseable {
+
+		private final int[] stripes;
+
+		private Held(int[] stripes) {
+			this.stripes = stripes;
+		}
+
+		@Override
+		public void close() {
+			for(int i = stripes.length - 1; i >= 0; i--) {
+				locks[stripes[i]].unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.sm360.advertisement.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import lombok.val;
+
+/**
+ * Hash table from {@link UUID} to a non negative int, keeping the two longs of each key in a long array
+ * and the values in an int array, with linear probing and neither entry objects nor boxed values.
+ * It is not thread safe, the caller serializes the writes with the reads. Entries are never removed,
+ * as the repositories do not delete.
+ * @author Luis Bazan
+ *
+ */
+public class UuidIntMap {
+
+	public static final int MISSING = -1;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private long[] keys = new long[2 * INITIAL_CAPACITY];
+
+	/**
+	 * Values of the slots, {@link #MISSING} for an empty slot.
+	 */
+	private int[] values = empty(INITIAL_CAPACITY);
+
+	private int size;
+
+	/**
+	 * Value of the key.
+	 * @param key {@link UUID}
+	 * @return its value, {@link #MISSING} if the key is missing
+	 */
+	public int get(UUID key) {
+		val mostSigBits = key.getMostSignificantBits();
+		val leastSigBits = key.getLeastSignificantBits();
+		val mask = values.length - 1;
+		for(int slot = UuidMap.hash(mostSigBits, leastSigBits) & mask; ; slot = (slot + 1) & mask) {
+			if(values[slot] == MISSING) {
+				return MISSING;
+			}
+			if(keys[2 * slot] == mostSigBits && keys[2 * slot + 1] == leastSigBits) {
+				return values[slot];
+			}
+		}
+	}
+
+	/**
+	 * Associate the value with the key.
+	 * @param key {@link UUID}
+	 * @param value value, not negative
+	 * @return previous value of the key, {@link #MISSING} if it had none
+	 */
+	public int put(UUID key, int value) {
+		if(value < 0) {
+			throw new IllegalArgumentException("Negative values are not supported");
+		}
+		val previous = put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+		if(previous == MISSING && ++size * 2 > values.length) {
+			resize();
+		}
+		return previous;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private int put(long mostSigBits, long leastSigBits, int value) {
+		val mask = values.length - 1;
+		for(int slot = UuidMap.hash(mostSigBits, leastSigBits) & mask; ; slot = (slot + 1) & mask) {
+			val current = values[slot];
+			if(current == MISSING) {
+				keys[2 * slot] = mostSigBits;
+				keys[2 * slot + 1] = leastSigBits;
+				values[slot] = value;
+				return MISSING;
+			}
+			if(keys[2 * slot] == mostSigBits && keys[2 * slot + 1] == leastSigBits) {
+				values[slot] = value;
+				return current;
+			}
+		}
+	}
+
+	private void resize() {
+		val previousKeys = keys;
+		val previousValues = values;
+		keys = new long[2 * previousValues.length * 2];
+		values = empty(previousValues.length * 2);
+		for(int slot = 0; slot < previousValues.length; slot++) {
+			if(previousValues[slot] != MISSING) {
+				put(previousKeys[2 * slot], previousKeys[2 * slot + 1], previousValues[slot]);
+			}
+		}
+	}
+
+	private static int[] empty(int capacity) {
+		val values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		return values;
+	}
+}
@@ -0,0 +1,200 @@
+package com.sm360.advertisement.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import lombok.val;
+
+/**
+ * Hash table from {@link UUID} to a value keeping the two longs of each key in a long array, with
+ * linear probing and no entry objects. Reads take no lock: a value is published after its key, so
+ * a reader which finds the value also sees the key. The keys are split in segments by their hash,
+ * writes to the same segment are serialized and a full segment is copied to a new table which
+ * replaces it once complete, readers keep probing the previous one meanwhile. A resize copies only
+ * its segment, so writers of other segments neither wait for it nor for each other.
+ * Entries are never removed, as the repositories do not delete.
+ * @author Luis Bazan
+ *
+ * @param <V> type of the values
+ */
+public class UuidMap<V> {
+
+	private static final int SEGMENT_BITS = 6;
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private final Segment<V>[] segments;
+
+	@SuppressWarnings("unchecked")
+	public UuidMap() {
+		segments = new Segment[1 << SEGMENT_BITS];
+		for(int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment<V>();
+		}
+	}
+
+	public V get(UUID key) {
+		val mostSigBits = key.getMostSignificantBits();
+		val leastSigBits = key.getLeastSignificantBits();
+		val hash = hash(mostSigBits, leastSigBits);
+		return segments[hash >>> (32 - SEGMENT_BITS)].table.get(mostSigBits, leastSigBits, hash);
+	}
+
+	/**
+	 * Associate the value with the key.
+	 * @param key {@link UUID}
+	 * @param value value, not null
+	 * @return previous value of the key or null
+	 */
+	public V put(UUID key, V value) {
+		if(value == null) {
+			throw new IllegalArgumentException("Null values are not supported");
+		}
+		val mostSigBits = key.getMostSignificantBits();
+		val leastSigBits = key.getLeastSignificantBits();
+		val hash = hash(mostSigBits, leastSigBits);
+		val segment = segments[hash >>> (32 - SEGMENT_BITS)];
+		synchronized(segment) {
+			return segment.put(mostSigBits, leastSigBits, hash, value);
+		}
+	}
+
+	/**
+	 * Value of the key, created with the given function and added if the key is missing.
+	 * @param key {@link UUID}
+	 * @param function creates the value, called at most once
+	 * @return current value of the key
+	 */
+	public V computeIfAbsent(UUID key, Function<UUID, V> function) {
+		val current = get(key);
+		if(current != null) {
+			return current;
+		}
+		val mostSigBits = key.getMostSignificantBits();
+		val leastSigBits = key.getLeastSignificantBits();
+		val hash = hash(mostSigBits, leastSigBits);
+		val segment = segments[hash >>> (32 - SEGMENT_BITS)];
+		synchronized(segment) {
+			val value = segment.table.get(mostSigBits, leastSigBits, hash);
+			if(value != null) {
+				return value;
+			}
+			val created = function.apply(key);
+			if(created == null) {
+				throw new IllegalArgumentException("Null values are not supported");
+			}
+			segment.put(mostSigBits, leastSigBits, hash, created);
+			return created;
+		}
+	}
+
+	/**
+	 * Number of keys, weakly consistent as the segments are counted while they are changed.
+	 * @return the number of keys
+	 */
+	public int size() {
+		int size = 0;
+		for(val segment : segments) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Stream the values, weakly consistent as the table is read while it is changed.
+	 * @return a stream of the values
+	 */
+	public Stream<V> values() {
+		return Arrays.stream(segments).flatMap(segment-> {
+			val current = segment.table;
+			return IntStream.range(0, current.capacity()).mapToObj(current.values::get).filter(item-> item != null);
+		});
+	}
+
+	static int hash(long mostSigBits, long leastSigBits) {
+		val hash = (mostSigBits ^ leastSigBits) * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Keys sharing the first bits of their hash, changed holding its monitor.
+	 */
+	static final class Segment<V> {
+
+		volatile Table<V> table = new Table<V>(INITIAL_CAPACITY);
+
+		volatile int size;
+
+		V put(long mostSigBits, long leastSigBits, int hash, V value) {
+			val previous = table.put(mostSigBits, leastSigBits, hash, value);
+			if(previous == null && ++size * 2 > table.capacity()) {
+				table = table.resize();
+			}
+			return previous;
+		}
+	}
+
+	static final class Table<V> {
+
+		final long[] keys;
+
+		final AtomicReferenceArray<V> values;
+
+		Table(int capacity) {
+			keys = new long[2 * capacity];
+			values = new AtomicReferenceArray<V>(capacity);
+		}
+
+		int capacity() {
+			return values.length();
+		}
+
+		V get(long mostSigBits, long leastSigBits, int hash) {
+			val mask = capacity() - 1;
+			for(int slot = hash & mask; ; slot = (slot + 1) & mask) {
+				val value = values.get(slot);
+				if(value == null) {
+					return null;
+				}
+				if(keys[2 * slot] == mostSigBits && keys[2 * slot + 1] == leastSigBits) {
+					return value;
+				}
+			}
+		}
+
+		/**
+		 * The key of a slot is written before its value, and never changes once the value is set.
+		 */
+		V put(long mostSigBits, long leastSigBits, int hash, V value) {
+			val mask = capacity() - 1;
+			for(int slot = hash & mask; ; slot = (slot + 1) & mask) {
+				val current = values.get(slot);
+				if(current == null) {
+					keys[2 * slot] = mostSigBits;
+					keys[2 * slot + 1] = leastSigBits;
+					values.set(slot, value);
+					return null;
+				}
+				if(keys[2 * slot] == mostSigBits && keys[2 * slot + 1] == leastSigBits) {
+					values.set(slot, value);
+					return current;
+				}
+			}
+		}
+
+		Table<V> resize() {
+			val resized = new Table<V>(capacity() * 2);
+			for(int slot = 0; slot < capacity(); slot++) {
+				val value = values.get(slot);
+				if(value != null) {
+					resized.put(keys[2 * slot], keys[2 * slot + 1], hash(keys[2 * slot], keys[2 * slot + 1]), value);
+				}
+			}
+			return resized;
+		}
+	}
+}
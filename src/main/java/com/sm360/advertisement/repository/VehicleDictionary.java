@@ -0,0 +1,205 @@
+package com.sm360.advertisement.repository;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Value;
+import lombok.val;
+
+/**
+ * Shared table of vehicle descriptions giving an int code to each distinct description, so listings
+ * keep a code or the shared {@link String} instead of their own copy. Descriptions equal ignoring case
+ * belong to the same group, comparing group codes replaces case insensitive string comparisons.
+ * Entries are reference counted and their codes reused once no listing holds them.
+ * Lookups take no lock and a description already held is acquired and released with a compare and
+ * set of its count, only adding or removing an entry locks the bin of its description in the map.
+ * A code must reach other threads through the synchronization of the repository holding it, which
+ * also makes its value and group visible. Null descriptions have the code {@link #NONE}, which is its own group.
+ * @author Luis Bazan
+ *
+ */
+public class VehicleDictionary {
+
+	public static final int NONE = -1;
+
+	private static final int PAGE_BITS = 10;
+
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private final Map<String, Entry> codes = new ConcurrentHashMap<String, Entry>();
+
+	private final Map<String, Group> groupCodes = new ConcurrentHashMap<String, Group>();
+
+	private final Queue<Integer> freeCodes = new ConcurrentLinkedQueue<Integer>();
+
+	private final Queue<Integer> freeGroups = new ConcurrentLinkedQueue<Integer>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final AtomicInteger groupSize = new AtomicInteger();
+
+	/**
+	 * Entries by code in pages of {@link #PAGE_SIZE}, replaced by a copy when a page is added.
+	 */
+	private volatile Entry[][] pages = new Entry[0][];
+
+	/**
+	 * Take a reference to the code of a description, adding it if it is new.
+	 * @param vehicle vehicle description
+	 * @return code of the description, to be released once it is no longer used
+	 */
+	public int acquire(String vehicle) {
+		if(vehicle == null) {
+			return NONE;
+		}
+		val entry = codes.get(vehicle);
+		if(entry != null && entry.getReferences().retain()) {
+			return entry.getCode();
+		}
+		// an entry released meanwhile is replaced, its code is freed by the release
+		return codes.compute(vehicle, (key, current)-> current != null && current.getReferences().retain() ? current : add(key)).getCode();
+	}
+
+	/**
+	 * Release a reference taken with {@link #acquire(String)}, the entry is removed with its last reference.
+	 * @param code code of the description
+	 */
+	public void release(int code) {
+		if(code == NONE) {
+			return;
+		}
+		val entry = entry(code);
+		if(entry.getReferences().release() > 0) {
+			return;
+		}
+		codes.remove(entry.getVehicle(), entry);
+		page(code)[code & (PAGE_SIZE - 1)] = null;
+		freeCodes.offer(code);
+		val group = entry.getGroup();
+		if(group.getReferences().release() == 0) {
+			groupCodes.remove(normalize(entry.getVehicle()), group);
+			freeGroups.offer(group.getCode());
+		}
+	}
+
+	/**
+	 * Shared instance of a description.
+	 */
+	public String value(int code) {
+		return code == NONE ? null : entry(code).getVehicle();
+	}
+
+	/**
+	 * Group of a description, equal for the descriptions equal ignoring case.
+	 */
+	public int group(int code) {
+		return code == NONE ? NONE : entry(code).getGroup().getCode();
+	}
+
+	/**
+	 * Group of a description without adding it.
+	 * @param vehicle vehicle description
+	 * @return its group, {@link #NONE} for null and null if no listing holds a description of the group
+	 */
+	public Integer findGroup(String vehicle) {
+		if(vehicle == null) {
+			return NONE;
+		}
+		val group = groupCodes.get(normalize(vehicle));
+		return group == null || group.getReferences().get() == 0 ? null : group.getCode();
+	}
+
+	public int size() {
+		return codes.size();
+	}
+
+	/**
+	 * Add an entry for a description, called by the map holding the bin of the description.
+	 */
+	private Entry add(String vehicle) {
+		val polled = freeCodes.poll();
+		val code = polled == null ? size.getAndIncrement() : polled;
+		val group = groupCodes.compute(normalize(vehicle), (key, current)-> current != null && current.getReferences().retain() ? current : addGroup());
+		val entry = new Entry(code, vehicle, group, new References());
+		page(code)[code & (PAGE_SIZE - 1)] = entry;
+		return entry;
+	}
+
+	private Group addGroup() {
+		val polled = freeGroups.poll();
+		return new Group(polled == null ? groupSize.getAndIncrement() : polled, new References());
+	}
+
+	private Entry entry(int code) {
+		return pages[code >>> PAGE_BITS][code & (PAGE_SIZE - 1)];
+	}
+
+	/**
+	 * Page of a code, adding it if it is missing.
+	 */
+	private Entry[] page(int code) {
+		val index = code >>> PAGE_BITS;
+		val current = pages;
+		if(index < current.length) {
+			return current[index];
+		}
+		synchronized(this) {
+			if(index >= pages.length) {
+				val added = Arrays.copyOf(pages, index + 1);
+				for(int i = pages.length; i < added.length; i++) {
+					added[i] = new Entry[PAGE_SIZE];
+				}
+				pages = added;
+			}
+			return pages[index];
+		}
+	}
+
+	private static String normalize(String vehicle) {
+		return vehicle.toLowerCase(Locale.ROOT);
+	}
+
+	@Value
+	static class Entry {
+		int code;
+		String vehicle;
+		Group group;
+		References references;
+	}
+
+	@Value
+	static class Group {
+		int code;
+		References references;
+	}
+
+	/**
+	 * Count of references starting at one, once it drops to zero it can not be taken again.
+	 */
+	static class References extends AtomicInteger {
+
+		private static final long serialVersionUID = 1L;
+
+		References() {
+			super(1);
+		}
+
+		boolean retain() {
+			for(int count = get(); count > 0; count = get()) {
+				if(compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int release() {
+			return decrementAndGet();
+		}
+	}
+}
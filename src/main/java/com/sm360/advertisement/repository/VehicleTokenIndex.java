@@ -0,0 +1,175 @@
+package com.sm360.advertisement.repository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import lombok.val;
+
+/**
+ * Inverted index of the vehicle descriptions: each description is split in terms, lower case letters and
+ * digits without accents, and every term keeps the sorted ordinals of the listings containing it, so
+ * "2018 Toyota Corolla SE" is found by "toyota corolla" intersecting two posting lists instead of reading
+ * every listing. Ordinals are given by the repository, it is not thread safe and it is only accessed
+ * holding a lock of the repository.
+ * @author Luis Bazan
+ *
+ */
+public class VehicleTokenIndex {
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private static final int[] EMPTY = new int[0];
+
+	private final Map<String, Postings> postings = new HashMap<String, Postings>();
+
+	/**
+	 * Replace the terms of a listing.
+	 * @param ordinal ordinal of the listing
+	 * @param previous description indexed before, null if it had none
+	 * @param vehicle current description, null if it has none
+	 */
+	public void update(int ordinal, String previous, String vehicle) {
+		val previousTerms = terms(previous);
+		val terms = terms(vehicle);
+		for(val term : previousTerms) {
+			if(!terms.contains(term)) {
+				val termPostings = postings.get(term);
+				if(termPostings != null && termPostings.remove(ordinal) && termPostings.size == 0) {
+					postings.remove(term);
+				}
+			}
+		}
+		for(val term : terms) {
+			if(!previousTerms.contains(term)) {
+				postings.computeIfAbsent(term, item-> new Postings()).add(ordinal);
+			}
+		}
+	}
+
+	/**
+	 * Ordinals of the listings containing every term of the query, the shortest posting list is
+	 * intersected with the others in order of size.
+	 * @param query terms separated by spaces or punctuation
+	 * @return ordinals in ascending order, empty if the query has no terms
+	 */
+	public int[] search(String query) {
+		val terms = terms(query);
+		if(terms.isEmpty()) {
+			return EMPTY;
+		}
+		val lists = new ArrayList<Postings>(terms.size());
+		for(val term : terms) {
+			val termPostings = postings.get(term);
+			if(termPostings == null) {
+				return EMPTY;
+			}
+			lists.add(termPostings);
+		}
+		lists.sort(Comparator.comparingInt(item-> item.size));
+		int[] result = Arrays.copyOf(lists.get(0).ordinals, lists.get(0).size);
+		for(int i = 1; i < lists.size() && result.length > 0; i++) {
+			result = intersect(result, lists.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Number of distinct terms.
+	 */
+	public int terms() {
+		return postings.size();
+	}
+
+	/**
+	 * Terms of a description, in order and without repetitions.
+	 */
+	static Set<String> terms(String text) {
+		val terms = new LinkedHashSet<String>();
+		if(text == null) {
+			return terms;
+		}
+		val normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+		for(val term : SEPARATORS.split(normalized)) {
+			if(!term.isEmpty()) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Keep the ordinals also found in the postings, each one is searched from the position of the
+	 * previous one with steps doubling in size, so a short list skips most of a long one.
+	 */
+	private static int[] intersect(int[] ordinals, Postings other) {
+		val result = new int[ordinals.length];
+		int size = 0;
+		int from = 0;
+		for(val ordinal : ordinals) {
+			int step = 1;
+			int to = from;
+			while(to < other.size && other.ordinals[to] < ordinal) {
+				from = to + 1;
+				to = Math.min(other.size, from + step);
+				step *= 2;
+			}
+			val position = Arrays.binarySearch(other.ordinals, from, Math.min(other.size, to + 1), ordinal);
+			if(position >= 0) {
+				result[size++] = ordinal;
+				from = position + 1;
+			} else {
+				from = -position - 1;
+			}
+			if(from >= other.size) {
+				break;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Sorted ordinals of the listings containing a term, new listings have the highest ordinals so
+	 * they are appended.
+	 */
+	static class Postings {
+		int[] ordinals = new int[2];
+		int size;
+
+		void add(int ordinal) {
+			int position = size;
+			if(size > 0 && ordinals[size - 1] >= ordinal) {
+				position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+				if(position >= 0) {
+					return;
+				}
+				position = -position - 1;
+			}
+			if(size == ordinals.length) {
+				ordinals = Arrays.copyOf(ordinals, size * 2);
+			}
+			System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+			ordinals[position] = ordinal;
+			size++;
+		}
+
+		boolean remove(int ordinal) {
+			val position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+			if(position < 0) {
+				return false;
+			}
+			System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+			size--;
+			return true;
+		}
+	}
+}
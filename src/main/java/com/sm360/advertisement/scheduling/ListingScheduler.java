@@ -0,0 +1,240 @@
+package com.sm360.advertisement.scheduling;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.sm360.advertisement.dto.ListingStateRequest;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.scheduling.TimingWheel.Timeout;
+import com.sm360.advertisement.service.VehicleAdvertisementService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes and unpublishes listings at a given time. Pending changes are kept in a {@link TimingWheel},
+ * at most one publication and one unpublication per listing, and a thread advances it every tick: the
+ * changes due are applied in batches by {@link VehicleAdvertisementService#changeListingStates(List)},
+ * with the tier limit rules of every publication. Changes refer to the listing by id, so updates of the
+ * listing meanwhile keep them, and those conflicting with a concurrent update are due again on the next tick.
+ * Pending changes are kept in memory only.
+ * @author Luis Bazan
+ *
+ */
+@Component
+@EnableConfigurationProperties(ListingSchedulerProperties.class)
+@Slf4j
+public class ListingScheduler implements MeterBinder {
+
+	/**
+	 * 4 levels of 256 slots, with ticks of a second the wheel spans 136 years.
+	 */
+	private static final int BITS = 8;
+
+	private static final int LEVELS = 4;
+
+	@Autowired
+	public ListingSchedulerProperties properties;
+
+	/**
+	 * Lazy, as the service schedules its changes here.
+	 */
+	@Lazy
+	@Autowired
+	public VehicleAdvertisementService vehicleAdvertisementService;
+
+	/**
+	 * Guarded by this scheduler, as {@link #pending}.
+	 */
+	TimingWheel<Transition> wheel;
+
+	private final Map<ListingState, Map<UUID, Timeout<Transition>>> pending = new EnumMap<ListingState, Map<UUID, Timeout<Transition>>>(ListingState.class);
+
+	ScheduledExecutorService executor;
+
+	/**
+	 * Changes applied and failed once due, null until bound to a registry.
+	 */
+	private volatile Counter applied;
+
+	private volatile Counter failed;
+
+	public ListingScheduler() {
+		for(val state : ListingState.values()) {
+			pending.put(state, new HashMap<UUID, Timeout<Transition>>());
+		}
+	}
+
+	@PostConstruct
+	public void start() {
+		val tick = properties.getTick().toMillis();
+		wheel = new TimingWheel<Transition>(tick, BITS, LEVELS, System.currentTimeMillis());
+		executor = Executors.newSingleThreadScheduledExecutor(runnable-> {
+			val thread = new Thread(runnable, "listing-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Schedule a change of the state of a listing, replacing the pending change to the same state.
+	 * @param request {@link ListingStateRequest}
+	 * @param at time the change is due
+	 */
+	public synchronized void schedule(ListingStateRequest request, LocalDateTime at) {
+		val atMillis = at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		val byId = pending.get(request.getState());
+		val previous = byId.remove(request.getId());
+		if(previous != null) {
+			wheel.cancel(previous);
+		}
+		byId.put(request.getId(), wheel.schedule(atMillis, new Transition(request, atMillis)));
+	}
+
+	/**
+	 * Cancel the pending changes of a listing.
+	 * @param id {@link UUID} of the listing
+	 * @param state {@link ListingState} of the change, null for every change
+	 * @return true if a pending change was cancelled
+	 */
+	public synchronized boolean cancel(UUID id, ListingState state) {
+		boolean cancelled = false;
+		for(val entry : pending.entrySet()) {
+			if(state == null || state == entry.getKey()) {
+				val timeout = entry.getValue().remove(id);
+				cancelled |= timeout != null && wheel.cancel(timeout);
+			}
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Number of pending changes.
+	 */
+	public synchronized int size() {
+		return wheel.size();
+	}
+
+	/**
+	 * Apply the changes due at the given time, in order of due time.
+	 * @param nowMillis current time
+	 * @return number of changes applied
+	 */
+	public int run(long nowMillis) {
+		val due = poll(nowMillis);
+		due.sort(Comparator.comparingLong(Transition::getAtMillis));
+		int done = 0;
+		for(int from = 0; from < due.size(); from += properties.getBatchSize()) {
+			val batch = due.subList(from, Math.min(due.size(), from + properties.getBatchSize()));
+			val results = vehicleAdvertisementService.changeListingStates(batch.stream().map(Transition::getRequest).collect(Collectors.toList()));
+			for(int i = 0; i < batch.size(); i++) {
+				val result = results.get(i);
+				val request = batch.get(i).getRequest();
+				if(result.getStatus() == HttpStatus.OK) {
+					count(applied);
+					done++;
+				} else if(result.getStatus() == HttpStatus.CONFLICT) {
+					retry(batch.get(i));
+				} else {
+					count(failed);
+					log.warn("Scheduled change of listing {} to {} failed: {}", request.getId(), request.getState(), result.getMessage());
+				}
+			}
+		}
+		return done;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("listings.scheduled", this, ListingScheduler::size)
+				.description("Pending scheduled publications and unpublications")
+				.register(registry);
+		applied = Counter.builder("listings.scheduled.changes")
+				.description("Scheduled publications and unpublications once due")
+				.tag("outcome", "applied")
+				.register(registry);
+		failed = Counter.builder("listings.scheduled.changes")
+				.description("Scheduled publications and unpublications once due")
+				.tag("outcome", "failed")
+				.register(registry);
+	}
+
+	private void tick() {
+		try {
+			run(System.currentTimeMillis());
+		} catch (RuntimeException e) {
+			// the changes polled are lost, the next ticks go on
+			log.error("Scheduled changes failed", e);
+		}
+	}
+
+	/**
+	 * Take the changes due out of the wheel.
+	 */
+	private synchronized List<Transition> poll(long nowMillis) {
+		val due = new ArrayList<Transition>(wheel.advance(nowMillis));
+		for(val transition : due) {
+			pending.get(transition.getRequest().getState()).computeIfPresent(transition.getRequest().getId(),
+					(id, timeout)-> timeout.isPending() ? timeout : null);
+		}
+		return due;
+	}
+
+	/**
+	 * Due again on the next tick, unless the listing was scheduled to the same state meanwhile.
+	 */
+	private synchronized void retry(Transition transition) {
+		val byId = pending.get(transition.getRequest().getState());
+		if(!byId.containsKey(transition.getRequest().getId())) {
+			byId.put(transition.getRequest().getId(), wheel.schedule(transition.getAtMillis(), transition));
+		}
+	}
+
+	private static void count(Counter counter) {
+		if(counter != null) {
+			counter.increment();
+		}
+	}
+
+	@Value
+	static class Transition {
+		ListingStateRequest request;
+		long atMillis;
+	}
+}
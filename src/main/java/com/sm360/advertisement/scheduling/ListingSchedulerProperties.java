@@ -0,0 +1,25 @@
+package com.sm360.advertisement.scheduling;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Configuration of the scheduled publications, under config.listing-scheduler.
+ * @author Luis Bazan
+ *
+ */
+@Data
+@ConfigurationProperties(prefix = "config.listing-scheduler")
+public class ListingSchedulerProperties {
+	/**
+	 * Duration of a tick of the timing wheel, scheduled changes are applied at most a tick late.
+	 */
+	private Duration tick = Duration.ofSeconds(1);
+	/**
+	 * Max changes applied by each batch once due.
+	 */
+	private int batchSize = 1000;
+}
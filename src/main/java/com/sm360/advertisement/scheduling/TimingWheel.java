@@ -0,0 +1,185 @@
+package com.sm360.advertisement.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.val;
+
+/**
+ * Hierarchical timing wheel: time advances in ticks and every level is a wheel of 2^bits slots, a
+ * slot of the first level lasts a tick and a slot of each next level lasts a whole turn of the
+ * previous one. A timeout is put in the lowest level whose turn reaches its deadline, and moved to
+ * the lower levels as their turns start, so scheduling and cancelling are constant time whatever the
+ * number of timeouts, and each tick only reads the timeouts due and those moved down.
+ * Slots are doubly linked lists of the timeouts, so a cancelled timeout is unlinked without searching.
+ * It is not thread safe.
+ * @author Luis Bazan
+ *
+ * @param <T> type of the values of the timeouts
+ */
+public class TimingWheel<T> {
+
+	private final long tickMillis;
+
+	private final int bits;
+
+	private final int mask;
+
+	private final Timeout<T>[][] slots;
+
+	/**
+	 * Last tick processed, timeouts of later ticks are pending.
+	 */
+	private long tick;
+
+	private int size;
+
+	/**
+	 * @param tickMillis duration of a tick
+	 * @param bits the slots of each level are 2^bits
+	 * @param levels number of levels, timeouts further than 2^(bits * levels) ticks wait in the last level
+	 * @param startMillis time of the first tick
+	 */
+	@SuppressWarnings("unchecked")
+	public TimingWheel(long tickMillis, int bits, int levels, long startMillis) {
+		if(tickMillis <= 0 || bits <= 0 || levels <= 0 || bits * levels > 62) {
+			throw new IllegalArgumentException("Invalid timing wheel: tick " + tickMillis + "ms, " + levels + " levels of " + bits + " bits");
+		}
+		this.tickMillis = tickMillis;
+		this.bits = bits;
+		this.mask = (1 << bits) - 1;
+		this.slots = new Timeout[levels][1 << bits];
+		for(val level : slots) {
+			for(int i = 0; i < level.length; i++) {
+				level[i] = new Timeout<T>(0, null);
+			}
+		}
+		this.tick = Math.floorDiv(startMillis, tickMillis);
+	}
+
+	/**
+	 * Schedule a value, deadlines already passed are due on the next tick.
+	 * @param deadlineMillis time the value is due
+	 * @param value value returned by {@link #advance(long)} once due
+	 * @return the {@link Timeout}, to cancel it
+	 */
+	public Timeout<T> schedule(long deadlineMillis, T value) {
+		// rounded up, so a value is never returned before its deadline
+		val deadline = Math.max(tick + 1, Math.floorDiv(deadlineMillis, tickMillis) + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1));
+		val timeout = new Timeout<T>(deadline, value);
+		insert(timeout);
+		size++;
+		return timeout;
+	}
+
+	/**
+	 * Cancel a pending timeout.
+	 * @param timeout {@link Timeout} returned by {@link #schedule(long, Object)}
+	 * @return true if it was pending, false if it was due or cancelled before
+	 */
+	public boolean cancel(Timeout<T> timeout) {
+		if(timeout.previous == null) {
+			return false;
+		}
+		unlink(timeout);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Process the ticks up to the given time.
+	 * @param nowMillis current time
+	 * @return the values due, in order of deadline tick
+	 */
+	public List<T> advance(long nowMillis) {
+		val result = new ArrayList<T>();
+		val now = Math.floorDiv(nowMillis, tickMillis);
+		while(tick < now) {
+			tick++;
+			for(int level = slots.length - 1; level > 0; level--) {
+				if((tick & ((1L << (bits * level)) - 1)) == 0) {
+					process(slots[level][slot(tick, level)], result);
+				}
+			}
+			process(slots[0][slot(tick, 0)], result);
+		}
+		return result;
+	}
+
+	/**
+	 * Number of pending timeouts.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empty a slot whose turn starts, the timeouts due are added to the result and the others are moved
+	 * to the lower levels, or back to the last level when they are still beyond it.
+	 */
+	private void process(Timeout<T> head, List<T> result) {
+		Timeout<T> timeout = head.next;
+		head.next = head;
+		head.previous = head;
+		while(timeout != head) {
+			val next = timeout.next;
+			if(timeout.deadline <= tick) {
+				timeout.previous = null;
+				timeout.next = null;
+				size--;
+				result.add(timeout.value);
+			} else {
+				insert(timeout);
+			}
+			timeout = next;
+		}
+	}
+
+	private void insert(Timeout<T> timeout) {
+		val delta = timeout.deadline - tick;
+		int level = delta <= 0 ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / bits;
+		val head = level < slots.length ? slots[level][slot(timeout.deadline, level)]
+				: slots[slots.length - 1][slot(tick, slots.length - 1)];
+		timeout.previous = head.previous;
+		timeout.next = head;
+		head.previous.next = timeout;
+		head.previous = timeout;
+	}
+
+	private int slot(long tick, int level) {
+		return (int) (tick >>> (bits * level)) & mask;
+	}
+
+	private static <T> void unlink(Timeout<T> timeout) {
+		timeout.previous.next = timeout.next;
+		timeout.next.previous = timeout.previous;
+		timeout.previous = null;
+		timeout.next = null;
+	}
+
+	/**
+	 * A scheduled value, linked in its slot while pending. The heads of the slots are timeouts
+	 * linked to themselves.
+	 */
+	public static class Timeout<T> {
+		private final long deadline;
+		private final T value;
+		private Timeout<T> previous;
+		private Timeout<T> next;
+
+		Timeout(long deadline, T value) {
+			this.deadline = deadline;
+			this.value = value;
+			this.previous = this;
+			this.next = this;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		public boolean isPending() {
+			return previous != null;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.sm360.advertisement.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.sm360.advertisement.exception.InvalidCursorException;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+
+import lombok.val;
+
+/**
+ * Encodes the position of the last item of a page as an opaque cursor for the client.
+ * @author Luis Bazan
+ *
+ */
+final class CursorCodec {
+
+	private static final String SEPARATOR = "|";
+
+	private CursorCodec() {
+	}
+
+	static String encode(String position) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static String decode(String cursor) {
+		try {
+			return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidCursorException(cursor);
+		}
+	}
+
+	/**
+	 * Encode the position of a listing in the given order, its sort value and id.
+	 */
+	static String encode(ListingSort sort, Listing listing) {
+		val value = sortValue(sort, listing);
+		return encode(sort.name() + SEPARATOR + (value == null ? "" : value.toString()) + SEPARATOR + listing.getId());
+	}
+
+	/**
+	 * Decode a listing position encoded by {@link #encode(ListingSort, Listing)}, the returned
+	 * listing only has the id and the sort value.
+	 */
+	static Listing decode(ListingSort sort, String cursor) {
+		val parts = decode(cursor).split("\\|", -1);
+		if(parts.length != 3 || !sort.name().equals(parts[0])) {
+			throw new InvalidCursorException(cursor);
+		}
+		try {
+			val listing = Listing.builder().id(UUID.fromString(parts[2]));
+			if(!parts[1].isEmpty()) {
+				switch(sort) {
+				case publishedAt:
+					listing.publishedAt(LocalDateTime.parse(parts[1]));
+					break;
+				case price:
+					listing.price(Double.valueOf(parts[1]));
+					break;
+				default:
+					listing.createdAt(LocalDateTime.parse(parts[1]));
+				}
+			}
+			return listing.build();
+		} catch (IllegalArgumentException | DateTimeException e) {
+			throw new InvalidCursorException(cursor);
+		}
+	}
+
+	private static Object sortValue(ListingSort sort, Listing listing) {
+		switch(sort) {
+		case publishedAt:
+			return listing.getPublishedAt();
+		case price:
+			return listing.getPrice();
+		default:
+			return listing.getCreatedAt();
+		}
+	}
+}
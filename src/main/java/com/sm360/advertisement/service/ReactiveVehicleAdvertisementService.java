@@ -0,0 +1,105 @@
+package com.sm360.advertisement.service;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.sm360.advertisement.dto.BatchItemResponse;
+import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerCreateResponse;
+import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
+import com.sm360.advertisement.dto.ListingUnpublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non blocking contract of the {@link VehicleAdvertisementService} operations, used by the reactive API.
+ * Nothing happens until the returned publishers are subscribed.
+ * @author Luis Bazan
+ *
+ */
+public interface ReactiveVehicleAdvertisementService {
+
+	/**
+	 * @see VehicleAdvertisementService#saveListing(ListingCreateRequest)
+	 */
+	Mono<ListingCreateResponse> saveListing(ListingCreateRequest request);
+
+	/**
+	 * @see VehicleAdvertisementService#saveListings(List)
+	 */
+	Mono<List<BatchItemResponse<ListingCreateResponse>>> saveListings(List<ListingCreateRequest> requests);
+
+	/**
+	 * @see VehicleAdvertisementService#saveDealer(DealerCreateRequest)
+	 */
+	Mono<DealerCreateResponse> saveDealer(DealerCreateRequest request);
+
+	/**
+	 * @see VehicleAdvertisementService#getDealers(String, Integer, String)
+	 */
+	Mono<PageResponse<DealerGetResponse>> getDealers(String prefix, Integer limit, String cursor);
+
+	/**
+	 * @see VehicleAdvertisementService#getDealerStats(UUID)
+	 */
+	Mono<DealerStatsResponse> getDealerStats(UUID dealerId);
+
+	/**
+	 * @see VehicleAdvertisementService#updateListing(ListingUpdateRequest)
+	 */
+	Mono<ListingUpdateResponse> updateListing(ListingUpdateRequest request);
+
+	/**
+	 * @see VehicleAdvertisementService#getListing(UUID, ListingState, ListingSort, Integer, String)
+	 */
+	Mono<PageResponse<ListingGetResponse>> getListing(UUID dealerId, ListingState state, ListingSort sort, Integer limit, String cursor);
+
+	/**
+	 * @see VehicleAdvertisementService#searchListings(String, UUID, Double, Double, Integer, String)
+	 */
+	Mono<PageResponse<ListingGetResponse>> searchListings(String query, UUID dealerId, Double minPrice, Double maxPrice, Integer limit, String cursor);
+
+	/**
+	 * @see VehicleAdvertisementService#getListingTag(UUID)
+	 */
+	Mono<String> getListingTag(UUID dealerId);
+
+	/**
+	 * Export the listings matching the given filters, listings are read as they are requested
+	 * by the subscriber and the underlying stream is closed when it completes or cancels.
+	 * @see VehicleAdvertisementService#exportListings(UUID, ListingState)
+	 */
+	Flux<ListingGetResponse> exportListings(UUID dealerId, ListingState state);
+
+	/**
+	 * @see VehicleAdvertisementService#publishListing(ListingPublishRequest)
+	 */
+	Mono<Void> publishListing(ListingPublishRequest request);
+
+	/**
+	 * @see VehicleAdvertisementService#unpublishListing(ListingUnpublishRequest)
+	 */
+	Mono<Void> unpublishListing(ListingUnpublishRequest request);
+
+	/**
+	 * @see VehicleAdvertisementService#cancelSchedule(UUID, ListingState)
+	 */
+	Mono<Void> cancelSchedule(UUID id, ListingState state);
+
+	/**
+	 * @see VehicleAdvertisementService#changeListingStates(List)
+	 */
+	Mono<List<BatchItemResponse<ListingGetResponse>>> changeListingStates(List<ListingStateRequest> requests);
+}
@@ -0,0 +1,137 @@
+package com.sm360.advertisement.service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.sm360.advertisement.dto.BatchItemResponse;
+import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerCreateResponse;
+import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
+import com.sm360.advertisement.dto.ListingUnpublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link ReactiveVehicleAdvertisementService} over the {@link VehicleAdvertisementService}. Dealers and listing
+ * tags are read without locks, so they run on the subscriber's thread. Listing reads take the read lock of the
+ * columnar store, which waits for its writers, and changes wait for dealer locks and, with persistence enabled,
+ * for the write ahead log, so both run on the bounded elastic scheduler and never block the event loop.
+ * Exports are drained there too, a batch of listings each time the client requests more.
+ * @author Luis Bazan
+ *
+ */
+@Service
+@Profile("reactive")
+public class ReactiveVehicleAdvertisementServiceImpl implements ReactiveVehicleAdvertisementService {
+
+	@Autowired
+	public VehicleAdvertisementService vehicleAdvertisementService;
+
+	@Override
+	public Mono<ListingCreateResponse> saveListing(ListingCreateRequest request) {
+		return change(()-> vehicleAdvertisementService.saveListing(request));
+	}
+
+	@Override
+	public Mono<List<BatchItemResponse<ListingCreateResponse>>> saveListings(List<ListingCreateRequest> requests) {
+		return change(()-> vehicleAdvertisementService.saveListings(requests));
+	}
+
+	@Override
+	public Mono<DealerCreateResponse> saveDealer(DealerCreateRequest request) {
+		return change(()-> vehicleAdvertisementService.saveDealer(request));
+	}
+
+	@Override
+	public Mono<PageResponse<DealerGetResponse>> getDealers(String prefix, Integer limit, String cursor) {
+		return Mono.fromCallable(()-> vehicleAdvertisementService.getDealers(prefix, limit, cursor));
+	}
+
+	@Override
+	public Mono<DealerStatsResponse> getDealerStats(UUID dealerId) {
+		return read(()-> vehicleAdvertisementService.getDealerStats(dealerId));
+	}
+
+	@Override
+	public Mono<ListingUpdateResponse> updateListing(ListingUpdateRequest request) {
+		return change(()-> vehicleAdvertisementService.updateListing(request));
+	}
+
+	@Override
+	public Mono<PageResponse<ListingGetResponse>> getListing(UUID dealerId, ListingState state, ListingSort sort, Integer limit, String cursor) {
+		return read(()-> vehicleAdvertisementService.getListing(dealerId, state, sort, limit, cursor));
+	}
+
+	@Override
+	public Mono<PageResponse<ListingGetResponse>> searchListings(String query, UUID dealerId, Double minPrice, Double maxPrice, Integer limit, String cursor) {
+		return read(()-> vehicleAdvertisementService.searchListings(query, dealerId, minPrice, maxPrice, limit, cursor));
+	}
+
+	@Override
+	public Mono<String> getListingTag(UUID dealerId) {
+		return Mono.fromCallable(()-> vehicleAdvertisementService.getListingTag(dealerId));
+	}
+
+	@Override
+	public Flux<ListingGetResponse> exportListings(UUID dealerId, ListingState state) {
+		return Flux.fromStream(()-> vehicleAdvertisementService.exportListings(dealerId, state)).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@Override
+	public Mono<Void> publishListing(ListingPublishRequest request) {
+		return change(()-> {
+			vehicleAdvertisementService.publishListing(request);
+			return null;
+		});
+	}
+
+	@Override
+	public Mono<Void> unpublishListing(ListingUnpublishRequest request) {
+		return change(()-> {
+			vehicleAdvertisementService.unpublishListing(request);
+			return null;
+		});
+	}
+
+	@Override
+	public Mono<Void> cancelSchedule(UUID id, ListingState state) {
+		return change(()-> {
+			vehicleAdvertisementService.cancelSchedule(id, state);
+			return null;
+		});
+	}
+
+	@Override
+	public Mono<List<BatchItemResponse<ListingGetResponse>>> changeListingStates(List<ListingStateRequest> requests) {
+		return change(()-> vehicleAdvertisementService.changeListingStates(requests));
+	}
+
+	/**
+	 * Read listings, which may wait for a writer of the columnar store.
+	 */
+	private <T> Mono<T> read(Callable<T> action) {
+		return Mono.fromCallable(action).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	private <T> Mono<T> change(Callable<T> action) {
+		return Mono.fromCallable(action).subscribeOn(Schedulers.boundedElastic());
+	}
+}
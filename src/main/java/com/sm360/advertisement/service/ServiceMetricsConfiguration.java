@@ -0,0 +1,22 @@
+package com.sm360.advertisement.service;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Time the service methods annotated with {@link io.micrometer.core.annotation.Timed}, their
+ * percentiles and histogram buckets are configured in management.metrics.distribution.
+ * @author Luis Bazan
+ *
+ */
+@Configuration
+public class ServiceMetricsConfiguration {
+
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry registry) {
+		return new TimedAspect(registry);
+	}
+}
@@ -2,19 +2,25 @@ package com.sm360.advertisement.service;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import javax.validation.Valid;
 
+import com.sm360.advertisement.dto.BatchItemResponse;
 import com.sm360.advertisement.dto.DealerCreateRequest;
 import com.sm360.advertisement.dto.DealerCreateResponse;
 import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
 import com.sm360.advertisement.dto.ListingCreateRequest;
 import com.sm360.advertisement.dto.ListingCreateResponse;
 import com.sm360.advertisement.dto.ListingGetResponse;
 import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
 import com.sm360.advertisement.dto.ListingUnpublishRequest;
 import com.sm360.advertisement.dto.ListingUpdateRequest;
 import com.sm360.advertisement.dto.ListingUpdateResponse;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.model.ListingSort;
 import com.sm360.advertisement.model.ListingState;
 
 /**
@@ -31,6 +37,14 @@ public interface VehicleAdvertisementService {
 	 */
 	ListingCreateResponse saveListing(ListingCreateRequest request);
 
+	/**
+	 * Create a batch of listings, requests are validated one by one and grouped by dealer,
+	 * so every dealer is read and locked once for the whole batch.
+	 * @param requests list of {@link ListingCreateRequest}
+	 * @return a {@link BatchItemResponse} per request, in the same order
+	 */
+	List<BatchItemResponse<ListingCreateResponse>> saveListings(List<ListingCreateRequest> requests);
+
 	/**
 	 * Create a dealer as of {@link DealerCreateRequest}
 	 * @param request
@@ -39,10 +53,21 @@ public interface VehicleAdvertisementService {
 	DealerCreateResponse saveDealer(DealerCreateRequest request);
 
 	/**
-	 * Get a list of dealers
-	 * @return a list of {@link DealerGetResponse}
+	 * Get a page of dealers ordered by name
+	 * @param prefix dealer's name prefix ignoring case, null for all dealers
+	 * @param limit max number of dealers, null for no limit
+	 * @param cursor cursor returned with the previous page, null for the first page
+	 * @return a {@link PageResponse} of {@link DealerGetResponse}
+	 */
+	PageResponse<DealerGetResponse> getDealers(String prefix, Integer limit, String cursor);
+
+	/**
+	 * Get the totals of the listings of a dealer and its remaining tier, read from the counters
+	 * checked when a listing is published instead of reading the listings
+	 * @param dealerId {@link UUID}
+	 * @return a {@link DealerStatsResponse}
 	 */
-	List<DealerGetResponse> getAllDealers();
+	DealerStatsResponse getDealerStats(UUID dealerId);
 
 	/**
 	 * Update a listing as of {@link ListingUpdateRequest}
@@ -52,23 +77,71 @@ public interface VehicleAdvertisementService {
 	ListingUpdateResponse updateListing(@Valid ListingUpdateRequest request);
 
 	/**
-	 * Get a list of listing by dealerId and state 
+	 * Get a page of listing by dealerId and state 
 	 * @param dealerId {@link UUID}
 	 * @param state {@link ListingState}
-	 * @return a list of {@link ListingGetResponse}
+	 * @param sort {@link ListingSort}, null to sort by creation date
+	 * @param limit max number of listings, null for no limit
+	 * @param cursor cursor returned with the previous page, null for the first page
+	 * @return a {@link PageResponse} of {@link ListingGetResponse}
+	 */
+	PageResponse<ListingGetResponse> getListing(UUID dealerId, ListingState state, ListingSort sort, Integer limit, String cursor);
+
+	/**
+	 * Search a page of the published listings with a price in a range, ordered by price
+	 * @param query terms the vehicle must have, null or blank to search by price only
+	 * @param dealerId {@link UUID}, null for the listings of every dealer
+	 * @param minPrice lowest price included, null for no lower bound
+	 * @param maxPrice highest price included, null for no upper bound
+	 * @param limit max number of listings, null for no limit
+	 * @param cursor cursor returned with the previous page, null for the first page
+	 * @return a {@link PageResponse} of {@link ListingGetResponse}
 	 */
-	List<ListingGetResponse> getListing(UUID dealerId, ListingState state);
+	PageResponse<ListingGetResponse> searchListings(String query, UUID dealerId, Double minPrice, Double maxPrice, Integer limit, String cursor);
 
 	/**
-	 * Publish a listing as of {@link ListingPublishRequest}
+	 * Get a tag of the listings of a dealer, it changes whenever one of them changes, so it can be
+	 * used as the ETag of the reads of the dealer's listings.
+	 * @param dealerId {@link UUID}
+	 * @return the tag
+	 */
+	String getListingTag(UUID dealerId);
+
+	/**
+	 * Export the listings matching the given filters, each listing is read and mapped while
+	 * the stream is consumed so the memory used does not depend on the number of listings.
+	 * The stream must be closed once consumed.
+	 * @param dealerId {@link UUID}, null for the listings of every dealer
+	 * @param state {@link ListingState}, null for the listings in every state
+	 * @return a stream of {@link ListingGetResponse}
+	 */
+	Stream<ListingGetResponse> exportListings(UUID dealerId, ListingState state);
+
+	/**
+	 * Publish a listing as of {@link ListingPublishRequest}, or schedule it when the request has a time
 	 * @param request
 	 */
 	void publishListing(ListingPublishRequest request);
 
 	/**
-	 * Unpublish a listing as of {@link ListingUnpublishRequest}
+	 * Unpublish a listing as of {@link ListingUnpublishRequest}, or schedule it when the request has a time
 	 * @param request
 	 */
 	void unpublishListing(ListingUnpublishRequest request);
+
+	/**
+	 * Cancel the scheduled publication or unpublication of a listing
+	 * @param id {@link UUID} of the listing
+	 * @param state {@link ListingState} published for the publication, draft for the unpublication, null for both
+	 */
+	void cancelSchedule(UUID id, ListingState state);
+
+	/**
+	 * Publish and unpublish a batch of listings, requests are grouped by dealer and the requests
+	 * of a dealer are applied in order holding its lock, groups of different dealers run in parallel.
+	 * @param requests list of {@link ListingStateRequest}
+	 * @return a {@link BatchItemResponse} per request, in the same order
+	 */
+	List<BatchItemResponse<ListingGetResponse>> changeListingStates(List<ListingStateRequest> requests);
 	
 }
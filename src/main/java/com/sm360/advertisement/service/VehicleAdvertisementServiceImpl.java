@@ -1,39 +1,73 @@
 package com.sm360.advertisement.service;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
 
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.BatchItemResponse;
 import com.sm360.advertisement.dto.DealerCreateRequest;
 import com.sm360.advertisement.dto.DealerCreateResponse;
 import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
 import com.sm360.advertisement.dto.ListingCreateRequest;
 import com.sm360.advertisement.dto.ListingCreateResponse;
 import com.sm360.advertisement.dto.ListingGetResponse;
 import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
 import com.sm360.advertisement.dto.ListingUnpublishRequest;
 import com.sm360.advertisement.dto.ListingUpdateRequest;
 import com.sm360.advertisement.dto.ListingUpdateResponse;
-import com.sm360.advertisement.exception.DealerAlreadyExistsException;
+import com.sm360.advertisement.dto.PageResponse;
 import com.sm360.advertisement.exception.DealerNotFoundException;
 import com.sm360.advertisement.exception.ListingAlreadyExistsException;
 import com.sm360.advertisement.exception.ListingNotFoundException;
+import com.sm360.advertisement.exception.ListingScheduleNotFoundException;
+import com.sm360.advertisement.exception.ListingVersionConflictException;
 import com.sm360.advertisement.exception.TierLimitHasBeenExceededException;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
 import com.sm360.advertisement.model.Dealer;
 import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
 import com.sm360.advertisement.model.ListingState;
 import com.sm360.advertisement.repository.DealerRepository;
 import com.sm360.advertisement.repository.ListingRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+import com.sm360.advertisement.scheduling.ListingScheduler;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -45,7 +79,12 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Service
 @Slf4j
-public class VehicleAdvertisementServiceImpl implements VehicleAdvertisementService {
+public class VehicleAdvertisementServiceImpl implements VehicleAdvertisementService, MeterBinder {
+
+	/**
+	 * Timer of the service operations, tagged by method.
+	 */
+	public static final String OPERATIONS = "advertisement.service";
 
 	@Autowired
 	public ListingRepository listingRepository;
@@ -54,7 +93,54 @@ public class VehicleAdvertisementServiceImpl implements VehicleAdvertisementServ
 	public DealerRepository dealerRepository;
 	
 	@Autowired
-	public ModelMapper modelMapper;
+	public ListingMapper listingMapper;
+	
+	@Autowired
+	public DealerMapper dealerMapper;
+	
+	/**
+	 * Serializes the creations and publications of listings of the same dealer, so duplicates can not be
+	 * created and the tier limit can not be exceeded by concurrent requests, changes of different dealers
+	 * run in parallel. Every change is saved with {@link ListingRepository#compareAndSave(Listing, long)},
+	 * so updates, which never publish a listing, do not need it.
+	 */
+	@Autowired
+	public StripedLocks dealerLocks;
+	
+	@Autowired
+	public Validator validator;
+	
+	/**
+	 * Serialized listing pages, dropped for a dealer whenever its listings are changed.
+	 */
+	@Autowired
+	public ListingResponseCache listingResponseCache;
+	
+	/**
+	 * Pending publications and unpublications, applied through {@link #changeListingStates(List)}.
+	 */
+	@Autowired
+	public ListingScheduler listingScheduler;
+	
+	/**
+	 * Start of this instance, part of the listing tags as versions start again on every run.
+	 */
+	private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+	
+	/**
+	 * Applies the dealer groups of the state batches in parallel. The groups wait on dealer locks and on
+	 * the journal, so they get their own threads, at most one per core and stopped once idle, instead of
+	 * blocking the common pool.
+	 */
+	private final ThreadPoolExecutor batchExecutor = newBatchExecutor();
+	
+	/**
+	 * Publications over the tier limit which unpublished the oldest listing and which were rejected,
+	 * null until bound to a registry.
+	 */
+	private volatile Counter tierLimitEvictions;
+	
+	private volatile Counter tierLimitRejections;
 	
 	/**
 	 * Save listing, the following steps are executed:
@@ -62,73 +148,228 @@ public class VehicleAdvertisementServiceImpl implements VehicleAdvertisementServ
 	 * - valid if request exist (same dealerId, vehicle and price)
 	 * - Assign ID (Random UUID)
 	 * - Assign by default DRAFT status.
+	 * Validation and save hold the dealer's lock, so concurrent requests can not create duplicates.
 	 */
 	@Override
+	@Timed(OPERATIONS)
 	public ListingCreateResponse saveListing(ListingCreateRequest request) {
-		val listing = modelMapper.map(request, Listing.class);
 		val dealer = dealerRepository.findById(request.getDealerId());
 		if(dealer == null) {
 			throw new DealerNotFoundException(request.getDealerId());
 		}
-		validateIfRequestExist(request);
-		listing.setCreatedAt(LocalDateTime.now());
-		listing.setId(UUID.randomUUID());
-		listing.setState(ListingState.draft);
-		listing.setDealer(dealer);
-		listingRepository.save(listing);
-		val listingResponse = modelMapper.map(listing, ListingCreateResponse.class);
+		Listing listing;
+		try(StripedLocks.Held held = dealerLocks.acquire(dealer.getId())) {
+			validateIfRequestExist(request);
+			listing = newListing(request, dealer);
+			listingRepository.save(listing);
+		}
+		listingResponseCache.invalidate(dealer.getId());
+		val listingResponse = listingMapper.toCreateResponse(listing);
 		return listingResponse;
 	}
 
+	/**
+	 * Save a batch of listings, the following steps are executed:
+	 * - every request is validated, invalid requests are reported and skipped
+	 * - requests are grouped by dealer, each dealer is read once
+	 * - duplicates are searched in the index and in the rest of the batch
+	 * - the listings of a dealer are saved at once holding the dealer's lock
+	 */
+	@Override
+	@Timed(OPERATIONS)
+	public List<BatchItemResponse<ListingCreateResponse>> saveListings(List<ListingCreateRequest> requests) {
+		val results = new ArrayList<BatchItemResponse<ListingCreateResponse>>(Collections.nCopies(requests.size(), null));
+		val byDealer = new LinkedHashMap<UUID, List<Integer>>();
+		for(int i = 0; i < requests.size(); i++) {
+			val request = requests.get(i);
+			if(request == null) {
+				results.set(i, failure(i, HttpStatus.BAD_REQUEST, "Request is empty"));
+				continue;
+			}
+			val violations = validator.validate(request);
+			if(!violations.isEmpty()) {
+				results.set(i, failure(i, HttpStatus.BAD_REQUEST, invalidArguments(violations)));
+				continue;
+			}
+			byDealer.computeIfAbsent(request.getDealerId(), item-> new ArrayList<Integer>()).add(i);
+		}
+		for(val entry : byDealer.entrySet()) {
+			saveListings(entry.getKey(), entry.getValue(), requests, results);
+		}
+		return results;
+	}
+
+	private void saveListings(UUID dealerId, List<Integer> indexes, List<ListingCreateRequest> requests,
+			List<BatchItemResponse<ListingCreateResponse>> results) {
+		val dealer = dealerRepository.findById(dealerId);
+		if(dealer == null) {
+			val exception = new DealerNotFoundException(dealerId);
+			for(val index : indexes) {
+				results.set(index, failure(index, exception));
+			}
+			return;
+		}
+		// listings to save by index of their request, reported as created only once they are saved
+		val listings = new LinkedHashMap<Integer, Listing>();
+		val keys = new HashSet<List<Object>>();
+		try(StripedLocks.Held held = dealerLocks.acquire(dealerId)) {
+			for(val index : indexes) {
+				val request = requests.get(index);
+				val key = List.<Object>of(request.getVehicle().toLowerCase(Locale.ROOT), request.getPrice());
+				if(!keys.add(key) || listingRepository.findByDealerAndVehicleAndPrice(dealerId, request.getVehicle(), request.getPrice()) != null) {
+					results.set(index, failure(index, new ListingAlreadyExistsException(dealerId, request.getVehicle(), request.getPrice())));
+					continue;
+				}
+				listings.put(index, newListing(request, dealer));
+			}
+			listingRepository.saveAll(listings.values());
+			for(val entry : listings.entrySet()) {
+				results.set(entry.getKey(), success(entry.getKey(), listingMapper.toCreateResponse(entry.getValue())));
+			}
+		} catch (RuntimeException e) {
+			log.error("Saving the listings of dealer {} failed", dealerId, e);
+			for(val index : indexes) {
+				if(results.get(index) == null || listings.containsKey(index)) {
+					results.set(index, failure(index, e));
+				}
+			}
+		} finally {
+			// some listings may be saved even when the batch failed
+			listingResponseCache.invalidate(dealerId);
+		}
+	}
+
+	/**
+	 * Create a draft listing of the dealer with a new id.
+	 */
+	private Listing newListing(ListingCreateRequest request, Dealer dealer) {
+		return listingMapper.toListing(request).toBuilder()
+				.createdAt(LocalDateTime.now())
+				.id(UUID.randomUUID())
+				.state(ListingState.draft)
+				.dealer(dealer)
+				.build();
+	}
+
 	/**
 	 * Save dealer, the following steps are executed:
-	 * - valid if dealer exist (same name)
 	 * - Assign ID (Random UUID)
 	 * - TierLimit is required in order to know if the listing can be published.
+	 * - valid if dealer exist (same name), checked by the repository as it saves the dealer
 	 */
 	@Override
+	@Timed(OPERATIONS)
 	public DealerCreateResponse saveDealer(DealerCreateRequest request) {
-		validateIfExistDealer(request);
-		val dealer = modelMapper.map(request, Dealer.class);
+		val dealer = dealerMapper.toDealer(request);
 		dealer.setId(UUID.randomUUID());
 		dealerRepository.save(dealer);
-		val dealerResponse = modelMapper.map(dealer, DealerCreateResponse.class);
+		val dealerResponse = dealerMapper.toCreateResponse(dealer);
 		return dealerResponse;
 	}
 
 	@Override
-	public List<DealerGetResponse> getAllDealers() {
-		val dealers = dealerRepository.findAll();
-		List<DealerGetResponse> dealersResponse = modelMapper.map(dealers, new TypeToken<List<DealerGetResponse>>() {}.getType());
-		return dealersResponse;
+	@Timed(OPERATIONS)
+	public PageResponse<DealerGetResponse> getDealers(String prefix, Integer limit, String cursor) {
+		val afterName = cursor == null ? null : CursorCodec.decode(cursor);
+		val dealers = dealerRepository.findByNamePrefix(prefix, afterName, limit == null ? Integer.MAX_VALUE : limit + 1);
+		val hasNext = limit != null && dealers.size() > limit;
+		val page = hasNext ? dealers.subList(0, limit) : dealers;
+		val items = dealerMapper.toGetResponses(page);
+		val nextCursor = hasNext ? CursorCodec.encode(page.get(page.size() - 1).getName()) : null;
+		return PageResponse.<DealerGetResponse>builder().items(items).nextCursor(nextCursor).build();
 	}
 
 	@Override
-	public ListingUpdateResponse updateListing(@Valid ListingUpdateRequest request) {
-		val listing = listingRepository.findById(request.getId());
-		if(listing == null) {
-			throw new ListingNotFoundException(request.getId());
-		}
-		val dealer = dealerRepository.findById(request.getDealerId());
+	@Timed(OPERATIONS)
+	public DealerStatsResponse getDealerStats(UUID dealerId) {
+		val dealer = dealerRepository.findById(dealerId);
 		if(dealer == null) {
-			throw new DealerNotFoundException(request.getDealerId());
+			throw new DealerNotFoundException(dealerId);
 		}
-		listing.setUpdatedAt(LocalDateTime.now());
-		listing.setState(ListingState.draft);
-		listing.setDealer(dealer);
-		listing.setVehicle(request.getVehicle());
-		listing.setPrice(request.getPrice());
-		listingRepository.save(listing);
-		val listingResponse = modelMapper.map(listing, ListingUpdateResponse.class);
-		return listingResponse;
+		return dealerMapper.toStatsResponse(dealer, listingRepository.findStats(dealerId));
 	}
 
+	/**
+	 * Update listing without locks, a copy of the current listing with the next version is saved
+	 * only if the listing was not changed meanwhile:
+	 * - if the request has a version and the listing has another one, the update is rejected
+	 * - otherwise the update is applied again over the current listing.
+	 */
 	@Override
-	public List<ListingGetResponse> getListing(UUID dealerId, ListingState state) {
-		val response = listingRepository.findAll().stream().filter(item-> dealerId.equals(item.getDealer().getId())
-				&& state.equals(item.getState())).collect(Collectors.toList());
-		
-		return modelMapper.map(response, new TypeToken<List<ListingGetResponse>>() {}.getType());
+	@Timed(OPERATIONS)
+	public ListingUpdateResponse updateListing(@Valid ListingUpdateRequest request) {
+		Dealer dealer = null;
+		while(true) {
+			val current = listingRepository.findById(request.getId());
+			if(current == null) {
+				throw new ListingNotFoundException(request.getId());
+			}
+			if(request.getVersion() != null && request.getVersion() != current.getVersion()) {
+				throw new ListingVersionConflictException(request.getId(), current.getVersion());
+			}
+			if(dealer == null) {
+				dealer = dealerRepository.findById(request.getDealerId());
+				if(dealer == null) {
+					throw new DealerNotFoundException(request.getDealerId());
+				}
+			}
+			val listing = current.toBuilder()
+					.updatedAt(LocalDateTime.now())
+					.state(ListingState.draft)
+					.dealer(dealer)
+					.vehicle(request.getVehicle())
+					.price(request.getPrice())
+					.version(current.getVersion() + 1)
+					.build();
+			if(listingRepository.compareAndSave(listing, current.getVersion())) {
+				listingResponseCache.invalidate(getDealerId(current), dealer.getId());
+				return listingMapper.toUpdateResponse(listing);
+			}
+		}
+	}
+
+	@Override
+	@Timed(OPERATIONS)
+	public PageResponse<ListingGetResponse> getListing(UUID dealerId, ListingState state, ListingSort sort, Integer limit, String cursor) {
+		val order = sort == null ? ListingSort.createdAt : sort;
+		val after = cursor == null ? null : CursorCodec.decode(order, cursor);
+		val listings = listingRepository.findByDealerAndState(dealerId, state, order, after, limit == null ? Integer.MAX_VALUE : limit + 1);
+		return listingPage(listings, order, limit);
+	}
+
+	@Override
+	@Timed(OPERATIONS)
+	public PageResponse<ListingGetResponse> searchListings(String query, UUID dealerId, Double minPrice, Double maxPrice, Integer limit, String cursor) {
+		val after = cursor == null ? null : CursorCodec.decode(ListingSort.price, cursor);
+		val max = limit == null ? Integer.MAX_VALUE : limit + 1;
+		val listings = query == null || query.isBlank()
+				? listingRepository.findPublishedByPrice(dealerId, minPrice, maxPrice, after, max)
+				: listingRepository.findPublishedByVehicle(query, dealerId, minPrice, maxPrice, after, max);
+		return listingPage(listings, ListingSort.price, limit);
+	}
+
+	/**
+	 * Page of the listings read with one more than the limit, the extra listing tells there is a next page.
+	 */
+	private PageResponse<ListingGetResponse> listingPage(List<Listing> listings, ListingSort order, Integer limit) {
+		val hasNext = limit != null && listings.size() > limit;
+		val page = hasNext ? listings.subList(0, limit) : listings;
+		val nextCursor = hasNext ? CursorCodec.encode(order, page.get(page.size() - 1)) : null;
+		return PageResponse.<ListingGetResponse>builder().items(listingMapper.toGetResponses(page)).nextCursor(nextCursor).build();
+	}
+
+	/**
+	 * The tag is the epoch and the version of the dealer's listings, a single lookup.
+	 */
+	@Override
+	@Timed(OPERATIONS)
+	public String getListingTag(UUID dealerId) {
+		return epoch + "-" + listingRepository.findVersion(dealerId);
+	}
+
+	@Override
+	public Stream<ListingGetResponse> exportListings(UUID dealerId, ListingState state) {
+		return listingRepository.stream(dealerId, state).map(listingMapper::toGetResponse);
 	}
 
 	/**
@@ -138,13 +379,24 @@ public class VehicleAdvertisementServiceImpl implements VehicleAdvertisementServ
 	 * - if showErrorLimitIsReached is true and dealer's tier limit has been exceeded
 	 * throw an error to client opposite case if only dealer's tier limit has been exceeded
 	 * publish a listing, but unpublish the oldest listing of a dealer.
+	 * The whole process holds the dealer's lock, so concurrent publications can not exceed the tier limit.
+	 * With a time the publication is scheduled and the same rules apply once due.
 	 */
 	@Override
+	@Timed(OPERATIONS)
 	public void publishListing(ListingPublishRequest request) {
-		Listing listing = listingRepository.findById(request.getId());
-		if(listing == null) {
-			throw new ListingNotFoundException(request.getId());
+		if(request.getAt() != null) {
+			schedule(ListingStateRequest.builder().id(request.getId()).state(ListingState.published)
+					.showErrorLimitIsReached(request.isShowErrorLimitIsReached()).build(), request.getAt());
+			return;
 		}
+		executeInDealerLock(request.getId(), listing-> publish(listing, request));
+	}
+	
+	/**
+	 * @return the published copy of the listing, null if a listing was changed meanwhile
+	 */
+	private Listing publish(Listing listing, ListingPublishRequest request) {
 		if(listing.getDealer() == null) {
 			throw new DealerNotFoundException();
 		}
@@ -154,61 +406,361 @@ public class VehicleAdvertisementServiceImpl implements VehicleAdvertisementServ
 			throw new DealerNotFoundException(listing.getDealer().getId());
 		}
 		
-		val total = totalListingPublished(listing.getDealer().getId(), listing.getId());
+		val total = totalListingPublished(listing);
 		
 		if(total >= dealer.getTierLimit()) {
 			if(request.isShowErrorLimitIsReached()) {
+				count(tierLimitRejections);
 				throw new TierLimitHasBeenExceededException(dealer.getTierLimit());
 			} else {
-				val lastListing = getLastListingPublished(listing.getDealer().getId());
-				lastListing.setState(ListingState.draft);
-				listingRepository.save(lastListing);
-				log.info("The previous listing was unpublished and the new was published");
+				val lastListing = getLastListingPublished(listing);
+				if(lastListing != null) {
+					if(!listingRepository.compareAndSave(nextVersion(lastListing).state(ListingState.draft).build(), lastListing.getVersion())) {
+						return null;
+					}
+					count(tierLimitEvictions);
+					log.info("The previous listing was unpublished and the new was published");
+				}
 			}
 		}
-		listing.setPublishedAt(LocalDateTime.now());
-		listing.setState(ListingState.published);
-		listingRepository.save(listing);
+		val published = nextVersion(listing).publishedAt(LocalDateTime.now()).state(ListingState.published).build();
+		return listingRepository.compareAndSave(published, listing.getVersion()) ? published : null;
 	}
 
 	@Override
+	@Timed(OPERATIONS)
 	public void unpublishListing(ListingUnpublishRequest request) {
-		val listing = listingRepository.findById(request.getId());
-		if(listing == null) {
+		if(request.getAt() != null) {
+			schedule(ListingStateRequest.builder().id(request.getId()).state(ListingState.draft).build(), request.getAt());
+			return;
+		}
+		executeInDealerLock(request.getId(), this::unpublish);
+	}
+
+	@Override
+	@Timed(OPERATIONS)
+	public void cancelSchedule(UUID id, ListingState state) {
+		if(!listingScheduler.cancel(id, state)) {
+			throw new ListingScheduleNotFoundException(id);
+		}
+	}
+
+	/**
+	 * Schedule a change of an existing listing, it is applied by {@link #changeListingStates(List)} once due.
+	 */
+	private void schedule(ListingStateRequest request, LocalDateTime at) {
+		if(listingRepository.findById(request.getId()) == null) {
 			throw new ListingNotFoundException(request.getId());
 		}
-		listing.setPublishedAt(null);
-		listing.setState(ListingState.draft);
-		listingRepository.save(listing);
+		listingScheduler.schedule(request, at);
+	}
+	
+	/**
+	 * @return the unpublished copy of the listing, null if it was changed meanwhile
+	 */
+	private Listing unpublish(Listing listing) {
+		val unpublished = nextVersion(listing).publishedAt(null).state(ListingState.draft).build();
+		return listingRepository.compareAndSave(unpublished, listing.getVersion()) ? unpublished : null;
+	}
+	
+	/**
+	 * Copy of a saved listing with the next version, saved listings are never changed.
+	 */
+	private static Listing.ListingBuilder nextVersion(Listing listing) {
+		return listing.toBuilder().version(listing.getVersion() + 1);
+	}
+
+	/**
+	 * Change the state of a batch of listings, the following steps are executed:
+	 * - every request is validated and its listing is read, invalid requests are reported and skipped
+	 * - requests are grouped by the dealer of their listing, groups run in parallel
+	 * - holding the dealer's lock, its published listings are read once and the requests are applied
+	 * over them in order with the same tier limit rules of a single publish, every changed listing is saved once
+	 * if it was not changed meanwhile, otherwise its requests are reported as conflicts
+	 * - requests of listings moved to another dealer meanwhile are applied one by one
+	 */
+	@Override
+	@Timed(OPERATIONS)
+	public List<BatchItemResponse<ListingGetResponse>> changeListingStates(List<ListingStateRequest> requests) {
+		val results = new ArrayList<BatchItemResponse<ListingGetResponse>>(Collections.nCopies(requests.size(), null));
+		val byDealer = new LinkedHashMap<UUID, List<Integer>>();
+		for(int i = 0; i < requests.size(); i++) {
+			val request = requests.get(i);
+			if(request == null) {
+				results.set(i, failure(i, HttpStatus.BAD_REQUEST, "Request is empty"));
+				continue;
+			}
+			val violations = validator.validate(request);
+			if(!violations.isEmpty()) {
+				results.set(i, failure(i, HttpStatus.BAD_REQUEST, invalidArguments(violations)));
+				continue;
+			}
+			val listing = listingRepository.findById(request.getId());
+			if(listing == null) {
+				results.set(i, failure(i, new ListingNotFoundException(request.getId())));
+				continue;
+			}
+			byDealer.computeIfAbsent(getDealerId(listing), item-> new ArrayList<Integer>()).add(i);
+		}
+		// the first group runs on the caller's thread, the others on the batch executor
+		val groups = new ArrayList<Map.Entry<UUID, List<Integer>>>(byDealer.entrySet());
+		val futures = new ArrayList<Future<?>>(groups.size());
+		for(int i = 1; i < groups.size(); i++) {
+			val group = groups.get(i);
+			futures.add(batchExecutor.submit(()-> changeListingStates(group.getKey(), group.getValue(), requests, results)));
+		}
+		if(!groups.isEmpty()) {
+			changeListingStates(groups.get(0).getKey(), groups.get(0).getValue(), requests, results);
+		}
+		for(val future : futures) {
+			await(future);
+		}
+		return results;
+	}
+
+	@PreDestroy
+	public void stop() {
+		batchExecutor.shutdown();
+	}
+
+	private void changeListingStates(UUID dealerId, List<Integer> indexes, List<ListingStateRequest> requests,
+			List<BatchItemResponse<ListingGetResponse>> results) {
+		val moved = new ArrayList<Integer>();
+		try(StripedLocks.Held held = dealerLocks.acquire(dealerId)) {
+			val dealer = dealerId == null ? null : dealerRepository.findById(dealerId);
+			val published = new ArrayDeque<Listing>(dealerId == null ? List.<Listing>of()
+					: listingRepository.findByDealerAndState(dealerId, ListingState.published, ListingSort.publishedAt, null, Integer.MAX_VALUE));
+			// copies of the listings changed by the batch, they are saved once it is applied
+			val changed = new LinkedHashMap<UUID, Listing>();
+			val evicted = new HashSet<UUID>();
+			val applied = new LinkedHashMap<Integer, UUID>();
+			for(val index : indexes) {
+				val request = requests.get(index);
+				val listing = changed.containsKey(request.getId()) ? changed.get(request.getId()) : listingRepository.findById(request.getId());
+				if(listing == null || !Objects.equals(dealerId, getDealerId(listing))) {
+					moved.add(index);
+					continue;
+				}
+				try {
+					val copy = ListingState.published.equals(request.getState())
+							? publish(listing, dealer, request.isShowErrorLimitIsReached(), published, changed, evicted)
+							: unpublish(listing, published, changed);
+					results.set(index, success(index, listingMapper.toGetResponse(copy)));
+					applied.put(index, copy.getId());
+				} catch (RuntimeException e) {
+					results.set(index, failure(index, e));
+				}
+			}
+			// only updates change the dealer's listings without its lock and they unpublish them, so
+			// the tier limit holds even when the copy of an evicted listing is not saved
+			val conflicts = new HashSet<UUID>();
+			for(val listing : changed.values()) {
+				if(!listingRepository.compareAndSave(listing, listing.getVersion() - 1)) {
+					conflicts.add(listing.getId());
+				}
+			}
+			for(val id : evicted) {
+				if(!conflicts.contains(id) && ListingState.draft.equals(changed.get(id).getState())) {
+					count(tierLimitEvictions);
+				}
+			}
+			for(val entry : applied.entrySet()) {
+				if(conflicts.contains(entry.getValue())) {
+					val current = listingRepository.findById(entry.getValue());
+					results.set(entry.getKey(), failure(entry.getKey(), current == null ? new ListingNotFoundException(entry.getValue())
+							: new ListingVersionConflictException(entry.getValue(), current.getVersion())));
+				}
+			}
+		}
+		listingResponseCache.invalidate(dealerId);
+		for(val index : moved) {
+			results.set(index, changeListingState(index, requests.get(index)));
+		}
+	}
+
+	private BatchItemResponse<ListingGetResponse> changeListingState(int index, ListingStateRequest request) {
+		try {
+			Listing listing;
+			if(ListingState.published.equals(request.getState())) {
+				val publishRequest = ListingPublishRequest.builder().id(request.getId()).showErrorLimitIsReached(request.isShowErrorLimitIsReached()).build();
+				listing = executeInDealerLock(request.getId(), item-> publish(item, publishRequest));
+			} else {
+				listing = executeInDealerLock(request.getId(), this::unpublish);
+			}
+			return success(index, listingMapper.toGetResponse(listing));
+		} catch (RuntimeException e) {
+			return failure(index, e);
+		}
+	}
+
+	/**
+	 * Publish a listing over the published listings of its dealer, ordered by publication date,
+	 * with the same rules of {@link #publish(Listing, ListingPublishRequest)} but without saving it.
+	 * The listings unpublished to make room are added to evicted, they are counted once saved.
+	 * @return the published copy of the listing
+	 */
+	private Listing publish(Listing listing, Dealer dealer, boolean showErrorLimitIsReached, Deque<Listing> published,
+			Map<UUID, Listing> changed, Set<UUID> evicted) {
+		if(dealer == null) {
+			throw listing.getDealer() == null ? new DealerNotFoundException() : new DealerNotFoundException(listing.getDealer().getId());
+		}
+		val wasPublished = published.stream().anyMatch(item-> item.getId().equals(listing.getId()));
+		val total = wasPublished ? published.size() - 1 : published.size();
+		if(total >= dealer.getTierLimit() && showErrorLimitIsReached) {
+			count(tierLimitRejections);
+			throw new TierLimitHasBeenExceededException(dealer.getTierLimit());
+		}
+		if(wasPublished) {
+			published.removeIf(item-> item.getId().equals(listing.getId()));
+		}
+		if(total >= dealer.getTierLimit()) {
+			val lastListing = published.pollLast();
+			if(lastListing != null) {
+				changed.put(lastListing.getId(), batchCopy(lastListing, changed).state(ListingState.draft).build());
+				evicted.add(lastListing.getId());
+			}
+		}
+		val copy = batchCopy(listing, changed).publishedAt(LocalDateTime.now()).state(ListingState.published).build();
+		published.addLast(copy);
+		changed.put(copy.getId(), copy);
+		return copy;
+	}
+
+	/**
+	 * @return the unpublished copy of the listing
+	 */
+	private Listing unpublish(Listing listing, Deque<Listing> published, Map<UUID, Listing> changed) {
+		published.removeIf(item-> item.getId().equals(listing.getId()));
+		val copy = batchCopy(listing, changed).publishedAt(null).state(ListingState.draft).build();
+		changed.put(copy.getId(), copy);
+		return copy;
+	}
+
+	/**
+	 * Copy of a listing changed by a batch, the copies of a listing all have the version next to the saved one.
+	 */
+	private static Listing.ListingBuilder batchCopy(Listing listing, Map<UUID, Listing> changed) {
+		return changed.containsKey(listing.getId()) ? listing.toBuilder() : nextVersion(listing);
+	}
+	
+	/**
+	 * Run an action over a listing holding the lock of its dealer. The listing is read again once
+	 * the lock is held, and the lock is acquired again if its dealer was changed meanwhile. The action
+	 * returns null when a listing was changed before its copy was saved, it is then run again over the
+	 * current listing. The cached pages of the dealer are dropped once the action is done.
+	 */
+	private <T> T executeInDealerLock(UUID listingId, Function<Listing, T> action) {
+		while(true) {
+			val listing = listingRepository.findById(listingId);
+			if(listing == null) {
+				throw new ListingNotFoundException(listingId);
+			}
+			val dealerId = getDealerId(listing);
+			try(StripedLocks.Held held = dealerLocks.acquire(dealerId)) {
+				val current = listingRepository.findById(listingId);
+				if(current != null && Objects.equals(dealerId, getDealerId(current))) {
+					val result = action.apply(current);
+					if(result != null) {
+						listingResponseCache.invalidate(dealerId);
+						return result;
+					}
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		tierLimitEvictions = Counter.builder("listings.tier.limit")
+				.description("Publications over the tier limit of the dealer")
+				.tag("outcome", "evicted")
+				.register(registry);
+		tierLimitRejections = Counter.builder("listings.tier.limit")
+				.description("Publications over the tier limit of the dealer")
+				.tag("outcome", "rejected")
+				.register(registry);
+	}
+	
+	/**
+	 * Wait for a group of a batch, its failures are already in the results unless the group failed as a whole.
+	 */
+	private static void await(Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a batch", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static ThreadPoolExecutor newBatchExecutor() {
+		val threads = Runtime.getRuntime().availableProcessors();
+		val counter = new AtomicInteger();
+		val executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable-> {
+			val thread = new Thread(runnable, "listing-state-batch-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static void count(Counter counter) {
+		if(counter != null) {
+			counter.increment();
+		}
+	}
+	
+	private UUID getDealerId(Listing listing) {
+		return listing.getDealer() == null ? null : listing.getDealer().getId();
 	}
 	
 	private void validateIfRequestExist(ListingCreateRequest request) {
-		val listing = listingRepository.findAll();
-		val result = listing.stream().anyMatch(item-> request.getDealerId().equals(item.getDealer().getId())
-				&& request.getVehicle().equalsIgnoreCase(item.getVehicle())
-				&& request.getPrice().equals(item.getPrice()));
-		if(result) {
+		val listing = listingRepository.findByDealerAndVehicleAndPrice(request.getDealerId(), request.getVehicle(), request.getPrice());
+		if(listing != null) {
 			throw new ListingAlreadyExistsException(request.getDealerId(), request.getVehicle(), request.getPrice());
 		}
 	}
 	
-	private long totalListingPublished(UUID dealerId, UUID id) {
-		return listingRepository.findAll().stream().filter(item-> dealerId.equals(item.getDealer().getId())
-				&& ListingState.published.equals(item.getState())
-				&& !id.equals(item.getId())).count();
+	/**
+	 * Total of listings published by the dealer of the listing, without counting the listing itself.
+	 */
+	private long totalListingPublished(Listing listing) {
+		val total = listingRepository.countByDealerAndState(listing.getDealer().getId(), ListingState.published);
+		return ListingState.published.equals(listing.getState()) ? total - 1 : total;
 	}
 	
-	private Listing getLastListingPublished(UUID dealerId) {
-		return listingRepository.findAll().stream().filter(item-> dealerId.equals(item.getDealer().getId())
-				&& ListingState.published.equals(item.getState()) && item.getPublishedAt() != null)
-				.sorted(Comparator.comparing(Listing::getPublishedAt).reversed())
-				.findFirst().orElseThrow();
+	private Listing getLastListingPublished(Listing listing) {
+		return listingRepository.findLastPublished(listing.getDealer().getId(), listing.getId());
+	}
+
+	private <T> BatchItemResponse<T> success(int index, T item) {
+		return BatchItemResponse.<T>builder().index(index).status(HttpStatus.OK).code(HttpStatus.OK.value()).item(item).build();
+	}
+
+	/**
+	 * Failure of a batch item with the status the exception would have had as a single request.
+	 */
+	private <T> BatchItemResponse<T> failure(int index, RuntimeException exception) {
+		val responseStatus = exception.getClass().getAnnotation(ResponseStatus.class);
+		val status = responseStatus == null ? HttpStatus.INTERNAL_SERVER_ERROR : responseStatus.value();
+		return failure(index, status, exception.getMessage());
+	}
+
+	private <T> BatchItemResponse<T> failure(int index, HttpStatus status, String message) {
+		return BatchItemResponse.<T>builder().index(index).status(status).code(status.value()).message(message).build();
 	}
 
-	private void validateIfExistDealer(DealerCreateRequest request) {
-		val exists = dealerRepository.findAll().stream().anyMatch(item-> item.getName().equalsIgnoreCase(request.getName()));
-		if(exists) {
-			throw new DealerAlreadyExistsException(request.getName());
+	private String invalidArguments(Set<? extends ConstraintViolation<?>> violations) {
+		val sb = new StringBuilder("Invalid arguments:");
+		for(val violation : violations) {
+			sb.append(String.format(" [%s %s] ", violation.getPropertyPath(), violation.getMessage()));
 		}
+		return sb.toString();
 	}
 }
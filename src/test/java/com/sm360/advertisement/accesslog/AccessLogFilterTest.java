@@ -0,0 +1,80 @@
+package com.sm360.advertisement.accesslog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.sm360.advertisement.exception.ListingNotFoundException;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import lombok.val;
+
+class AccessLogFilterTest {
+
+	AccessLogProperties properties;
+
+	AccessLogFilter accessLogFilter;
+
+	ListAppender<ILoggingEvent> appender;
+
+	@BeforeEach
+	void setUp() {
+		this.properties = new AccessLogProperties();
+		this.accessLogFilter = new AccessLogFilter();
+		this.accessLogFilter.accessLog = new AccessLog(properties);
+		this.appender = new ListAppender<ILoggingEvent>();
+		this.appender.start();
+		((Logger) LoggerFactory.getLogger("access")).addAppender(appender);
+	}
+
+	@AfterEach
+	void tearDown() {
+		((Logger) LoggerFactory.getLogger("access")).detachAppender(appender);
+	}
+
+	@Test
+	void logRequestTest() throws Exception {
+		properties.setSampleRate(1);
+		val request = new MockHttpServletRequest("GET", "/vehicle-advertisement/listing");
+		request.setQueryString("dealerId=1&state=draft");
+		request.addHeader(AccessLog.REQUEST_ID_HEADER, "request-1");
+		request.setAttribute(AccessLog.ERROR_ATTRIBUTE, ListingNotFoundException.class);
+		val response = new MockHttpServletResponse();
+		response.setStatus(404);
+
+		accessLogFilter.doFilter(request, response, new MockFilterChain());
+
+		assertThat(appender.list).hasSize(1);
+		assertThat(appender.list.get(0).getFormattedMessage())
+				.startsWith("method=GET path=/vehicle-advertisement/listing query=dealerId=1&state=draft status=404 durationUs=")
+				.endsWith("error=ListingNotFoundException requestId=request-1");
+	}
+
+	@Test
+	void sampleRequestsTest() throws Exception {
+		properties.setSampleRate(0);
+		accessLogFilter.doFilter(new MockHttpServletRequest("GET", "/vehicle-advertisement/dealer"), new MockHttpServletResponse(), new MockFilterChain());
+		assertThat(appender.list).isEmpty();
+
+		val response = new MockHttpServletResponse();
+		response.setStatus(500);
+		accessLogFilter.doFilter(new MockHttpServletRequest("GET", "/vehicle-advertisement/dealer"), response, new MockFilterChain());
+		assertThat(appender.list).hasSize(1);
+	}
+
+	@Test
+	void disabledTest() throws Exception {
+		properties.setEnabled(false);
+		properties.setSampleRate(1);
+		accessLogFilter.doFilter(new MockHttpServletRequest("GET", "/vehicle-advertisement/dealer"), new MockHttpServletResponse(), new MockFilterChain());
+		assertThat(appender.list).isEmpty();
+	}
+}
@@ -0,0 +1,159 @@
+package com.sm360.advertisement.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.sm360.advertisement.dto.BatchItemResponse;
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingCreateResponse;
+import com.sm360.advertisement.dto.ListingGetResponse;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.errorhandling.ReactiveRestExceptionHandler;
+import com.sm360.advertisement.exception.ListingNotFoundException;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.service.ReactiveVehicleAdvertisementServiceImpl;
+import com.sm360.advertisement.service.VehicleAdvertisementService;
+
+import lombok.val;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveVehicleAdvertisementControllerTest {
+
+	@InjectMocks
+	private ReactiveVehicleAdvertisementServiceImpl reactiveVehicleAdvertisementService;
+
+	@Mock
+	private VehicleAdvertisementService vehicleAdvertisementService;
+
+	@Captor
+	private ArgumentCaptor<List<ListingCreateRequest>> requestsCaptor;
+
+	private WebTestClient webTestClient;
+
+	@BeforeEach
+	void setUp() {
+		val controller = new ReactiveVehicleAdvertisementController();
+		controller.vehicleAdvertisementService = reactiveVehicleAdvertisementService;
+		this.webTestClient = WebTestClient.bindToController(controller)
+				.controllerAdvice(new ReactiveRestExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void getListingTest() {
+		val dealerId = UUID.randomUUID();
+		val listings = List.of(
+				ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Toyota").price(100.0).state(ListingState.draft).build(),
+				ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Honda").price(200.0).state(ListingState.draft).build());
+
+		when(vehicleAdvertisementService.getListingTag(dealerId)).thenReturn("epoch-1");
+		when(vehicleAdvertisementService.getListing(dealerId, ListingState.draft, null, 2, null))
+			.thenReturn(PageResponse.<ListingGetResponse>builder().items(listings).nextCursor("cursor").build());
+
+		webTestClient.get()
+				.uri("/vehicle-advertisement/listing?dealerId={dealerId}&state={state}&limit=2", dealerId, ListingState.draft)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.ETAG, "\"epoch-1\"")
+				.expectHeader().valueEquals(VehicleAdvertisementController.NEXT_CURSOR_HEADER, "cursor")
+				.expectBodyList(ListingGetResponse.class).hasSize(2);
+	}
+
+	@Test
+	void getListingNotModifiedTest() {
+		val dealerId = UUID.randomUUID();
+
+		when(vehicleAdvertisementService.getListingTag(dealerId)).thenReturn("epoch-1");
+
+		webTestClient.get()
+				.uri("/vehicle-advertisement/listing?dealerId={dealerId}&state={state}", dealerId, ListingState.draft)
+				.header(HttpHeaders.IF_NONE_MATCH, "\"epoch-1\"")
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectBody().isEmpty();
+		verify(vehicleAdvertisementService, never()).getListing(any(), any(), any(), any(), any());
+	}
+
+	@Test
+	void exportListingsTest() {
+		val dealerId = UUID.randomUUID();
+		val listings = Stream.of(
+				ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Toyota").price(100.0).state(ListingState.published).build(),
+				ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Honda").price(200.0).state(ListingState.published).build());
+
+		when(vehicleAdvertisementService.exportListings(dealerId, ListingState.published)).thenReturn(listings);
+
+		val response = webTestClient.get()
+				.uri("/vehicle-advertisement/listing/export?dealerId={dealerId}&state={state}", dealerId, ListingState.published)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(ListingGetResponse.class)
+				.getResponseBody()
+				.collectList()
+				.block();
+
+		assertThat(response).hasSize(2);
+		assertThat(response.get(1).getVehicle()).isEqualTo("Honda");
+	}
+
+	@Test
+	void saveListingsNdjsonTest() {
+		val dealerId = UUID.randomUUID();
+		val body = String.format("{\"dealerId\":\"%s\",\"vehicle\":\"Toyota\",\"price\":100}\n"
+				+ "{\"dealerId\":\"%s\",\"vehicle\":\"Honda\",\"price\":200}\n", dealerId, dealerId);
+
+		when(vehicleAdvertisementService.saveListings(requestsCaptor.capture())).thenReturn(List.of(
+				BatchItemResponse.<ListingCreateResponse>builder().index(0).status(HttpStatus.OK).code(200).build(),
+				BatchItemResponse.<ListingCreateResponse>builder().index(1).status(HttpStatus.OK).code(200).build()));
+
+		webTestClient.post()
+				.uri("/vehicle-advertisement/listing/batch")
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.bodyValue(body)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.length()").isEqualTo(2);
+
+		assertThat(requestsCaptor.getValue()).extracting(ListingCreateRequest::getVehicle).containsExactly("Toyota", "Honda");
+	}
+
+	@Test
+	void publishListingNotFoundTest() {
+		val request = ListingPublishRequest.builder().id(UUID.randomUUID()).build();
+
+		doThrow(new ListingNotFoundException(request.getId())).when(vehicleAdvertisementService).publishListing(request);
+
+		webTestClient.post()
+				.uri("/vehicle-advertisement/listing/publish")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(request)
+				.exchange()
+				.expectStatus().isNotFound()
+				.expectBody().jsonPath("$.code").isEqualTo(404);
+	}
+}
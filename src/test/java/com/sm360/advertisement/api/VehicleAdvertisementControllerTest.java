@@ -1,27 +1,53 @@
 package com.sm360.advertisement.api;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
 import com.sm360.advertisement.dto.DealerCreateRequest;
+import com.sm360.advertisement.dto.DealerGetResponse;
+import com.sm360.advertisement.dto.DealerStatsResponse;
 import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.dto.ListingGetResponse;
 import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
 import com.sm360.advertisement.dto.ListingUnpublishRequest;
 import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.dto.PageResponse;
+import com.sm360.advertisement.model.ListingSort;
 import com.sm360.advertisement.model.ListingState;
 import com.sm360.advertisement.service.VehicleAdvertisementService;
 
@@ -36,6 +62,9 @@ class VehicleAdvertisementControllerTest {
 	@Mock
 	private VehicleAdvertisementService vehicleAdvertisementService; 
 	
+	@Captor
+	private ArgumentCaptor<List<ListingCreateRequest>> requestsCaptor;
+	
 	private MockMvc mockMvc;
 	
 	private ObjectMapper mapper;
@@ -44,6 +73,8 @@ class VehicleAdvertisementControllerTest {
 	void setUp() {
 		this.mockMvc = MockMvcBuilders.standaloneSetup(vehicleAdvertisementController).build();
 		this.mapper = new ObjectMapper();
+		ReflectionTestUtils.setField(vehicleAdvertisementController, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+		ReflectionTestUtils.setField(vehicleAdvertisementController, "listingResponseCache", new ListingResponseCache(new ListingCacheProperties()));
 	}
 	
 	@Test
@@ -69,6 +100,33 @@ class VehicleAdvertisementControllerTest {
 		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
 	}
 	
+	@ParameterizedTest
+	@ValueSource(strings = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+	void saveListingsTest(String contentType) throws Exception {
+		val url = "/vehicle-advertisement/listing/batch";
+		val listingCreateRequests = List.of(
+				ListingCreateRequest.builder().dealerId(UUID.randomUUID()).vehicle("Toyota").price(200.0).build(),
+				ListingCreateRequest.builder().dealerId(UUID.randomUUID()).vehicle("Honda").price(300.0).build());
+		
+		val json = MediaType.APPLICATION_JSON_VALUE.equals(contentType) ? mapper.writeValueAsString(listingCreateRequests)
+				: mapper.writeValueAsString(listingCreateRequests.get(0)) + "\n" + mapper.writeValueAsString(listingCreateRequests.get(1)) + "\n";
+		
+		when(vehicleAdvertisementService.saveListings(anyList())).thenReturn(List.of());
+		
+		val request = MockMvcRequestBuilders
+				.post(url)
+				.contentType(contentType)
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		verify(vehicleAdvertisementService).saveListings(requestsCaptor.capture());
+		assertThat(requestsCaptor.getValue()).isEqualTo(listingCreateRequests);
+	}
+	
 	@Test
 	void updateListingTest() throws Exception {
 		val url = "/vehicle-advertisement/listing";
@@ -95,7 +153,12 @@ class VehicleAdvertisementControllerTest {
 	
 	@Test
 	void getListingTest() throws Exception {
-		val url = String.format("/vehicle-advertisement/listing?dealerId=%s&state=%s", UUID.randomUUID(), ListingState.draft);
+		val dealerId = UUID.randomUUID();
+		val url = String.format("/vehicle-advertisement/listing?dealerId=%s&state=%s&sort=%s&limit=10", dealerId, ListingState.draft, ListingSort.price);
+		
+		when(vehicleAdvertisementService.getListingTag(dealerId)).thenReturn("epoch-1");
+		when(vehicleAdvertisementService.getListing(dealerId, ListingState.draft, ListingSort.price, 10, null))
+			.thenReturn(PageResponse.<ListingGetResponse>builder().items(List.of()).build());
 		
 		val request = MockMvcRequestBuilders
 				.get(url)
@@ -106,6 +169,108 @@ class VehicleAdvertisementControllerTest {
 				.andReturn().getResponse();
 		
 		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"epoch-1\"");
+	}
+	
+	@Test
+	void getListingFromCacheTest() throws Exception {
+		val dealerId = UUID.randomUUID();
+		val url = String.format("/vehicle-advertisement/listing?dealerId=%s&state=%s", dealerId, ListingState.draft);
+		val listings = List.of(ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Toyota").price(100.0).state(ListingState.draft).build());
+		
+		when(vehicleAdvertisementService.getListingTag(dealerId)).thenReturn("epoch-1");
+		when(vehicleAdvertisementService.getListing(dealerId, ListingState.draft, null, null, null))
+			.thenReturn(PageResponse.<ListingGetResponse>builder().items(listings).build());
+		
+		val first = mockMvc.perform(MockMvcRequestBuilders.get(url).accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		val second = mockMvc.perform(MockMvcRequestBuilders.get(url).accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		
+		assertThat(second.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString()).contains("Toyota");
+		verify(vehicleAdvertisementService, times(1)).getListing(dealerId, ListingState.draft, null, null, null);
+	}
+	
+	@Test
+	void getListingNotModifiedTest() throws Exception {
+		val dealerId = UUID.randomUUID();
+		val url = String.format("/vehicle-advertisement/listing?dealerId=%s&state=%s", dealerId, ListingState.draft);
+		
+		when(vehicleAdvertisementService.getListingTag(dealerId)).thenReturn("epoch-1");
+		
+		val request = MockMvcRequestBuilders
+				.get(url)
+				.header(HttpHeaders.IF_NONE_MATCH, "\"epoch-1\"")
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+		assertThat(response.getContentAsString()).isEmpty();
+		verify(vehicleAdvertisementService, never()).getListing(any(), any(), any(), any(), any());
+	}
+
+	@Test
+	void getListingGzipTest() throws Exception {
+		val properties = new ListingCacheProperties();
+		properties.setGzip(true);
+		properties.setGzipMinSize(DataSize.ofBytes(10));
+		ReflectionTestUtils.setField(vehicleAdvertisementController, "listingResponseCache", new ListingResponseCache(properties));
+		val dealerId = UUID.randomUUID();
+		val url = String.format("/vehicle-advertisement/listing?dealerId=%s&state=%s", dealerId, ListingState.draft);
+		val listings = List.of(ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Toyota").price(100.0).state(ListingState.draft).build());
+
+		when(vehicleAdvertisementService.getListingTag(dealerId)).thenReturn("epoch-1");
+		when(vehicleAdvertisementService.getListing(dealerId, ListingState.draft, null, null, null))
+			.thenReturn(PageResponse.<ListingGetResponse>builder().items(listings).build());
+
+		val gzip = mockMvc.perform(MockMvcRequestBuilders.get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip").accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		val identity = mockMvc.perform(MockMvcRequestBuilders.get(url).accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+		val notModified = mockMvc.perform(MockMvcRequestBuilders.get(url).header(HttpHeaders.IF_NONE_MATCH, "\"epoch-1\"")
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip").accept(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse();
+
+		assertThat(gzip.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(gzip.getHeader(HttpHeaders.ETAG)).isEqualTo("\"epoch-1" + VehicleAdvertisementController.GZIP_TAG_SUFFIX + "\"");
+		assertThat(gzip.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(identity.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(identity.getHeader(HttpHeaders.ETAG)).isEqualTo("\"epoch-1\"");
+		assertThat(identity.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(identity.getContentAsString()).contains("Toyota");
+		assertThat(notModified.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(notModified.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+	}
+
+	@Test
+	void exportListingsTest() throws Exception {
+		val dealerId = UUID.randomUUID();
+		val url = String.format("/vehicle-advertisement/listing/export?dealerId=%s&state=%s", dealerId, ListingState.published);
+		val listings = Stream.of(
+				ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Toyota").price(100.0).state(ListingState.published).build(),
+				ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Honda").price(200.0).state(ListingState.published).build());
+		
+		when(vehicleAdvertisementService.exportListings(dealerId, ListingState.published)).thenReturn(listings);
+		
+		val request = MockMvcRequestBuilders
+				.get(url)
+				.accept(MediaType.APPLICATION_NDJSON);
+		
+		val result = mockMvc.perform(request)
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+		val response = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+				.andReturn().getResponse();
+		
+		assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(VehicleAdvertisementController.EXPORT_TIMEOUT.toMillis());
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON_VALUE);
+		val lines = response.getContentAsString().split("\n");
+		assertThat(lines).hasSize(2);
+		assertThat(lines[1]).contains("\"vehicle\":\"Honda\"");
 	}
 	
 	@Test
@@ -151,6 +316,66 @@ class VehicleAdvertisementControllerTest {
 		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
 	}
 	
+	@Test
+	void scheduleListingTest() throws Exception {
+		val url = "/vehicle-advertisement/listing/publish";
+		val id = UUID.randomUUID();
+		val at = LocalDateTime.now().plusDays(1).withNano(0);
+		val json = "{\"id\":\"" + id + "\",\"showErrorLimitIsReached\":true,\"at\":\"" + at + "\"}";
+		
+		val request = MockMvcRequestBuilders
+				.post(url)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).isEqualTo("It was scheduled");
+		verify(vehicleAdvertisementService).publishListing(ListingPublishRequest.builder().id(id).showErrorLimitIsReached(true).at(at).build());
+	}
+	
+	@Test
+	void cancelScheduleTest() throws Exception {
+		val id = UUID.randomUUID();
+		val url = "/vehicle-advertisement/listing/" + id + "/schedule?state=draft";
+		
+		val request = MockMvcRequestBuilders
+				.delete(url)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		verify(vehicleAdvertisementService).cancelSchedule(id, ListingState.draft);
+	}
+	
+	@Test
+	void changeListingStatesTest() throws Exception {
+		val url = "/vehicle-advertisement/listing/state/batch";
+		val listingStateRequests = List.of(
+				ListingStateRequest.builder().id(UUID.randomUUID()).state(ListingState.published).showErrorLimitIsReached(true).build(),
+				ListingStateRequest.builder().id(UUID.randomUUID()).state(ListingState.draft).build());
+		
+		val json = mapper.writeValueAsString(listingStateRequests);
+		
+		when(vehicleAdvertisementService.changeListingStates(listingStateRequests)).thenReturn(List.of());
+		
+		val request = MockMvcRequestBuilders
+				.post(url)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+	}
+	
 	@Test
 	void saveDealerTest() throws Exception {
 		val url = "/vehicle-advertisement/dealer";
@@ -173,10 +398,32 @@ class VehicleAdvertisementControllerTest {
 		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
 	}
 
+	@Test
+	void searchListingsTest() throws Exception {
+		val url = "/vehicle-advertisement/listing/search?q=toyota&minPrice=15000&maxPrice=25000&limit=1";
+		val listing = ListingGetResponse.builder().id(UUID.randomUUID()).vehicle("Toyota").price(20000.0).state(ListingState.published).build();
+		
+		when(vehicleAdvertisementService.searchListings("toyota", null, 15000.0, 25000.0, 1, null))
+			.thenReturn(PageResponse.<ListingGetResponse>builder().items(List.of(listing)).nextCursor("next").build());
+		
+		val request = MockMvcRequestBuilders
+				.get(url)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader(VehicleAdvertisementController.NEXT_CURSOR_HEADER)).isEqualTo("next");
+		assertThat(response.getContentAsString()).contains("Toyota");
+	}
+	
 	@Test
 	void getAllDealersTest() throws Exception {
 		val url = "/vehicle-advertisement/dealer";
 		
+		when(vehicleAdvertisementService.getDealers(null, null, null)).thenReturn(PageResponse.<DealerGetResponse>builder().items(List.of()).build());
+		
 		val request = MockMvcRequestBuilders
 				.get(url)
 				.contentType(MediaType.APPLICATION_JSON)
@@ -187,4 +434,42 @@ class VehicleAdvertisementControllerTest {
 		
 		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
 	}
+	
+	@Test
+	void getDealersPageTest() throws Exception {
+		val url = "/vehicle-advertisement/dealer?prefix=toy&limit=1";
+		val dealer = DealerGetResponse.builder().id(UUID.randomUUID()).name("Toyota Group").build();
+		
+		when(vehicleAdvertisementService.getDealers("toy", 1, null)).thenReturn(PageResponse.<DealerGetResponse>builder().items(List.of(dealer)).nextCursor("next").build());
+		
+		val request = MockMvcRequestBuilders
+				.get(url)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getHeader(VehicleAdvertisementController.NEXT_CURSOR_HEADER)).isEqualTo("next");
+	}
+	
+	@Test
+	void getDealerStatsTest() throws Exception {
+		val id = UUID.randomUUID();
+		val url = "/vehicle-advertisement/dealer/" + id + "/stats";
+		val stats = DealerStatsResponse.builder().id(id).name("Toyota Group").draftListings(3).publishedListings(1)
+				.tierLimit(2).remainderTierLimit(1).averagePrice(20000.0).minPrice(20000.0).maxPrice(20000.0).build();
+		
+		when(vehicleAdvertisementService.getDealerStats(id)).thenReturn(stats);
+		
+		val request = MockMvcRequestBuilders
+				.get(url)
+				.accept(MediaType.APPLICATION_JSON);
+				
+		val response = mockMvc.perform(request)
+				.andReturn().getResponse();
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(response.getContentAsString()).contains("\"remainderTierLimit\":1").contains("\"averagePrice\":20000.0");
+	}
 }
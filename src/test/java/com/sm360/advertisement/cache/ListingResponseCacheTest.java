@@ -0,0 +1,70 @@
+package com.sm360.advertisement.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+
+class ListingResponseCacheTest {
+
+	@Test
+	void getAndInvalidateTest() {
+		val cache = new ListingResponseCache(new ListingCacheProperties());
+		val dealerId = UUID.randomUUID();
+		val query = new ListingResponseCache.Query(dealerId, ListingState.draft, null, null, null);
+		val other = new ListingResponseCache.Query(UUID.randomUUID(), ListingState.draft, null, null, null);
+		assertNull(cache.get(query, "epoch-1"));
+
+		cache.put(query, "epoch-1", "[]".getBytes(StandardCharsets.UTF_8), "cursor");
+		cache.put(other, "epoch-1", "[]".getBytes(StandardCharsets.UTF_8), null);
+		assertEquals("cursor", cache.get(query, "epoch-1").getNextCursor());
+		assertNull(cache.get(query, "epoch-2"));
+
+		cache.invalidate(dealerId, null);
+		assertNull(cache.get(query, "epoch-1"));
+		assertNotNull(cache.get(other, "epoch-1"));
+
+		val registry = new SimpleMeterRegistry();
+		cache.bindTo(registry);
+		assertEquals(2, registry.get("listing.cache.gets").tag("result", "hit").functionCounter().count());
+		assertEquals(3, registry.get("listing.cache.gets").tag("result", "miss").functionCounter().count());
+	}
+
+	@Test
+	void gzipTest() throws Exception {
+		val properties = new ListingCacheProperties();
+		properties.setGzip(true);
+		properties.setGzipMinSize(DataSize.ofBytes(10));
+		val cache = new ListingResponseCache(properties);
+		val body = "[{\"vehicle\":\"Toyota\"},{\"vehicle\":\"Toyota\"}]".getBytes(StandardCharsets.UTF_8);
+
+		val page = cache.put(new ListingResponseCache.Query(UUID.randomUUID(), ListingState.draft, null, null, null), "epoch-1", body, null);
+		try(GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(page.getGzipBody()))) {
+			assertArrayEquals(body, input.readAllBytes());
+		}
+		assertNull(cache.put(new ListingResponseCache.Query(UUID.randomUUID(), ListingState.draft, null, null, null), "epoch-1", new byte[2], null).getGzipBody());
+	}
+
+	@Test
+	void disabledTest() {
+		val properties = new ListingCacheProperties();
+		properties.setEnabled(false);
+		val cache = new ListingResponseCache(properties);
+		val query = new ListingResponseCache.Query(UUID.randomUUID(), ListingState.draft, null, null, null);
+		assertNotNull(cache.put(query, "epoch-1", new byte[2], null));
+		assertNull(cache.get(query, "epoch-1"));
+	}
+}
@@ -0,0 +1,58 @@
+package com.sm360.advertisement.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.sm360.advertisement.dto.ListingCreateRequest;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+
+import lombok.val;
+
+class ListingMapperTest {
+
+	ListingMapper listingMapper = new ListingMapper();
+
+	@Test
+	void toListingTest() {
+		val request = ListingCreateRequest.builder().dealerId(UUID.randomUUID()).vehicle("Toyota").price(100.0).build();
+		val listing = listingMapper.toListing(request);
+		assertEquals("Toyota", listing.getVehicle());
+		assertEquals(100.0, listing.getPrice());
+		assertNull(listing.getDealer());
+	}
+
+	@Test
+	void toResponsesTest() {
+		val listing = getListing();
+
+		val createResponse = listingMapper.toCreateResponse(listing);
+		assertEquals(listing.getId(), createResponse.getId());
+		assertEquals(listing.getDealer().getId(), createResponse.getDealerId());
+		assertEquals(listing.getCreatedAt(), createResponse.getCreatedAt());
+		assertEquals(listing.getState(), createResponse.getState());
+
+		val updateResponse = listingMapper.toUpdateResponse(listing);
+		assertEquals(listing.getDealer().getId(), updateResponse.getDealerId());
+		assertEquals(listing.getUpdatedAt(), updateResponse.getUpdatedAt());
+
+		val getResponses = listingMapper.toGetResponses(List.of(listing));
+		assertEquals(1, getResponses.size());
+		assertEquals(listing.getDealer().getName(), getResponses.get(0).getDealer().getName());
+		assertEquals(listing.getVehicle(), getResponses.get(0).getVehicle());
+		assertEquals(listing.getPrice(), getResponses.get(0).getPrice());
+	}
+
+	private Listing getListing() {
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(1).build();
+		return Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota").price(100.0)
+				.createdAt(LocalDateTime.now()).updatedAt(LocalDateTime.now()).state(ListingState.draft).build();
+	}
+}
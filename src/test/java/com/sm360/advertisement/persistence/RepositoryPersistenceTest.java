@@ -0,0 +1,129 @@
+package com.sm360.advertisement.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+
+import lombok.val;
+
+class RepositoryPersistenceTest {
+
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest
+	@EnumSource(FsyncPolicy.class)
+	void recoverTest(FsyncPolicy fsync) throws Exception {
+		val persistence = start(fsync);
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(2).build();
+		persistence.dealerRepository.save(dealer);
+		val listing = Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota").price(100.0)
+				.createdAt(LocalDateTime.now()).state(ListingState.draft).build();
+		persistence.listingRepository.save(listing);
+		persistence.snapshot();
+
+		val publishedAt = LocalDateTime.now();
+		val published = listing.toBuilder().publishedAt(publishedAt).state(ListingState.published).build();
+		persistence.listingRepository.save(published);
+		val other = Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Honda").state(ListingState.draft).build();
+		persistence.listingRepository.save(other);
+		persistence.stop();
+
+		val recovered = start(fsync);
+		assertEquals(dealer, recovered.dealerRepository.findByName("toyota group"));
+		assertEquals(published, recovered.listingRepository.findById(listing.getId()));
+		assertEquals(publishedAt, recovered.listingRepository.findLastPublished(dealer.getId(), null).getPublishedAt());
+		assertNull(recovered.listingRepository.findById(other.getId()).getPrice());
+		assertEquals(1, WriteAheadLog.numbers(directory, "snapshot-", ".bin").size());
+		recovered.stop();
+	}
+
+	@Test
+	void incompleteRecordIsDiscardedTest() throws Exception {
+		val persistence = start(FsyncPolicy.always);
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(2).build();
+		persistence.dealerRepository.save(dealer);
+		persistence.stop();
+
+		val segments = WriteAheadLog.segments(directory);
+		val last = WriteAheadLog.segmentPath(directory, segments.get(segments.size() - 1));
+		val size = Files.size(last);
+		Files.write(last, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+		val records = new ArrayList<Byte>();
+		assertEquals(size, WriteAheadLog.read(last, (type, payload)-> records.add(type)));
+		assertEquals(1, records.size());
+
+		val recovered = start(FsyncPolicy.always);
+		assertEquals(dealer, recovered.dealerRepository.findById(dealer.getId()));
+		assertEquals(size, Files.size(last));
+		recovered.stop();
+	}
+
+	@Test
+	void incompleteSnapshotIsDeletedTest() throws Exception {
+		val persistence = start(FsyncPolicy.always);
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(2).build();
+		persistence.dealerRepository.save(dealer);
+		persistence.stop();
+		val temporary = directory.resolve(String.format("snapshot-%020d.tmp", 7));
+		Files.write(temporary, new byte[] {0, 0, 0, 42, 1, 2});
+
+		val recovered = start(FsyncPolicy.always);
+		assertEquals(dealer, recovered.dealerRepository.findById(dealer.getId()));
+		assertFalse(Files.exists(temporary));
+		recovered.stop();
+	}
+
+	@Test
+	void recordCodecTest() {
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(2).build();
+		val listing = Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota Ñ").price(100.5)
+				.createdAt(LocalDateTime.now()).updatedAt(LocalDateTime.now()).state(ListingState.published).version(3).build();
+		assertEquals(dealer, RecordCodec.decodeDealer(ByteBuffer.wrap(RecordCodec.encode(dealer))));
+		val encoded = ByteBuffer.wrap(RecordCodec.encode(listing));
+		assertEquals(listing, RecordCodec.decodeListing(encoded, id-> dealer));
+		assertEquals(0, encoded.remaining());
+		val empty = Listing.builder().id(UUID.randomUUID()).build();
+		assertEquals(empty, RecordCodec.decodeListing(ByteBuffer.wrap(RecordCodec.encode(empty)), id-> null));
+		assertTrue(RecordCodec.encode(empty).length > 0);
+		val truncated = RecordCodec.encode(listing);
+		assertThrows(BufferUnderflowException.class, ()-> RecordCodec.decodeListing(ByteBuffer.wrap(truncated, 0, truncated.length - 1), id-> dealer));
+	}
+
+	private RepositoryPersistence start(FsyncPolicy fsync) throws Exception {
+		val properties = new PersistenceProperties();
+		properties.setDirectory(directory.toString());
+		properties.setFsync(fsync);
+		properties.setFsyncInterval(Duration.ofMillis(10));
+		val persistence = new RepositoryPersistence();
+		persistence.properties = properties;
+		persistence.dealerRepository = new DealerCacheRepository();
+		persistence.listingRepository = new ListingCacheRepository();
+		persistence.start();
+		return persistence;
+	}
+}
@@ -0,0 +1,101 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sm360.advertisement.exception.DealerAlreadyExistsException;
+import com.sm360.advertisement.model.Dealer;
+
+import lombok.val;
+
+class DealerCacheRepositoryTest {
+
+	DealerCacheRepository dealerCacheRepository;
+
+	@BeforeEach
+	void setUp() {
+		this.dealerCacheRepository = new DealerCacheRepository();
+		for(val name : new String[] {"Toyota Group", "toyota Motors", "Honda Group", "Tesla"}) {
+			dealerCacheRepository.save(Dealer.builder().id(UUID.randomUUID()).name(name).tierLimit(2).build());
+		}
+	}
+
+	@Test
+	void findByNameTest() {
+		assertEquals("Toyota Group", dealerCacheRepository.findByName("TOYOTA GROUP").getName());
+		assertNull(dealerCacheRepository.findByName("Toyota"));
+	}
+
+	@Test
+	void findByNamePrefixTest() {
+		assertEquals(2, dealerCacheRepository.findByNamePrefix("TOY", null, 10).size());
+		assertEquals(4, dealerCacheRepository.findByNamePrefix(null, null, 10).size());
+		assertTrue(dealerCacheRepository.findByNamePrefix("Ford", null, 10).isEmpty());
+
+		val firstPage = dealerCacheRepository.findByNamePrefix("t", null, 2);
+		assertEquals(List.of("Tesla", "Toyota Group"), names(firstPage));
+		val secondPage = dealerCacheRepository.findByNamePrefix("t", firstPage.get(1).getName(), 2);
+		assertEquals(List.of("toyota Motors"), names(secondPage));
+	}
+
+	@Test
+	void saveSameNameTest() {
+		val dealer = dealerCacheRepository.findByName("Tesla");
+		assertThrows(DealerAlreadyExistsException.class,
+				()-> dealerCacheRepository.save(Dealer.builder().id(UUID.randomUUID()).name("TESLA").tierLimit(1).build()));
+		assertEquals(dealer, dealerCacheRepository.findByName("tesla"));
+		assertEquals(4, dealerCacheRepository.findAll().size());
+
+		dealerCacheRepository.save(Dealer.builder().id(dealer.getId()).name("Tesla Motors").tierLimit(dealer.getTierLimit()).build());
+		assertNull(dealerCacheRepository.findByName("Tesla"));
+		assertEquals(List.of("Tesla Motors"), names(dealerCacheRepository.findByNamePrefix("tesla", null, 10)));
+	}
+
+	@Test
+	void saveSameNameConcurrentlyTest() throws Exception {
+		val threads = 8;
+		val executor = Executors.newFixedThreadPool(threads);
+		try {
+			val start = new CountDownLatch(1);
+			val futures = new ArrayList<Future<Boolean>>();
+			for(int i = 0; i < threads; i++) {
+				futures.add(executor.submit(()-> {
+					start.await();
+					try {
+						dealerCacheRepository.save(Dealer.builder().id(UUID.randomUUID()).name("Ford Group").tierLimit(1).build());
+						return true;
+					} catch (DealerAlreadyExistsException e) {
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+			int saved = 0;
+			for(val future : futures) {
+				saved += future.get() ? 1 : 0;
+			}
+			assertEquals(1, saved);
+			assertEquals(5, dealerCacheRepository.findAll().size());
+			assertEquals(dealerCacheRepository.findByName("ford group"), dealerCacheRepository.findByNamePrefix("ford", null, 10).get(0));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private List<String> names(List<Dealer> dealers) {
+		return dealers.stream().map(Dealer::getName).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,315 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+
+class ListingCacheRepositoryTest {
+
+	ListingCacheRepository listingCacheRepository;
+
+	Dealer dealer;
+
+	@BeforeEach
+	void setUp() {
+		this.listingCacheRepository = new ListingCacheRepository();
+		this.dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(2).build();
+	}
+
+	@Test
+	void findByDealerAndStateTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		listingCacheRepository.save(getListing(dealer, ListingState.draft));
+		listingCacheRepository.save(getListing(dealer, ListingState.published));
+		listingCacheRepository.save(getListing(other, ListingState.draft));
+
+		assertEquals(1, listings(dealer.getId(), ListingState.draft).size());
+		assertEquals(1, listings(dealer.getId(), ListingState.published).size());
+		assertEquals(1, listings(other.getId(), ListingState.draft).size());
+		assertTrue(listings(UUID.randomUUID(), ListingState.draft).isEmpty());
+	}
+
+	@Test
+	void findByDealerAndStateAfterStateChangeTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		listingCacheRepository.save(listing);
+
+		val published = listing.toBuilder().state(ListingState.published).build();
+		listingCacheRepository.save(published);
+		assertTrue(listings(dealer.getId(), ListingState.draft).isEmpty());
+		assertEquals(published, listings(dealer.getId(), ListingState.published).get(0));
+
+		listingCacheRepository.save(published.toBuilder().state(ListingState.draft).build());
+		assertTrue(listings(dealer.getId(), ListingState.published).isEmpty());
+		assertEquals(1, listings(dealer.getId(), ListingState.draft).size());
+	}
+
+	@Test
+	void findByDealerAndStateAfterDealerChangeTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val listing = getListing(dealer, ListingState.draft);
+		listingCacheRepository.save(listing);
+
+		listingCacheRepository.save(listing.toBuilder().dealer(other).build());
+		assertTrue(listings(dealer.getId(), ListingState.draft).isEmpty());
+		assertEquals(1, listings(other.getId(), ListingState.draft).size());
+	}
+
+	@Test
+	void countAndFindLastPublishedTest() {
+		val first = getListing(dealer, ListingState.draft);
+		val second = getListing(dealer, ListingState.draft);
+		listingCacheRepository.save(first);
+		listingCacheRepository.save(second);
+		assertEquals(0, listingCacheRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+		assertNull(listingCacheRepository.findLastPublished(dealer.getId(), null));
+
+		val publishedFirst = publish(first, LocalDateTime.now().minusMinutes(1));
+		val publishedSecond = publish(second, LocalDateTime.now());
+		assertEquals(2, listingCacheRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+		assertEquals(publishedSecond, listingCacheRepository.findLastPublished(dealer.getId(), null));
+		assertEquals(publishedFirst, listingCacheRepository.findLastPublished(dealer.getId(), second.getId()));
+
+		listingCacheRepository.save(publishedSecond.toBuilder().state(ListingState.draft).build());
+		assertEquals(1, listingCacheRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+		assertEquals(publishedFirst, listingCacheRepository.findLastPublished(dealer.getId(), null));
+		assertNull(listingCacheRepository.findLastPublished(dealer.getId(), first.getId()));
+	}
+
+	@Test
+	void findByDealerAndVehicleAndPriceTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		listingCacheRepository.save(listing);
+		assertEquals(listing, listingCacheRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "TOYOTA", 100.0));
+		assertNull(listingCacheRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 200.0));
+		assertNull(listingCacheRepository.findByDealerAndVehicleAndPrice(UUID.randomUUID(), "Toyota", 100.0));
+
+		val changed = listing.toBuilder().vehicle("Honda").price(200.0).build();
+		listingCacheRepository.save(changed);
+		assertNull(listingCacheRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 100.0));
+		assertEquals(changed, listingCacheRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "honda", 200.0));
+		assertEquals(1, listingCacheRepository.vehicles.size());
+	}
+
+	@Test
+	void vehiclesAreSharedTest() {
+		val first = getListing(dealer, ListingState.draft);
+		val second = getListing(dealer, ListingState.draft).toBuilder().vehicle(new String(first.getVehicle())).build();
+		listingCacheRepository.save(first);
+		listingCacheRepository.save(second);
+		assertSame(first.getVehicle(), listingCacheRepository.findById(second.getId()).getVehicle());
+	}
+
+	@Test
+	void findByDealerAndStatePageTest() {
+		val now = LocalDateTime.now();
+		for(int i = 0; i < 5; i++) {
+			listingCacheRepository.save(getListing(dealer, ListingState.draft).toBuilder().price(500.0 - i).createdAt(now.plusMinutes(i)).build());
+		}
+
+		val byPrice = listingCacheRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 2);
+		assertEquals(List.of(496.0, 497.0), byPrice.stream().map(Listing::getPrice).collect(Collectors.toList()));
+		val nextByPrice = listingCacheRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, byPrice.get(1), 2);
+		assertEquals(List.of(498.0, 499.0), nextByPrice.stream().map(Listing::getPrice).collect(Collectors.toList()));
+
+		val byCreatedAt = listingCacheRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.createdAt, null, 10);
+		assertEquals(5, byCreatedAt.size());
+		assertEquals(now, byCreatedAt.get(0).getCreatedAt());
+		assertTrue(listingCacheRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.createdAt, byCreatedAt.get(4), 10).isEmpty());
+
+		val changed = byCreatedAt.get(0).toBuilder().price(1.0).build();
+		listingCacheRepository.save(changed);
+		assertEquals(changed, listingCacheRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 1).get(0));
+	}
+
+	@Test
+	void metricsTest() {
+		val registry = new SimpleMeterRegistry();
+		listingCacheRepository.bindTo(registry);
+		listingCacheRepository.save(getListing(dealer, ListingState.draft));
+		listingCacheRepository.save(getListing(dealer, ListingState.draft));
+		listingCacheRepository.save(getListing(dealer, ListingState.published));
+
+		assertEquals(2, registry.get("listings").tag("state", "draft").gauge().value());
+		assertEquals(1, registry.get("listings").tag("state", "published").gauge().value());
+
+		listingCacheRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 1);
+		val pages = registry.get("listings.rows.scanned").tag("query", "page").summary();
+		assertEquals(1, pages.count());
+		assertTrue(pages.totalAmount() >= 1);
+	}
+
+	@Test
+	void findVersionTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		assertEquals(0, listingCacheRepository.findVersion(dealer.getId()));
+		val listing = getListing(dealer, ListingState.draft);
+		listingCacheRepository.save(listing);
+		val version = listingCacheRepository.findVersion(dealer.getId());
+		assertTrue(version > 0);
+
+		val published = listing.toBuilder().state(ListingState.published).build();
+		listingCacheRepository.save(published);
+		assertTrue(listingCacheRepository.findVersion(dealer.getId()) > version);
+
+		val moved = listingCacheRepository.findVersion(dealer.getId());
+		listingCacheRepository.save(published.toBuilder().dealer(other).build());
+		assertTrue(listingCacheRepository.findVersion(dealer.getId()) > moved);
+		assertTrue(listingCacheRepository.findVersion(other.getId()) > 0);
+	}
+
+	@Test
+	void findPublishedByPriceTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val cheap = getListing(dealer, ListingState.published).toBuilder().price(15000.0).build();
+		val middle = getListing(other, ListingState.published).toBuilder().price(20000.0).build();
+		val expensive = getListing(dealer, ListingState.published).toBuilder().price(25000.0).build();
+		val draft = getListing(dealer, ListingState.draft).toBuilder().price(20000.0).build();
+		val noPrice = getListing(dealer, ListingState.published).toBuilder().price(null).build();
+		for(val listing : List.of(cheap, middle, expensive, draft, noPrice)) {
+			listingCacheRepository.save(listing);
+		}
+
+		assertEquals(List.of(cheap, middle, expensive), listingCacheRepository.findPublishedByPrice(null, 15000.0, 25000.0, null, 10));
+		assertEquals(List.of(cheap, expensive), listingCacheRepository.findPublishedByPrice(dealer.getId(), null, null, null, 10));
+		assertEquals(List.of(middle), listingCacheRepository.findPublishedByPrice(null, 15000.01, 24999.99, null, 10));
+		assertEquals(List.of(cheap), listingCacheRepository.findPublishedByPrice(null, null, 20000.0, null, 1));
+		assertEquals(List.of(middle, expensive), listingCacheRepository.findPublishedByPrice(null, null, null, cheap, 10));
+		assertTrue(listingCacheRepository.findPublishedByPrice(null, 25000.0, 15000.0, null, 10).isEmpty());
+		assertTrue(listingCacheRepository.findPublishedByPrice(UUID.randomUUID(), null, null, null, 10).isEmpty());
+
+		val unpublished = listingCacheRepository.findById(cheap.getId()).toBuilder().state(ListingState.draft).build();
+		listingCacheRepository.save(unpublished);
+		val repriced = listingCacheRepository.findById(expensive.getId()).toBuilder().price(10000.0).build();
+		listingCacheRepository.save(repriced);
+		assertEquals(List.of(repriced, middle), listingCacheRepository.findPublishedByPrice(null, null, null, null, 10));
+	}
+
+	@Test
+	void findPublishedByVehicleTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val corolla = getListing(dealer, ListingState.published).toBuilder().vehicle("2018 Toyota Corolla SE").price(18000.0).build();
+		val camry = getListing(other, ListingState.published).toBuilder().vehicle("2019 Toyota Camry").price(24000.0).build();
+		val civic = getListing(dealer, ListingState.published).toBuilder().vehicle("2018 Honda Civic").price(16000.0).build();
+		val draft = getListing(dealer, ListingState.draft).toBuilder().vehicle("2018 Toyota Corolla LE").price(17000.0).build();
+		for(val listing : List.of(corolla, camry, civic, draft)) {
+			listingCacheRepository.save(listing);
+		}
+
+		assertEquals(List.of(corolla, camry), listingCacheRepository.findPublishedByVehicle("toyota", null, null, null, null, 10));
+		assertEquals(List.of(civic, corolla), listingCacheRepository.findPublishedByVehicle("2018", null, null, null, null, 10));
+		assertEquals(List.of(corolla), listingCacheRepository.findPublishedByVehicle("TOYOTA 2018", null, null, null, null, 10));
+		assertEquals(List.of(corolla), listingCacheRepository.findPublishedByVehicle("toyota", dealer.getId(), null, null, null, 10));
+		assertEquals(List.of(camry), listingCacheRepository.findPublishedByVehicle("toyota", null, 20000.0, 30000.0, null, 10));
+		assertEquals(List.of(corolla), listingCacheRepository.findPublishedByVehicle("toyota", null, null, null, null, 1));
+		assertEquals(List.of(camry), listingCacheRepository.findPublishedByVehicle("toyota", null, null, null, corolla, 10));
+		assertTrue(listingCacheRepository.findPublishedByVehicle("toyota civic", null, null, null, null, 10).isEmpty());
+		assertTrue(listingCacheRepository.findPublishedByVehicle("corolla le", null, null, null, null, 10).isEmpty());
+		assertTrue(listingCacheRepository.findPublishedByVehicle("", null, null, null, null, 10).isEmpty());
+
+		val renamed = listingCacheRepository.findById(civic.getId()).toBuilder().vehicle("2018 Toyota RAV4").build();
+		listingCacheRepository.save(renamed);
+		assertEquals(List.of(renamed, corolla, camry), listingCacheRepository.findPublishedByVehicle("toyota", null, null, null, null, 10));
+		assertTrue(listingCacheRepository.findPublishedByVehicle("civic", null, null, null, null, 10).isEmpty());
+	}
+
+	@Test
+	void findStatsTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val cheap = getListing(dealer, ListingState.published).toBuilder().price(15000.0).build();
+		val expensive = getListing(dealer, ListingState.published).toBuilder().price(25000.0).build();
+		val noPrice = getListing(dealer, ListingState.published).toBuilder().price(null).build();
+		val draft = getListing(dealer, ListingState.draft).toBuilder().price(5000.0).build();
+		for(val listing : List.of(cheap, expensive, noPrice, draft, getListing(other, ListingState.published))) {
+			listingCacheRepository.save(listing);
+		}
+
+		val stats = listingCacheRepository.findStats(dealer.getId());
+		assertEquals(1, stats.getDraftListings());
+		assertEquals(3, stats.getPublishedListings());
+		assertEquals(listingCacheRepository.countByDealerAndState(dealer.getId(), ListingState.published), stats.getPublishedListings());
+		assertEquals(Double.valueOf(20000.0), stats.getAveragePrice());
+		assertEquals(Double.valueOf(15000.0), stats.getMinPrice());
+		assertEquals(Double.valueOf(25000.0), stats.getMaxPrice());
+
+		listingCacheRepository.save(listingCacheRepository.findById(expensive.getId()).toBuilder().state(ListingState.draft).build());
+		listingCacheRepository.save(listingCacheRepository.findById(noPrice.getId()).toBuilder().dealer(other).build());
+		val changed = listingCacheRepository.findStats(dealer.getId());
+		assertEquals(2, changed.getDraftListings());
+		assertEquals(1, changed.getPublishedListings());
+		assertEquals(Double.valueOf(15000.0), changed.getAveragePrice());
+		assertEquals(Double.valueOf(15000.0), changed.getMaxPrice());
+		assertEquals(2, listingCacheRepository.findStats(other.getId()).getPublishedListings());
+
+		listingCacheRepository.save(listingCacheRepository.findById(cheap.getId()).toBuilder().state(ListingState.draft).build());
+		val unpublished = listingCacheRepository.findStats(dealer.getId());
+		assertEquals(0, unpublished.getPublishedListings());
+		assertNull(unpublished.getAveragePrice());
+		assertNull(unpublished.getMinPrice());
+		assertNull(unpublished.getMaxPrice());
+		assertEquals(0, listingCacheRepository.findStats(UUID.randomUUID()).getDraftListings());
+	}
+
+	@Test
+	void compareAndSaveTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		assertFalse(listingCacheRepository.compareAndSave(listing, 0));
+		listingCacheRepository.save(listing);
+
+		val published = listing.toBuilder().state(ListingState.published).version(1).build();
+		assertTrue(listingCacheRepository.compareAndSave(published, 0));
+		assertEquals(published, listingCacheRepository.findById(listing.getId()));
+		assertEquals(1, listingCacheRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+
+		val stale = listing.toBuilder().price(200.0).version(1).build();
+		assertFalse(listingCacheRepository.compareAndSave(stale, 0));
+		assertEquals(published, listingCacheRepository.findById(listing.getId()));
+	}
+
+	@Test
+	void streamTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		listingCacheRepository.save(getListing(dealer, ListingState.draft));
+		listingCacheRepository.save(getListing(dealer, ListingState.published));
+		listingCacheRepository.save(getListing(other, ListingState.draft));
+
+		assertEquals(3, listingCacheRepository.stream(null, null).count());
+		assertEquals(2, listingCacheRepository.stream(null, ListingState.draft).count());
+		assertEquals(2, listingCacheRepository.stream(dealer.getId(), null).count());
+		assertEquals(1, listingCacheRepository.stream(dealer.getId(), ListingState.published).count());
+		assertEquals(0, listingCacheRepository.stream(UUID.randomUUID(), null).count());
+	}
+
+	private List<Listing> listings(UUID dealerId, ListingState state) {
+		return listingCacheRepository.stream(dealerId, state).collect(Collectors.toList());
+	}
+
+	private Listing publish(Listing listing, LocalDateTime publishedAt) {
+		val published = listing.toBuilder().publishedAt(publishedAt).state(ListingState.published).build();
+		listingCacheRepository.save(published);
+		return published;
+	}
+
+	private Listing getListing(Dealer dealer, ListingState state) {
+		return Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota").price(100.0)
+				.createdAt(LocalDateTime.now()).state(state).build();
+	}
+}
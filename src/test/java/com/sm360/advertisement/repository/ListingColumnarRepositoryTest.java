@@ -0,0 +1,380 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
+import com.sm360.advertisement.model.ListingState;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+
+class ListingColumnarRepositoryTest {
+
+	ListingColumnarRepository listingColumnarRepository;
+
+	Dealer dealer;
+
+	@BeforeEach
+	void setUp() {
+		this.listingColumnarRepository = new ListingColumnarRepository();
+		this.dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(2).build();
+	}
+
+	@Test
+	void findByDealerAndStateTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		listingColumnarRepository.save(getListing(dealer, ListingState.draft));
+		listingColumnarRepository.save(getListing(dealer, ListingState.published));
+		listingColumnarRepository.save(getListing(other, ListingState.draft));
+
+		assertEquals(1, listings(dealer.getId(), ListingState.draft).size());
+		assertEquals(1, listings(dealer.getId(), ListingState.published).size());
+		assertEquals(1, listings(other.getId(), ListingState.draft).size());
+		assertTrue(listings(UUID.randomUUID(), ListingState.draft).isEmpty());
+	}
+
+	@Test
+	void findByDealerAndStateAfterStateChangeTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		listingColumnarRepository.save(listing);
+
+		val published = listing.toBuilder().state(ListingState.published).build();
+		listingColumnarRepository.save(published);
+		assertTrue(listings(dealer.getId(), ListingState.draft).isEmpty());
+		assertEquals(published, listings(dealer.getId(), ListingState.published).get(0));
+
+		listingColumnarRepository.save(published.toBuilder().state(ListingState.draft).build());
+		assertTrue(listings(dealer.getId(), ListingState.published).isEmpty());
+		assertEquals(1, listings(dealer.getId(), ListingState.draft).size());
+	}
+
+	@Test
+	void findByDealerAndStateAfterDealerChangeTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val listing = getListing(dealer, ListingState.draft);
+		listingColumnarRepository.save(listing);
+
+		listingColumnarRepository.save(listing.toBuilder().dealer(other).build());
+		assertTrue(listings(dealer.getId(), ListingState.draft).isEmpty());
+		assertEquals(1, listings(other.getId(), ListingState.draft).size());
+	}
+
+	@Test
+	void countAndFindLastPublishedTest() {
+		val first = getListing(dealer, ListingState.draft);
+		val second = getListing(dealer, ListingState.draft);
+		listingColumnarRepository.save(first);
+		listingColumnarRepository.save(second);
+		assertEquals(0, listingColumnarRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+		assertNull(listingColumnarRepository.findLastPublished(dealer.getId(), null));
+
+		val publishedFirst = publish(first, LocalDateTime.now().minusMinutes(1));
+		val publishedSecond = publish(second, LocalDateTime.now());
+		assertEquals(2, listingColumnarRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+		assertEquals(publishedSecond, listingColumnarRepository.findLastPublished(dealer.getId(), null));
+		assertEquals(publishedFirst, listingColumnarRepository.findLastPublished(dealer.getId(), second.getId()));
+
+		listingColumnarRepository.save(publishedSecond.toBuilder().state(ListingState.draft).build());
+		assertEquals(1, listingColumnarRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+		assertEquals(publishedFirst, listingColumnarRepository.findLastPublished(dealer.getId(), null));
+		assertNull(listingColumnarRepository.findLastPublished(dealer.getId(), first.getId()));
+	}
+
+	@Test
+	void findByDealerAndVehicleAndPriceTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		listingColumnarRepository.save(listing);
+		assertEquals(listing, listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "TOYOTA", 100.0));
+		assertNull(listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 200.0));
+		assertNull(listingColumnarRepository.findByDealerAndVehicleAndPrice(UUID.randomUUID(), "Toyota", 100.0));
+
+		val changed = listing.toBuilder().vehicle("Honda").price(200.0).build();
+		listingColumnarRepository.save(changed);
+		assertNull(listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 100.0));
+		assertEquals(changed, listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "honda", 200.0));
+	}
+
+	@Test
+	void findByDealerAndVehicleAndPriceAfterDuplicateChangeTest() {
+		val first = getListing(dealer, ListingState.draft);
+		val second = getListing(dealer, ListingState.published);
+		listingColumnarRepository.save(first);
+		listingColumnarRepository.save(second);
+
+		val repriced = first.toBuilder().price(300.0).build();
+		listingColumnarRepository.save(repriced);
+		assertEquals(second, listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 100.0));
+		assertEquals(repriced, listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 300.0));
+
+		listingColumnarRepository.save(second.toBuilder().price(300.0).build());
+		assertNull(listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "Toyota", 100.0));
+	}
+
+	@Test
+	void findByDealerAndStatePageTest() {
+		val now = LocalDateTime.now();
+		for(int i = 0; i < 5; i++) {
+			listingColumnarRepository.save(getListing(dealer, ListingState.draft).toBuilder().price(500.0 - i).createdAt(now.plusMinutes(i)).build());
+		}
+
+		val byPrice = listingColumnarRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 2);
+		assertEquals(List.of(496.0, 497.0), byPrice.stream().map(Listing::getPrice).collect(Collectors.toList()));
+		val nextByPrice = listingColumnarRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, byPrice.get(1), 2);
+		assertEquals(List.of(498.0, 499.0), nextByPrice.stream().map(Listing::getPrice).collect(Collectors.toList()));
+
+		val byCreatedAt = listingColumnarRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.createdAt, null, 10);
+		assertEquals(5, byCreatedAt.size());
+		assertEquals(now, byCreatedAt.get(0).getCreatedAt());
+		assertTrue(listingColumnarRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.createdAt, byCreatedAt.get(4), 10).isEmpty());
+
+		val changed = byCreatedAt.get(0).toBuilder().price(1.0).build();
+		listingColumnarRepository.save(changed);
+		assertEquals(changed, listingColumnarRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 1).get(0));
+	}
+
+	@Test
+	void findByDealerAndStatePageAcrossBlocksTest() {
+		val listings = new ArrayList<Listing>();
+		for(int i = 0; i < 3000; i++) {
+			listings.add(getListing(dealer, ListingState.draft).toBuilder().price((double) (i * 7919 % 3000)).build());
+		}
+		listingColumnarRepository.saveAll(listings);
+		for(int i = 0; i < 3000; i += 2) {
+			listingColumnarRepository.save(listings.get(i).toBuilder().state(ListingState.published).build());
+		}
+
+		for(val state : ListingState.values()) {
+			val prices = new ArrayList<Double>();
+			List<Listing> page = listingColumnarRepository.findByDealerAndState(dealer.getId(), state, ListingSort.price, null, 100);
+			while(!page.isEmpty()) {
+				page.forEach(item-> prices.add(item.getPrice()));
+				page = listingColumnarRepository.findByDealerAndState(dealer.getId(), state, ListingSort.price, page.get(page.size() - 1), 100);
+			}
+			assertEquals(1500, prices.size());
+			assertEquals(prices.stream().sorted().collect(Collectors.toList()), prices);
+		}
+		assertEquals(1500, listingColumnarRepository.findPublishedByPrice(null, null, null, null, 3000).size());
+	}
+
+	@Test
+	void metricsTest() {
+		val registry = new SimpleMeterRegistry();
+		listingColumnarRepository.bindTo(registry);
+		listingColumnarRepository.save(getListing(dealer, ListingState.draft));
+		listingColumnarRepository.save(getListing(dealer, ListingState.draft));
+		listingColumnarRepository.save(getListing(dealer, ListingState.published));
+
+		assertEquals(2, registry.get("listings").tag("state", "draft").gauge().value());
+		assertEquals(1, registry.get("listings").tag("state", "published").gauge().value());
+
+		listingColumnarRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 1);
+		val pages = registry.get("listings.rows.scanned").tag("query", "page").summary();
+		assertEquals(1, pages.count());
+		assertTrue(pages.totalAmount() >= 1);
+	}
+
+	@Test
+	void findVersionTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		assertEquals(0, listingColumnarRepository.findVersion(dealer.getId()));
+		val listing = getListing(dealer, ListingState.draft);
+		listingColumnarRepository.save(listing);
+		val version = listingColumnarRepository.findVersion(dealer.getId());
+		assertTrue(version > 0);
+
+		val published = listing.toBuilder().state(ListingState.published).build();
+		listingColumnarRepository.save(published);
+		assertTrue(listingColumnarRepository.findVersion(dealer.getId()) > version);
+
+		val moved = listingColumnarRepository.findVersion(dealer.getId());
+		listingColumnarRepository.save(published.toBuilder().dealer(other).build());
+		assertTrue(listingColumnarRepository.findVersion(dealer.getId()) > moved);
+		assertTrue(listingColumnarRepository.findVersion(other.getId()) > 0);
+	}
+
+	@Test
+	void findPublishedByPriceTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val cheap = getListing(dealer, ListingState.published).toBuilder().price(15000.0).build();
+		val middle = getListing(other, ListingState.published).toBuilder().price(20000.0).build();
+		val expensive = getListing(dealer, ListingState.published).toBuilder().price(25000.0).build();
+		val draft = getListing(dealer, ListingState.draft).toBuilder().price(20000.0).build();
+		val noPrice = getListing(dealer, ListingState.published).toBuilder().price(null).build();
+		for(val listing : List.of(cheap, middle, expensive, draft, noPrice)) {
+			listingColumnarRepository.save(listing);
+		}
+
+		assertEquals(List.of(cheap, middle, expensive), listingColumnarRepository.findPublishedByPrice(null, 15000.0, 25000.0, null, 10));
+		assertEquals(List.of(cheap, expensive), listingColumnarRepository.findPublishedByPrice(dealer.getId(), null, null, null, 10));
+		assertEquals(List.of(middle), listingColumnarRepository.findPublishedByPrice(null, 15000.01, 24999.99, null, 10));
+		assertEquals(List.of(cheap), listingColumnarRepository.findPublishedByPrice(null, null, 20000.0, null, 1));
+		assertEquals(List.of(middle, expensive), listingColumnarRepository.findPublishedByPrice(null, null, null, cheap, 10));
+		assertTrue(listingColumnarRepository.findPublishedByPrice(null, 25000.0, 15000.0, null, 10).isEmpty());
+		assertTrue(listingColumnarRepository.findPublishedByPrice(UUID.randomUUID(), null, null, null, 10).isEmpty());
+
+		val unpublished = listingColumnarRepository.findById(cheap.getId()).toBuilder().state(ListingState.draft).build();
+		listingColumnarRepository.save(unpublished);
+		val repriced = listingColumnarRepository.findById(expensive.getId()).toBuilder().price(10000.0).build();
+		listingColumnarRepository.save(repriced);
+		assertEquals(List.of(repriced, middle), listingColumnarRepository.findPublishedByPrice(null, null, null, null, 10));
+	}
+
+	@Test
+	void findPublishedByVehicleTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val corolla = getListing(dealer, ListingState.published).toBuilder().vehicle("2018 Toyota Corolla SE").price(18000.0).build();
+		val camry = getListing(other, ListingState.published).toBuilder().vehicle("2019 Toyota Camry").price(24000.0).build();
+		val civic = getListing(dealer, ListingState.published).toBuilder().vehicle("2018 Honda Civic").price(16000.0).build();
+		val draft = getListing(dealer, ListingState.draft).toBuilder().vehicle("2018 Toyota Corolla LE").price(17000.0).build();
+		for(val listing : List.of(corolla, camry, civic, draft)) {
+			listingColumnarRepository.save(listing);
+		}
+
+		assertEquals(List.of(corolla, camry), listingColumnarRepository.findPublishedByVehicle("toyota", null, null, null, null, 10));
+		assertEquals(List.of(civic, corolla), listingColumnarRepository.findPublishedByVehicle("2018", null, null, null, null, 10));
+		assertEquals(List.of(corolla), listingColumnarRepository.findPublishedByVehicle("TOYOTA 2018", null, null, null, null, 10));
+		assertEquals(List.of(corolla), listingColumnarRepository.findPublishedByVehicle("toyota", dealer.getId(), null, null, null, 10));
+		assertEquals(List.of(camry), listingColumnarRepository.findPublishedByVehicle("toyota", null, 20000.0, 30000.0, null, 10));
+		assertEquals(List.of(corolla), listingColumnarRepository.findPublishedByVehicle("toyota", null, null, null, null, 1));
+		assertEquals(List.of(camry), listingColumnarRepository.findPublishedByVehicle("toyota", null, null, null, corolla, 10));
+		assertTrue(listingColumnarRepository.findPublishedByVehicle("toyota civic", null, null, null, null, 10).isEmpty());
+		assertTrue(listingColumnarRepository.findPublishedByVehicle("corolla le", null, null, null, null, 10).isEmpty());
+		assertTrue(listingColumnarRepository.findPublishedByVehicle("", null, null, null, null, 10).isEmpty());
+
+		val renamed = listingColumnarRepository.findById(civic.getId()).toBuilder().vehicle("2018 Toyota RAV4").build();
+		listingColumnarRepository.save(renamed);
+		assertEquals(List.of(renamed, corolla, camry), listingColumnarRepository.findPublishedByVehicle("toyota", null, null, null, null, 10));
+		assertTrue(listingColumnarRepository.findPublishedByVehicle("civic", null, null, null, null, 10).isEmpty());
+	}
+
+	@Test
+	void findStatsTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		val cheap = getListing(dealer, ListingState.published).toBuilder().price(15000.0).build();
+		val expensive = getListing(dealer, ListingState.published).toBuilder().price(25000.0).build();
+		val noPrice = getListing(dealer, ListingState.published).toBuilder().price(null).build();
+		val draft = getListing(dealer, ListingState.draft).toBuilder().price(5000.0).build();
+		for(val listing : List.of(cheap, expensive, noPrice, draft, getListing(other, ListingState.published))) {
+			listingColumnarRepository.save(listing);
+		}
+
+		val stats = listingColumnarRepository.findStats(dealer.getId());
+		assertEquals(1, stats.getDraftListings());
+		assertEquals(3, stats.getPublishedListings());
+		assertEquals(listingColumnarRepository.countByDealerAndState(dealer.getId(), ListingState.published), stats.getPublishedListings());
+		assertEquals(Double.valueOf(20000.0), stats.getAveragePrice());
+		assertEquals(Double.valueOf(15000.0), stats.getMinPrice());
+		assertEquals(Double.valueOf(25000.0), stats.getMaxPrice());
+
+		listingColumnarRepository.save(listingColumnarRepository.findById(expensive.getId()).toBuilder().state(ListingState.draft).build());
+		listingColumnarRepository.save(listingColumnarRepository.findById(noPrice.getId()).toBuilder().dealer(other).build());
+		val changed = listingColumnarRepository.findStats(dealer.getId());
+		assertEquals(2, changed.getDraftListings());
+		assertEquals(1, changed.getPublishedListings());
+		assertEquals(Double.valueOf(15000.0), changed.getAveragePrice());
+		assertEquals(Double.valueOf(15000.0), changed.getMaxPrice());
+		assertEquals(2, listingColumnarRepository.findStats(other.getId()).getPublishedListings());
+
+		listingColumnarRepository.save(listingColumnarRepository.findById(cheap.getId()).toBuilder().state(ListingState.draft).build());
+		val unpublished = listingColumnarRepository.findStats(dealer.getId());
+		assertEquals(0, unpublished.getPublishedListings());
+		assertNull(unpublished.getAveragePrice());
+		assertNull(unpublished.getMinPrice());
+		assertNull(unpublished.getMaxPrice());
+		assertEquals(0, listingColumnarRepository.findStats(UUID.randomUUID()).getDraftListings());
+	}
+
+	@Test
+	void compareAndSaveTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		assertFalse(listingColumnarRepository.compareAndSave(listing, 0));
+		listingColumnarRepository.save(listing);
+
+		val published = listing.toBuilder().state(ListingState.published).version(1).build();
+		assertTrue(listingColumnarRepository.compareAndSave(published, 0));
+		assertEquals(published, listingColumnarRepository.findById(listing.getId()));
+		assertEquals(1, listingColumnarRepository.countByDealerAndState(dealer.getId(), ListingState.published));
+
+		val stale = listing.toBuilder().price(200.0).version(1).build();
+		assertFalse(listingColumnarRepository.compareAndSave(stale, 0));
+		assertEquals(published, listingColumnarRepository.findById(listing.getId()));
+	}
+
+	@Test
+	void streamTest() {
+		val other = Dealer.builder().id(UUID.randomUUID()).name("Honda Group").tierLimit(2).build();
+		listingColumnarRepository.save(getListing(dealer, ListingState.draft));
+		listingColumnarRepository.save(getListing(dealer, ListingState.published));
+		listingColumnarRepository.save(getListing(other, ListingState.draft));
+
+		assertEquals(3, listingColumnarRepository.stream(null, null).count());
+		assertEquals(2, listingColumnarRepository.stream(null, ListingState.draft).count());
+		assertEquals(2, listingColumnarRepository.stream(dealer.getId(), null).count());
+		assertEquals(1, listingColumnarRepository.stream(dealer.getId(), ListingState.published).count());
+		assertEquals(0, listingColumnarRepository.stream(UUID.randomUUID(), null).count());
+	}
+
+	@Test
+	void readListingsTest() {
+		val listing = getListing(dealer, ListingState.draft);
+		listingColumnarRepository.save(listing);
+
+		val read = listingColumnarRepository.findById(listing.getId());
+		assertEquals(listing, read);
+		val changed = read.toBuilder().price(200.0).build();
+		listingColumnarRepository.save(changed);
+		assertEquals(changed, listingColumnarRepository.findById(listing.getId()));
+		assertEquals(100.0, read.getPrice());
+
+		val empty = Listing.builder().id(UUID.randomUUID()).build();
+		listingColumnarRepository.save(empty);
+		assertEquals(empty, listingColumnarRepository.findById(empty.getId()));
+		assertNull(listingColumnarRepository.findById(UUID.randomUUID()));
+	}
+
+	@Test
+	void saveAllGrowsColumnsTest() {
+		val listings = new ArrayList<Listing>();
+		for(int i = 0; i < 5000; i++) {
+			val listing = getListing(dealer, i % 2 == 0 ? ListingState.draft : ListingState.published).toBuilder().vehicle("Toyota " + i).build();
+			listings.add(listing);
+		}
+		listingColumnarRepository.saveAll(listings);
+
+		assertEquals(5000, listingColumnarRepository.stream(null, null).count());
+		assertEquals(2500, listingColumnarRepository.countByDealerAndState(dealer.getId(), ListingState.draft));
+		for(val listing : listings) {
+			assertEquals(listing, listingColumnarRepository.findById(listing.getId()));
+		}
+		assertEquals(listings.get(4999), listingColumnarRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "toyota 4999", 100.0));
+	}
+
+	private List<Listing> listings(UUID dealerId, ListingState state) {
+		return listingColumnarRepository.stream(dealerId, state).collect(Collectors.toList());
+	}
+
+	private Listing publish(Listing listing, LocalDateTime publishedAt) {
+		val published = listing.toBuilder().publishedAt(publishedAt).state(ListingState.published).build();
+		listingColumnarRepository.save(published);
+		return published;
+	}
+
+	private Listing getListing(Dealer dealer, ListingState state) {
+		return Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota").price(100.0)
+				.createdAt(LocalDateTime.now()).state(state).build();
+	}
+}
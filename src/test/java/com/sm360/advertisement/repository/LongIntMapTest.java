@@ -0,0 +1,52 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+class LongIntMapTest {
+
+	@Test
+	void putGetAndRemoveTest() {
+		val map = new LongIntMap();
+		for(int i = 0; i < 10000; i++) {
+			assertEquals(LongIntMap.MISSING, map.put(i * 31L, i));
+		}
+		assertEquals(10000, map.size());
+		assertEquals(5, map.put(5 * 31L, 6));
+		assertEquals(6, map.get(5 * 31L));
+		assertEquals(6, map.remove(5 * 31L));
+		assertEquals(LongIntMap.MISSING, map.get(5 * 31L));
+		assertEquals(LongIntMap.MISSING, map.remove(5 * 31L));
+		assertEquals(9999, map.size());
+		assertEquals(9999, map.get(9999 * 31L));
+		assertThrows(IllegalArgumentException.class, ()-> map.put(1L, -1));
+	}
+
+	@Test
+	void removeKeepsCollidingKeysTest() {
+		val random = new Random(1);
+		val map = new LongIntMap();
+		val expected = new HashMap<Long, Integer>();
+		for(int i = 0; i < 200000; i++) {
+			val key = (long) random.nextInt(2000) << (random.nextBoolean() ? 0 : 40);
+			if(random.nextBoolean()) {
+				val previous = expected.put(key, i);
+				assertEquals(previous == null ? LongIntMap.MISSING : previous, map.put(key, i));
+			} else {
+				val previous = expected.remove(key);
+				assertEquals(previous == null ? LongIntMap.MISSING : previous, map.remove(key));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for(val entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+class UuidIntMapTest {
+
+	@Test
+	void putAndGetTest() {
+		val map = new UuidIntMap();
+		val ids = new ArrayList<UUID>();
+		for(int i = 0; i < 10000; i++) {
+			val id = UUID.randomUUID();
+			ids.add(id);
+			assertEquals(UuidIntMap.MISSING, map.put(id, i));
+		}
+		assertEquals(10000, map.size());
+		for(int i = 0; i < ids.size(); i++) {
+			assertEquals(i, map.get(ids.get(i)));
+		}
+		assertEquals(0, map.put(ids.get(0), 10000));
+		assertEquals(10000, map.get(ids.get(0)));
+		assertEquals(10000, map.size());
+		assertEquals(UuidIntMap.MISSING, map.get(UUID.randomUUID()));
+		assertEquals(UuidIntMap.MISSING, map.get(new UUID(0, 0)));
+		assertThrows(IllegalArgumentException.class, ()-> map.put(UUID.randomUUID(), -1));
+	}
+}
@@ -0,0 +1,86 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+class UuidMapTest {
+
+	@Test
+	void putAndGetTest() {
+		val map = new UuidMap<String>();
+		val ids = new ArrayList<UUID>();
+		for(int i = 0; i < 10000; i++) {
+			val id = UUID.randomUUID();
+			ids.add(id);
+			assertNull(map.put(id, "value " + i));
+		}
+		assertEquals(10000, map.size());
+		for(int i = 0; i < ids.size(); i++) {
+			assertEquals("value " + i, map.get(ids.get(i)));
+		}
+		assertEquals("value 0", map.put(ids.get(0), "changed"));
+		assertEquals("changed", map.get(ids.get(0)));
+		assertEquals(10000, map.size());
+		assertEquals(10000, map.values().collect(Collectors.toSet()).size());
+		assertNull(map.get(UUID.randomUUID()));
+		assertNull(map.get(new UUID(0, 0)));
+		assertThrows(IllegalArgumentException.class, ()-> map.put(UUID.randomUUID(), null));
+	}
+
+	@Test
+	void concurrentPutTest() throws Exception {
+		val map = new UuidMap<UUID>();
+		val writers = new ArrayList<CompletableFuture<Void>>();
+		val ids = new ArrayList<UUID>();
+		for(int i = 0; i < 4; i++) {
+			val batch = new ArrayList<UUID>();
+			for(int j = 0; j < 25000; j++) {
+				batch.add(UUID.randomUUID());
+			}
+			ids.addAll(batch);
+			writers.add(CompletableFuture.runAsync(()-> batch.forEach(id-> map.put(id, id))));
+		}
+		for(val writer : writers) {
+			writer.get();
+		}
+		assertEquals(100000, map.size());
+		for(val id : ids) {
+			assertEquals(id, map.get(id));
+		}
+	}
+
+	@Test
+	void readWhileResizingTest() throws Exception {
+		val map = new UuidMap<UUID>();
+		val first = UUID.randomUUID();
+		map.put(first, first);
+		val done = new AtomicBoolean();
+		val misses = new HashSet<UUID>();
+		val reader = CompletableFuture.runAsync(()-> {
+			while(!done.get()) {
+				if(!first.equals(map.get(first))) {
+					misses.add(first);
+				}
+			}
+		});
+		for(int i = 0; i < 100000; i++) {
+			val id = UUID.randomUUID();
+			map.put(id, id);
+		}
+		done.set(true);
+		reader.get();
+		assertEquals(0, misses.size());
+	}
+}
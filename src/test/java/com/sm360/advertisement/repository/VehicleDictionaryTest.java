@@ -0,0 +1,78 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+class VehicleDictionaryTest {
+
+	@Test
+	void acquireAndReleaseTest() {
+		val dictionary = new VehicleDictionary();
+		val civic = dictionary.acquire(new String("2019 Honda Civic LX"));
+		val upperCivic = dictionary.acquire("2019 HONDA CIVIC LX");
+		assertEquals(civic, dictionary.acquire("2019 Honda Civic LX"));
+		assertNotEquals(civic, upperCivic);
+		assertEquals(dictionary.group(civic), dictionary.group(upperCivic));
+		assertEquals(dictionary.group(civic), dictionary.findGroup("2019 honda civic lx"));
+		assertEquals("2019 HONDA CIVIC LX", dictionary.value(upperCivic));
+		assertEquals(2, dictionary.size());
+
+		dictionary.release(upperCivic);
+		assertEquals(1, dictionary.size());
+		assertEquals(dictionary.group(civic), dictionary.findGroup("2019 HONDA CIVIC LX"));
+		dictionary.release(civic);
+		assertEquals(1, dictionary.size());
+		dictionary.release(civic);
+		assertEquals(0, dictionary.size());
+		assertNull(dictionary.findGroup("2019 Honda Civic LX"));
+
+		val corolla = dictionary.acquire("Toyota Corolla");
+		assertEquals("Toyota Corolla", dictionary.value(corolla));
+		assertNull(dictionary.findGroup("2019 Honda Civic LX"));
+	}
+
+	@Test
+	void nullVehicleTest() {
+		val dictionary = new VehicleDictionary();
+		assertEquals(VehicleDictionary.NONE, dictionary.acquire(null));
+		assertNull(dictionary.value(VehicleDictionary.NONE));
+		assertEquals(VehicleDictionary.NONE, dictionary.findGroup(null));
+		dictionary.release(VehicleDictionary.NONE);
+		assertEquals(0, dictionary.size());
+	}
+
+	@Test
+	void concurrentAcquireAndReleaseTest() throws Exception {
+		val dictionary = new VehicleDictionary();
+		val held = dictionary.acquire("Toyota Corolla");
+		val workers = new ArrayList<CompletableFuture<Boolean>>();
+		for(int i = 0; i < 4; i++) {
+			workers.add(CompletableFuture.supplyAsync(()-> {
+				boolean consistent = true;
+				for(int j = 0; j < 10000; j++) {
+					val vehicle = "Honda Civic " + (j % 8);
+					val code = dictionary.acquire(vehicle);
+					consistent &= vehicle.equals(dictionary.value(code));
+					consistent &= dictionary.group(code) == dictionary.findGroup(vehicle.toUpperCase());
+					dictionary.release(code);
+				}
+				return consistent;
+			}));
+		}
+		for(val worker : workers) {
+			assertTrue(worker.get());
+		}
+		assertEquals(1, dictionary.size());
+		assertEquals("Toyota Corolla", dictionary.value(held));
+		assertNull(dictionary.findGroup("Honda Civic 0"));
+	}
+}
@@ -0,0 +1,56 @@
+package com.sm360.advertisement.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+class VehicleTokenIndexTest {
+
+	@Test
+	void termsTest() {
+		assertEquals(List.of("2018", "toyota", "corolla", "se"), List.copyOf(VehicleTokenIndex.terms("2018 Toyota Corolla-SE, toyota")));
+		assertEquals(List.of("citroen", "c4"), List.copyOf(VehicleTokenIndex.terms("Citroën C4")));
+		assertEquals(0, VehicleTokenIndex.terms(" - ").size());
+		assertEquals(0, VehicleTokenIndex.terms(null).size());
+	}
+
+	@Test
+	void searchTest() {
+		val index = new VehicleTokenIndex();
+		index.update(0, null, "2018 Toyota Corolla SE");
+		index.update(1, null, "2019 Toyota Camry");
+		index.update(2, null, "2018 Honda Civic");
+		index.update(3, null, "2018 Toyota Camry SE");
+
+		assertArrayEquals(new int[] {0, 1, 3}, index.search("toyota"));
+		assertArrayEquals(new int[] {0, 3}, index.search("TOYOTA 2018"));
+		assertArrayEquals(new int[] {3}, index.search("se camry 2018"));
+		assertArrayEquals(new int[0], index.search("toyota civic"));
+		assertArrayEquals(new int[0], index.search("ford"));
+		assertArrayEquals(new int[0], index.search(""));
+
+		index.update(1, "2019 Toyota Camry", "2019 Honda Accord");
+		assertArrayEquals(new int[] {0, 3}, index.search("toyota"));
+		assertArrayEquals(new int[] {1, 2}, index.search("honda"));
+		index.update(2, "2018 Honda Civic", null);
+		assertArrayEquals(new int[0], index.search("civic"));
+		assertEquals(8, index.terms());
+	}
+
+	@Test
+	void intersectLongPostingsTest() {
+		val index = new VehicleTokenIndex();
+		for(int ordinal = 10_000; ordinal >= 0; ordinal--) {
+			index.update(ordinal, null, ordinal % 1000 == 0 ? "Toyota Corolla" : ordinal % 3 == 0 ? "Toyota Camry" : "Corolla");
+		}
+		val expected = IntStream.rangeClosed(0, 10_000).filter(ordinal-> ordinal % 1000 == 0).toArray();
+		assertArrayEquals(expected, index.search("toyota corolla"));
+		assertArrayEquals(expected, index.search("corolla toyota"));
+	}
+}
@@ -0,0 +1,157 @@
+package com.sm360.advertisement.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+import javax.validation.Validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingUnpublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+import com.sm360.advertisement.service.VehicleAdvertisementServiceImpl;
+
+import lombok.val;
+
+class ListingSchedulerTest {
+
+	ListingScheduler listingScheduler;
+
+	VehicleAdvertisementServiceImpl vehicleAdvertisementService;
+
+	Dealer dealer;
+
+	LocalDateTime now;
+
+	@BeforeEach
+	void setUp() {
+		vehicleAdvertisementService = new VehicleAdvertisementServiceImpl();
+		vehicleAdvertisementService.listingRepository = new ListingCacheRepository();
+		vehicleAdvertisementService.dealerRepository = new DealerCacheRepository();
+		vehicleAdvertisementService.listingMapper = new ListingMapper();
+		vehicleAdvertisementService.dealerMapper = new DealerMapper();
+		vehicleAdvertisementService.dealerLocks = new StripedLocks();
+		vehicleAdvertisementService.validator = Validation.buildDefaultValidatorFactory().getValidator();
+		vehicleAdvertisementService.listingResponseCache = new ListingResponseCache(new ListingCacheProperties());
+
+		now = LocalDateTime.now().withNano(0);
+		listingScheduler = new ListingScheduler();
+		listingScheduler.properties = new ListingSchedulerProperties();
+		listingScheduler.properties.setBatchSize(2);
+		listingScheduler.vehicleAdvertisementService = vehicleAdvertisementService;
+		listingScheduler.wheel = new TimingWheel<ListingScheduler.Transition>(1000, 8, 4, millis(now));
+		vehicleAdvertisementService.listingScheduler = listingScheduler;
+
+		dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(1).build();
+		vehicleAdvertisementService.dealerRepository.save(dealer);
+	}
+
+	@Test
+	void publishAndUnpublishTest() {
+		val listing = saveListing(ListingState.draft);
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(listing.getId()).at(now.plusHours(1)).build());
+		vehicleAdvertisementService.unpublishListing(ListingUnpublishRequest.builder().id(listing.getId()).at(now.plusHours(2)).build());
+		assertEquals(2, listingScheduler.size());
+
+		assertEquals(0, listingScheduler.run(millis(now.plusMinutes(59))));
+		assertEquals(ListingState.draft, findListing(listing).getState());
+
+		assertEquals(1, listingScheduler.run(millis(now.plusHours(1))));
+		assertEquals(ListingState.published, findListing(listing).getState());
+
+		assertEquals(1, listingScheduler.run(millis(now.plusHours(3))));
+		assertEquals(ListingState.draft, findListing(listing).getState());
+		assertNull(findListing(listing).getPublishedAt());
+		assertEquals(0, listingScheduler.size());
+	}
+
+	@Test
+	void publishInOrderOfTimeTest() {
+		val first = saveListing(ListingState.draft);
+		val second = saveListing(ListingState.draft);
+		val third = saveListing(ListingState.draft);
+		for(val listing : List.of(third, second, first)) {
+			val at = now.plusHours(1).plusSeconds(listing == first ? 1 : listing == second ? 2 : 3);
+			vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(listing.getId()).showErrorLimitIsReached(false).at(at).build());
+		}
+
+		// three batches of at most two changes, the tier limit of one leaves the last publication
+		assertEquals(3, listingScheduler.run(millis(now.plusHours(2))));
+		assertEquals(ListingState.draft, findListing(first).getState());
+		assertEquals(ListingState.draft, findListing(second).getState());
+		assertEquals(ListingState.published, findListing(third).getState());
+	}
+
+	@Test
+	void rescheduleAndCancelTest() {
+		val listing = saveListing(ListingState.draft);
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(listing.getId()).at(now.plusHours(1)).build());
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(listing.getId()).at(now.plusHours(3)).build());
+		assertEquals(1, listingScheduler.size());
+		assertEquals(0, listingScheduler.run(millis(now.plusHours(2))));
+
+		assertFalse(listingScheduler.cancel(listing.getId(), ListingState.draft));
+		assertTrue(listingScheduler.cancel(listing.getId(), null));
+		assertFalse(listingScheduler.cancel(listing.getId(), null));
+		assertEquals(0, listingScheduler.run(millis(now.plusHours(4))));
+		assertEquals(ListingState.draft, findListing(listing).getState());
+	}
+
+	@Test
+	void scheduleSurvivesUpdateTest() {
+		val listing = saveListing(ListingState.draft);
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(listing.getId()).at(now.plusHours(1)).build());
+		vehicleAdvertisementService.updateListing(ListingUpdateRequest.builder().id(listing.getId()).dealerId(dealer.getId())
+				.vehicle("Honda Civic").price(150.0).build());
+
+		assertEquals(1, listingScheduler.run(millis(now.plusHours(1))));
+		val published = findListing(listing);
+		assertEquals(ListingState.published, published.getState());
+		assertEquals("Honda Civic", published.getVehicle());
+	}
+
+	@Test
+	void tierLimitTest() {
+		saveListing(ListingState.published);
+		val listing = saveListing(ListingState.draft);
+		vehicleAdvertisementService.publishListing(ListingPublishRequest.builder().id(listing.getId()).showErrorLimitIsReached(true).at(now.plusHours(1)).build());
+
+		assertEquals(0, listingScheduler.run(millis(now.plusHours(1))));
+		assertEquals(ListingState.draft, findListing(listing).getState());
+		assertEquals(0, listingScheduler.size());
+	}
+
+	private Listing saveListing(ListingState state) {
+		val listing = Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota " + UUID.randomUUID()).price(100.0)
+				.createdAt(now).publishedAt(state == ListingState.published ? now : null).state(state).build();
+		vehicleAdvertisementService.listingRepository.save(listing);
+		return listing;
+	}
+
+	private Listing findListing(Listing listing) {
+		return vehicleAdvertisementService.listingRepository.findById(listing.getId());
+	}
+
+	private static long millis(LocalDateTime time) {
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+}
@@ -0,0 +1,72 @@
+package com.sm360.advertisement.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.val;
+
+class TimingWheelTest {
+
+	@Test
+	void advanceTest() {
+		val wheel = new TimingWheel<String>(10, 2, 3, 1000);
+		wheel.schedule(1015, "first");
+		wheel.schedule(1020, "second");
+		wheel.schedule(1500, "far");
+		wheel.schedule(900, "late");
+
+		assertEquals(List.of("late"), wheel.advance(1010));
+		assertEquals(List.of(), wheel.advance(1019));
+		assertEquals(List.of("first", "second"), wheel.advance(1020));
+		assertEquals(1, wheel.size());
+		assertEquals(List.of(), wheel.advance(1499));
+		assertEquals(List.of("far"), wheel.advance(1500));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void cancelTest() {
+		val wheel = new TimingWheel<String>(10, 2, 3, 0);
+		val cancelled = wheel.schedule(300, "cancelled");
+		val kept = wheel.schedule(300, "kept");
+
+		assertTrue(wheel.cancel(cancelled));
+		assertFalse(wheel.cancel(cancelled));
+		assertFalse(cancelled.isPending());
+		assertEquals(List.of("kept"), wheel.advance(300));
+		assertFalse(kept.isPending());
+		assertFalse(wheel.cancel(kept));
+	}
+
+	/**
+	 * Deadlines beyond the last level, 4^2 ticks, wait in it until they are within reach.
+	 */
+	@Test
+	void beyondLastLevelTest() {
+		val wheel = new TimingWheel<Long>(1, 2, 2, 0);
+		val deadlines = new ArrayList<Long>();
+		val random = new Random(1);
+		for(int i = 0; i < 1000; i++) {
+			val deadline = 1L + random.nextInt(500);
+			deadlines.add(deadline);
+			wheel.schedule(deadline, deadline);
+		}
+		Collections.sort(deadlines);
+		val due = new ArrayList<Long>();
+		for(long now = 0; now <= 501; now++) {
+			for(val deadline : wheel.advance(now)) {
+				assertEquals(now, (long) deadline);
+				due.add(deadline);
+			}
+		}
+		assertEquals(deadlines, due);
+	}
+}
@@ -0,0 +1,156 @@
+package com.sm360.advertisement.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.validation.Validation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
+import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
+import com.sm360.advertisement.dto.ListingUnpublishRequest;
+import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.exception.TierLimitHasBeenExceededException;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
+import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingState;
+import com.sm360.advertisement.repository.DealerCacheRepository;
+import com.sm360.advertisement.repository.ListingCacheRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs publish, unpublish, update and batch state requests from several threads against the cache repositories
+ * and verifies no dealer goes over its tier limit.
+ */
+@Slf4j
+class VehicleAdvertisementServiceConcurrencyTest {
+
+	private static final int DEALERS = 8;
+
+	private static final int LISTINGS_PER_DEALER = 20;
+
+	private static final int TIER_LIMIT = 3;
+
+	private static final int OPERATIONS_PER_THREAD = 5_000;
+	
+	private static final int BATCH_SIZE = 4;
+
+	VehicleAdvertisementServiceImpl vehicleAdvertisementServiceImpl;
+
+	List<Dealer> dealers;
+
+	List<UUID> listingIds;
+
+	@BeforeEach
+	void setUp() {
+		vehicleAdvertisementServiceImpl = new VehicleAdvertisementServiceImpl();
+		vehicleAdvertisementServiceImpl.listingRepository = new ListingCacheRepository();
+		vehicleAdvertisementServiceImpl.dealerRepository = new DealerCacheRepository();
+		vehicleAdvertisementServiceImpl.listingMapper = new ListingMapper();
+		vehicleAdvertisementServiceImpl.dealerMapper = new DealerMapper();
+		vehicleAdvertisementServiceImpl.dealerLocks = new StripedLocks();
+		vehicleAdvertisementServiceImpl.validator = Validation.buildDefaultValidatorFactory().getValidator();
+		vehicleAdvertisementServiceImpl.listingResponseCache = new ListingResponseCache(new ListingCacheProperties());
+
+		dealers = new ArrayList<Dealer>();
+		listingIds = new ArrayList<UUID>();
+		for(int i = 0; i < DEALERS; i++) {
+			val dealer = Dealer.builder().id(UUID.randomUUID()).name("Dealer " + i).tierLimit(TIER_LIMIT).build();
+			vehicleAdvertisementServiceImpl.dealerRepository.save(dealer);
+			dealers.add(dealer);
+			for(int j = 0; j < LISTINGS_PER_DEALER; j++) {
+				val listing = Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota " + j).price(100.0 + j)
+						.createdAt(LocalDateTime.now()).state(ListingState.draft).build();
+				vehicleAdvertisementServiceImpl.listingRepository.save(listing);
+				listingIds.add(listing.getId());
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 4, 8, 16})
+	void tierLimitIsNeverExceededTest(int threads) throws Exception {
+		val executor = Executors.newFixedThreadPool(threads);
+		val start = new CountDownLatch(1);
+		val futures = new ArrayList<Future<Integer>>();
+		for(int i = 0; i < threads; i++) {
+			Callable<Integer> worker = ()-> {
+				start.await();
+				int rejected = 0;
+				for(int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+					try {
+						execute(ThreadLocalRandom.current());
+					} catch (TierLimitHasBeenExceededException e) {
+						rejected++;
+					}
+				}
+				return rejected;
+			};
+			futures.add(executor.submit(worker));
+		}
+
+		val begin = System.nanoTime();
+		start.countDown();
+		int rejected = 0;
+		for(Future<Integer> future : futures) {
+			rejected += future.get();
+		}
+		val elapsed = System.nanoTime() - begin;
+		executor.shutdown();
+
+		log.info("threads: {} operations/s: {} rejected: {}", threads,
+				(long) (threads * OPERATIONS_PER_THREAD / (elapsed / 1_000_000_000.0)), rejected);
+		for(Dealer dealer : dealers) {
+			val published = vehicleAdvertisementServiceImpl.listingRepository.stream(null, null)
+					.filter(item-> dealer.getId().equals(item.getDealer().getId()) && ListingState.published.equals(item.getState()))
+					.count();
+			assertTrue(published <= TIER_LIMIT);
+			assertEquals(published, publishedCount(dealer));
+		}
+	}
+
+	private void execute(ThreadLocalRandom random) {
+		val id = listingIds.get(random.nextInt(listingIds.size()));
+		val operation = random.nextInt(10);
+		if(operation < 5) {
+			vehicleAdvertisementServiceImpl.publishListing(ListingPublishRequest.builder().id(id).showErrorLimitIsReached(random.nextBoolean()).build());
+		} else if(operation < 6) {
+			val requests = new ArrayList<ListingStateRequest>();
+			for(int i = 0; i < BATCH_SIZE; i++) {
+				requests.add(ListingStateRequest.builder().id(listingIds.get(random.nextInt(listingIds.size())))
+						.state(random.nextBoolean() ? ListingState.published : ListingState.draft).showErrorLimitIsReached(random.nextBoolean()).build());
+			}
+			vehicleAdvertisementServiceImpl.changeListingStates(requests);
+		} else if(operation < 9) {
+			vehicleAdvertisementServiceImpl.unpublishListing(ListingUnpublishRequest.builder().id(id).build());
+		} else {
+			val dealer = dealers.get(random.nextInt(dealers.size()));
+			vehicleAdvertisementServiceImpl.updateListing(ListingUpdateRequest.builder().id(id).dealerId(dealer.getId())
+					.vehicle("Honda " + random.nextInt(100)).price(200.0).build());
+		}
+	}
+
+	private long publishedCount(Dealer dealer) {
+		return vehicleAdvertisementServiceImpl.listingRepository.countByDealerAndState(dealer.getId(), ListingState.published);
+	}
+}
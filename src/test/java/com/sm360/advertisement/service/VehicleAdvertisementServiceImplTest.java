@@ -1,42 +1,74 @@
 package com.sm360.advertisement.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
+import javax.validation.Validation;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import com.sm360.advertisement.cache.ListingCacheProperties;
+import com.sm360.advertisement.cache.ListingResponseCache;
 import com.sm360.advertisement.dto.DealerCreateRequest;
 import com.sm360.advertisement.dto.ListingCreateRequest;
 import com.sm360.advertisement.dto.ListingPublishRequest;
+import com.sm360.advertisement.dto.ListingStateRequest;
 import com.sm360.advertisement.dto.ListingUnpublishRequest;
 import com.sm360.advertisement.dto.ListingUpdateRequest;
+import com.sm360.advertisement.exception.DealerAlreadyExistsException;
+import com.sm360.advertisement.exception.DealerNotFoundException;
+import com.sm360.advertisement.exception.InvalidCursorException;
+import com.sm360.advertisement.exception.ListingAlreadyExistsException;
+import com.sm360.advertisement.exception.ListingNotFoundException;
+import com.sm360.advertisement.exception.ListingScheduleNotFoundException;
+import com.sm360.advertisement.exception.ListingVersionConflictException;
 import com.sm360.advertisement.exception.TierLimitHasBeenExceededException;
+import com.sm360.advertisement.mapper.DealerMapper;
+import com.sm360.advertisement.mapper.ListingMapper;
 import com.sm360.advertisement.model.Dealer;
+import com.sm360.advertisement.model.DealerStats;
 import com.sm360.advertisement.model.Listing;
+import com.sm360.advertisement.model.ListingSort;
 import com.sm360.advertisement.model.ListingState;
 import com.sm360.advertisement.repository.DealerRepository;
 import com.sm360.advertisement.repository.ListingRepository;
+import com.sm360.advertisement.repository.StripedLocks;
+import com.sm360.advertisement.scheduling.ListingScheduler;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.val;
 
 @ExtendWith(MockitoExtension.class)
@@ -51,18 +83,25 @@ class VehicleAdvertisementServiceImplTest {
 	@Mock
 	public ListingRepository listingRepository;
 	
+	@Mock
+	public ListingScheduler listingScheduler;
+	
 	@Captor
 	ArgumentCaptor<Dealer> dealerCaptor;
 	
 	@Captor
 	ArgumentCaptor<Listing> listingCaptor;
 	
-	ModelMapper modelMapper;
+	@Captor
+	ArgumentCaptor<Collection<Listing>> listingsCaptor;
 	
 	@BeforeEach
 	void setUp() {
-		this.modelMapper = new ModelMapper();
-		ReflectionTestUtils.setField(vehicleAdvertisementServiceImpl, "modelMapper", modelMapper);
+		ReflectionTestUtils.setField(vehicleAdvertisementServiceImpl, "listingMapper", new ListingMapper());
+		ReflectionTestUtils.setField(vehicleAdvertisementServiceImpl, "dealerMapper", new DealerMapper());
+		ReflectionTestUtils.setField(vehicleAdvertisementServiceImpl, "dealerLocks", new StripedLocks());
+		ReflectionTestUtils.setField(vehicleAdvertisementServiceImpl, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+		ReflectionTestUtils.setField(vehicleAdvertisementServiceImpl, "listingResponseCache", new ListingResponseCache(new ListingCacheProperties()));
 	}
 	
 	@Test
@@ -94,13 +133,93 @@ class VehicleAdvertisementServiceImplTest {
 	}
 	
 	@Test
-	void getAllDealersTest() {
+	void saveListingAlreadyExistsTest() {
 		val uuid = UUID.randomUUID();
-		when(dealerRepository.findAll()).thenReturn(getDealers(uuid));
+		val dealer = getDealers(uuid).get(0);
+		val request = ListingCreateRequest.builder().dealerId(dealer.getId()).vehicle("TOYOTA").price(100.0).build();
 		
-		val response = vehicleAdvertisementServiceImpl.getAllDealers();
-		assertNotNull(response);
-		assertEquals(1, response.size());
+		when(dealerRepository.findById(dealer.getId())).thenReturn(dealer);
+		when(listingRepository.findByDealerAndVehicleAndPrice(dealer.getId(), "TOYOTA", 100.0)).thenReturn(getListings(uuid, ListingState.draft).get(0));
+		
+		assertThrows(ListingAlreadyExistsException.class, ()-> vehicleAdvertisementServiceImpl.saveListing(request));
+		verify(listingRepository, never()).save(any(Listing.class));
+	}
+	
+	@Test
+	void saveListingsTest() {
+		val uuid = UUID.randomUUID();
+		val dealer = getDealers(uuid).get(0);
+		val unknownDealerId = UUID.randomUUID();
+		val requests = Arrays.asList(
+				ListingCreateRequest.builder().dealerId(uuid).vehicle("Toyota").price(100.0).build(),
+				ListingCreateRequest.builder().dealerId(uuid).vehicle("TOYOTA").price(100.0).build(),
+				ListingCreateRequest.builder().dealerId(uuid).price(100.0).build(),
+				ListingCreateRequest.builder().dealerId(unknownDealerId).vehicle("Toyota").price(100.0).build(),
+				ListingCreateRequest.builder().dealerId(uuid).vehicle("Honda").price(200.0).build(),
+				null);
+		
+		when(dealerRepository.findById(uuid)).thenReturn(dealer);
+		when(dealerRepository.findById(unknownDealerId)).thenReturn(null);
+		when(listingRepository.findByDealerAndVehicleAndPrice(uuid, "Toyota", 100.0)).thenReturn(null);
+		when(listingRepository.findByDealerAndVehicleAndPrice(uuid, "Honda", 200.0)).thenReturn(getListings(uuid, ListingState.draft).get(0));
+		
+		val response = vehicleAdvertisementServiceImpl.saveListings(requests);
+		assertEquals(requests.size(), response.size());
+		assertEquals(HttpStatus.OK, response.get(0).getStatus());
+		assertNotNull(response.get(0).getItem().getId());
+		assertEquals(HttpStatus.BAD_REQUEST, response.get(1).getStatus());
+		assertEquals(HttpStatus.BAD_REQUEST, response.get(2).getStatus());
+		assertEquals(HttpStatus.NOT_FOUND, response.get(3).getStatus());
+		assertEquals(HttpStatus.BAD_REQUEST, response.get(4).getStatus());
+		assertEquals(HttpStatus.BAD_REQUEST, response.get(5).getStatus());
+		assertEquals(4, response.get(4).getIndex());
+		
+		verify(listingRepository).saveAll(listingsCaptor.capture());
+		assertEquals(1, listingsCaptor.getValue().size());
+		assertEquals(ListingState.draft, listingsCaptor.getValue().iterator().next().getState());
+	}
+	
+	@Test
+	void saveListingsFailedTest() {
+		val uuid = UUID.randomUUID();
+		val requests = Arrays.asList(
+				ListingCreateRequest.builder().dealerId(uuid).vehicle("Toyota").price(100.0).build(),
+				ListingCreateRequest.builder().dealerId(uuid).vehicle("Honda").price(200.0).build());
+		
+		when(dealerRepository.findById(uuid)).thenReturn(getDealers(uuid).get(0));
+		doThrow(new UncheckedIOException(new IOException("No space left on device"))).when(listingRepository).saveAll(any());
+		
+		val response = vehicleAdvertisementServiceImpl.saveListings(requests);
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.get(0).getStatus());
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.get(1).getStatus());
+		assertNull(response.get(1).getItem());
+		assertEquals(1, response.get(1).getIndex());
+	}
+	
+	@Test
+	void saveDealerAlreadyExistsTest() {
+		val request = DealerCreateRequest.builder().name("TOYOTA GROUP").tierLimit(1).build();
+		doThrow(new DealerAlreadyExistsException("TOYOTA GROUP")).when(dealerRepository).save(any(Dealer.class));
+		
+		assertThrows(DealerAlreadyExistsException.class, ()-> vehicleAdvertisementServiceImpl.saveDealer(request));
+	}
+	
+	@Test
+	void getDealersTest() {
+		val dealers = List.of(
+				Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(1).build(),
+				Dealer.builder().id(UUID.randomUUID()).name("Toyota Motors").tierLimit(1).build());
+		when(dealerRepository.findByNamePrefix("toy", null, 2)).thenReturn(dealers);
+		
+		val firstPage = vehicleAdvertisementServiceImpl.getDealers("toy", 1, null);
+		assertEquals(1, firstPage.getItems().size());
+		assertEquals("Toyota Group", firstPage.getItems().get(0).getName());
+		assertNotNull(firstPage.getNextCursor());
+		
+		when(dealerRepository.findByNamePrefix("toy", "Toyota Group", 2)).thenReturn(dealers.subList(1, 2));
+		val secondPage = vehicleAdvertisementServiceImpl.getDealers("toy", 1, firstPage.getNextCursor());
+		assertEquals(1, secondPage.getItems().size());
+		assertNull(secondPage.getNextCursor());
 	}
 	
 	@Test
@@ -112,22 +231,170 @@ class VehicleAdvertisementServiceImplTest {
 		
 		when(listingRepository.findById(listing.getId())).thenReturn(listing);
 		when(dealerRepository.findById(dealer.getId())).thenReturn(dealer);
+		when(listingRepository.compareAndSave(any(Listing.class), eq(0L))).thenReturn(false, true);
 		
 		val response = vehicleAdvertisementServiceImpl.updateListing(request);
 		assertNotNull(response);
-		verify(listingRepository).save(listingCaptor.capture());
+		assertEquals(1, response.getVersion());
+		verify(listingRepository, times(2)).compareAndSave(listingCaptor.capture(), eq(0L));
 		val listingToSave = listingCaptor.getValue();
-		assertNotNull(listingToSave);
+		assertEquals("Toyota", listingToSave.getVehicle());
+		assertEquals(1, listingToSave.getVersion());
+		assertEquals(0, listing.getVersion());
+	}
+	
+	@Test
+	void updateListingVersionConflictTest() {
+		val uuid = UUID.randomUUID();
+		val listing = getListings(uuid, ListingState.draft).get(0).toBuilder().version(2).build();
+		val request = ListingUpdateRequest.builder().id(listing.getId()).dealerId(uuid).vehicle("Toyota").price(100.00).version(1L).build();
+		
+		when(listingRepository.findById(listing.getId())).thenReturn(listing);
+		
+		assertThrows(ListingVersionConflictException.class, ()-> vehicleAdvertisementServiceImpl.updateListing(request));
+		verify(listingRepository, never()).compareAndSave(any(Listing.class), anyLong());
 	}
 	
 	@Test
 	void getListingTest() {
 		val uuid = UUID.randomUUID();
 		val dealer = getDealers(uuid).get(0);
-		when(listingRepository.findAll()).thenReturn(getListings(uuid, ListingState.draft));
-		val response = vehicleAdvertisementServiceImpl.getListing(dealer.getId(), ListingState.draft);
+		when(listingRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.createdAt, null, Integer.MAX_VALUE))
+			.thenReturn(getListings(uuid, ListingState.draft));
+		val response = vehicleAdvertisementServiceImpl.getListing(dealer.getId(), ListingState.draft, null, null, null);
 		assertNotNull(response);
-		assertEquals(1, response.size());
+		assertEquals(1, response.getItems().size());
+		assertNull(response.getNextCursor());
+	}
+	
+	@Test
+	void getListingTagTest() {
+		val dealerId = UUID.randomUUID();
+		when(listingRepository.findVersion(dealerId)).thenReturn(1L, 1L, 2L);
+		val tag = vehicleAdvertisementServiceImpl.getListingTag(dealerId);
+		assertEquals(tag, vehicleAdvertisementServiceImpl.getListingTag(dealerId));
+		assertNotEquals(tag, vehicleAdvertisementServiceImpl.getListingTag(dealerId));
+	}
+	
+	@Test
+	void getListingPageTest() {
+		val uuid = UUID.randomUUID();
+		val dealer = getDealers(uuid).get(0);
+		val listings = List.of(
+				Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota").price(100.0).state(ListingState.draft).build(),
+				Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Honda").price(200.0).state(ListingState.draft).build());
+		when(listingRepository.findByDealerAndState(dealer.getId(), ListingState.draft, ListingSort.price, null, 2)).thenReturn(listings);
+		
+		val firstPage = vehicleAdvertisementServiceImpl.getListing(dealer.getId(), ListingState.draft, ListingSort.price, 1, null);
+		assertEquals(1, firstPage.getItems().size());
+		assertEquals("Toyota", firstPage.getItems().get(0).getVehicle());
+		assertNotNull(firstPage.getNextCursor());
+		
+		when(listingRepository.findByDealerAndState(eq(dealer.getId()), eq(ListingState.draft), eq(ListingSort.price), listingCaptor.capture(), eq(2)))
+			.thenReturn(listings.subList(1, 2));
+		val secondPage = vehicleAdvertisementServiceImpl.getListing(dealer.getId(), ListingState.draft, ListingSort.price, 1, firstPage.getNextCursor());
+		assertEquals(1, secondPage.getItems().size());
+		assertNull(secondPage.getNextCursor());
+		assertEquals(listings.get(0).getId(), listingCaptor.getValue().getId());
+		assertEquals(listings.get(0).getPrice(), listingCaptor.getValue().getPrice());
+		
+		assertThrows(InvalidCursorException.class, ()-> vehicleAdvertisementServiceImpl.getListing(dealer.getId(), ListingState.draft, ListingSort.createdAt, 1, firstPage.getNextCursor()));
+	}
+
+	@Test
+	void searchListingsTest() {
+		val uuid = UUID.randomUUID();
+		val dealer = getDealers(uuid).get(0);
+		val listings = List.of(
+				Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Toyota").price(15000.0).state(ListingState.published).build(),
+				Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("Honda").price(25000.0).state(ListingState.published).build());
+		when(listingRepository.findPublishedByPrice(null, 15000.0, 25000.0, null, 2)).thenReturn(listings);
+		
+		val firstPage = vehicleAdvertisementServiceImpl.searchListings(null, null, 15000.0, 25000.0, 1, null);
+		assertEquals(1, firstPage.getItems().size());
+		assertEquals("Toyota", firstPage.getItems().get(0).getVehicle());
+		assertNotNull(firstPage.getNextCursor());
+		
+		when(listingRepository.findPublishedByPrice(eq(null), eq(15000.0), eq(25000.0), listingCaptor.capture(), eq(2)))
+			.thenReturn(listings.subList(1, 2));
+		val secondPage = vehicleAdvertisementServiceImpl.searchListings(" ", null, 15000.0, 25000.0, 1, firstPage.getNextCursor());
+		assertEquals(1, secondPage.getItems().size());
+		assertNull(secondPage.getNextCursor());
+		assertEquals(listings.get(0).getId(), listingCaptor.getValue().getId());
+		assertEquals(listings.get(0).getPrice(), listingCaptor.getValue().getPrice());
+	}
+
+	@Test
+	void getDealerStatsTest() {
+		val dealer = Dealer.builder().id(UUID.randomUUID()).name("Toyota Group").tierLimit(5).build();
+		when(dealerRepository.findById(dealer.getId())).thenReturn(dealer);
+		when(listingRepository.findStats(dealer.getId())).thenReturn(DealerStats.builder().draftListings(3).publishedListings(1)
+				.averagePrice(20000.0).minPrice(20000.0).maxPrice(20000.0).build());
+		
+		val stats = vehicleAdvertisementServiceImpl.getDealerStats(dealer.getId());
+		assertEquals(dealer.getName(), stats.getName());
+		assertEquals(3, stats.getDraftListings());
+		assertEquals(1, stats.getPublishedListings());
+		assertEquals(4, stats.getRemainderTierLimit());
+		assertEquals(Double.valueOf(20000.0), stats.getAveragePrice());
+		
+		when(listingRepository.findStats(dealer.getId())).thenReturn(DealerStats.builder().publishedListings(6).build());
+		assertEquals(0, vehicleAdvertisementServiceImpl.getDealerStats(dealer.getId()).getRemainderTierLimit());
+	}
+
+	@Test
+	void getDealerStatsNotFoundTest() {
+		val id = UUID.randomUUID();
+		assertThrows(DealerNotFoundException.class, ()-> vehicleAdvertisementServiceImpl.getDealerStats(id));
+		verify(listingRepository, never()).findStats(any());
+	}
+
+	@Test
+	void searchListingsByVehicleTest() {
+		val uuid = UUID.randomUUID();
+		val dealer = getDealers(uuid).get(0);
+		val listings = List.of(
+				Listing.builder().id(UUID.randomUUID()).dealer(dealer).vehicle("2018 Toyota Corolla").price(15000.0).state(ListingState.published).build());
+		when(listingRepository.findPublishedByVehicle("toyota corolla", dealer.getId(), null, 20000.0, null, 11)).thenReturn(listings);
+		
+		val page = vehicleAdvertisementServiceImpl.searchListings("toyota corolla", dealer.getId(), null, 20000.0, 10, null);
+		assertEquals(1, page.getItems().size());
+		assertEquals("2018 Toyota Corolla", page.getItems().get(0).getVehicle());
+		assertNull(page.getNextCursor());
+		verify(listingRepository, never()).findPublishedByPrice(any(), any(), any(), any(), anyInt());
+	}
+
+	@Test
+	void schedulePublishListingTest() {
+		val uuid = UUID.randomUUID();
+		val listing = getListings(uuid, ListingState.draft).get(0);
+		val at = LocalDateTime.now().plusDays(1);
+		when(listingRepository.findById(listing.getId())).thenReturn(listing);
+		
+		vehicleAdvertisementServiceImpl.publishListing(ListingPublishRequest.builder().id(listing.getId()).showErrorLimitIsReached(true).at(at).build());
+		verify(listingScheduler).schedule(ListingStateRequest.builder().id(listing.getId()).state(ListingState.published).showErrorLimitIsReached(true).build(), at);
+		verify(listingRepository, never()).compareAndSave(any(), anyLong());
+		
+		vehicleAdvertisementServiceImpl.unpublishListing(ListingUnpublishRequest.builder().id(listing.getId()).at(at.plusDays(3)).build());
+		verify(listingScheduler).schedule(ListingStateRequest.builder().id(listing.getId()).state(ListingState.draft).build(), at.plusDays(3));
+		verify(listingRepository, never()).compareAndSave(any(), anyLong());
+	}
+
+	@Test
+	void scheduleListingNotFoundTest() {
+		val request = ListingPublishRequest.builder().id(UUID.randomUUID()).at(LocalDateTime.now().plusDays(1)).build();
+		assertThrows(ListingNotFoundException.class, ()-> vehicleAdvertisementServiceImpl.publishListing(request));
+		verify(listingScheduler, never()).schedule(any(), any());
+	}
+
+	@Test
+	void cancelScheduleTest() {
+		val id = UUID.randomUUID();
+		when(listingScheduler.cancel(id, null)).thenReturn(true);
+		vehicleAdvertisementServiceImpl.cancelSchedule(id, null);
+		
+		when(listingScheduler.cancel(id, ListingState.draft)).thenReturn(false);
+		assertThrows(ListingScheduleNotFoundException.class, ()-> vehicleAdvertisementServiceImpl.cancelSchedule(id, ListingState.draft));
 	}
 
 	@ParameterizedTest
@@ -137,9 +404,14 @@ class VehicleAdvertisementServiceImplTest {
 		val dealer = getDealers(uuid).get(0);
 		val listing = getListings(uuid, limitWasReached ? ListingState.published : ListingState.draft).get(0);
 		val request = ListingPublishRequest.builder().id(listing.getId()).showErrorLimitIsReached(showError).build();
+		val registry = new SimpleMeterRegistry();
+		vehicleAdvertisementServiceImpl.bindTo(registry);
 		
 		if(limitWasReached) {
-			when(listingRepository.findAll()).thenReturn(getListings(uuid, ListingState.published));
+			when(listingRepository.countByDealerAndState(dealer.getId(), ListingState.published)).thenReturn(2L);
+		}
+		if(!showError && limitWasReached) {
+			when(listingRepository.findLastPublished(dealer.getId(), listing.getId())).thenReturn(getListings(uuid, ListingState.published).get(0));
 		}
 		when(listingRepository.findById(listing.getId())).thenReturn(listing);
 		when(dealerRepository.findById(dealer.getId())).thenReturn(dealer);
@@ -147,15 +419,20 @@ class VehicleAdvertisementServiceImplTest {
 		if(showError && limitWasReached) {
 			assertThrows(TierLimitHasBeenExceededException.class, ()-> vehicleAdvertisementServiceImpl.publishListing(request));
 		} else if(!showError && limitWasReached) {
+			when(listingRepository.compareAndSave(any(Listing.class), eq(0L))).thenReturn(true);
 			vehicleAdvertisementServiceImpl.publishListing(request);
-			verify(listingRepository, atLeast(2)).save(any(Listing.class));
+			verify(listingRepository, atLeast(2)).compareAndSave(any(Listing.class), eq(0L));
 			
 		} else {
+			when(listingRepository.compareAndSave(any(Listing.class), eq(0L))).thenReturn(true);
 			vehicleAdvertisementServiceImpl.publishListing(request);
-			verify(listingRepository).save(listingCaptor.capture());
+			verify(listingRepository).compareAndSave(listingCaptor.capture(), eq(0L));
 			val listingToSave = listingCaptor.getValue();
-			assertNotNull(listingToSave);
+			assertEquals(ListingState.published, listingToSave.getState());
+			assertEquals(1, listingToSave.getVersion());
 		}
+		assertEquals(limitWasReached && !showError ? 1 : 0, registry.get("listings.tier.limit").tag("outcome", "evicted").counter().count());
+		assertEquals(limitWasReached && showError ? 1 : 0, registry.get("listings.tier.limit").tag("outcome", "rejected").counter().count());
 	}
 	
 	@Test
@@ -165,14 +442,80 @@ class VehicleAdvertisementServiceImplTest {
 		val request = ListingUnpublishRequest.builder().id(listing.getId()).build();
 		
 		when(listingRepository.findById(listing.getId())).thenReturn(listing);
+		when(listingRepository.compareAndSave(any(Listing.class), eq(0L))).thenReturn(true);
 		
 		vehicleAdvertisementServiceImpl.unpublishListing(request);
-		verify(listingRepository).save(listingCaptor.capture());
+		verify(listingRepository).compareAndSave(listingCaptor.capture(), eq(0L));
 		val listingToSave = listingCaptor.getValue();
 		assertNotNull(listingToSave);
 		assertEquals(ListingState.draft, listingToSave.getState());
 	}
 	
+	@Test
+	void changeListingStatesTest() {
+		val uuid = UUID.randomUUID();
+		val dealer = getDealers(uuid).get(0);
+		val published = getListings(uuid, ListingState.published).get(0);
+		val first = getListings(uuid, ListingState.draft).get(0);
+		val second = getListings(uuid, ListingState.draft).get(0);
+		val unknownId = UUID.randomUUID();
+		val requests = List.of(
+				ListingStateRequest.builder().id(first.getId()).state(ListingState.published).build(),
+				ListingStateRequest.builder().id(second.getId()).state(ListingState.published).showErrorLimitIsReached(true).build(),
+				ListingStateRequest.builder().id(first.getId()).state(ListingState.draft).build(),
+				ListingStateRequest.builder().id(unknownId).state(ListingState.draft).build(),
+				ListingStateRequest.builder().id(first.getId()).build());
+		
+		when(listingRepository.findById(first.getId())).thenReturn(first);
+		when(listingRepository.findById(second.getId())).thenReturn(second);
+		when(listingRepository.findById(unknownId)).thenReturn(null);
+		when(dealerRepository.findById(uuid)).thenReturn(dealer);
+		when(listingRepository.findByDealerAndState(uuid, ListingState.published, ListingSort.publishedAt, null, Integer.MAX_VALUE))
+			.thenReturn(List.of(published));
+		when(listingRepository.compareAndSave(any(Listing.class), eq(0L))).thenReturn(true);
+		
+		val response = vehicleAdvertisementServiceImpl.changeListingStates(requests);
+		assertEquals(requests.size(), response.size());
+		assertEquals(HttpStatus.OK, response.get(0).getStatus());
+		assertEquals(ListingState.published, response.get(0).getItem().getState());
+		assertEquals(HttpStatus.BAD_REQUEST, response.get(1).getStatus());
+		assertEquals(HttpStatus.OK, response.get(2).getStatus());
+		assertEquals(ListingState.draft, response.get(2).getItem().getState());
+		assertEquals(HttpStatus.NOT_FOUND, response.get(3).getStatus());
+		assertEquals(HttpStatus.BAD_REQUEST, response.get(4).getStatus());
+		
+		verify(listingRepository, times(2)).compareAndSave(listingCaptor.capture(), eq(0L));
+		val saved = listingCaptor.getAllValues();
+		assertEquals(List.of(published.getId(), first.getId()), List.of(saved.get(0).getId(), saved.get(1).getId()));
+		assertEquals(ListingState.draft, saved.get(0).getState());
+		assertEquals(ListingState.draft, saved.get(1).getState());
+		assertEquals(ListingState.published, published.getState());
+		verify(listingRepository, never()).save(any(Listing.class));
+	}
+	
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void changeListingStatesEvictionTest(boolean evictionSaved) {
+		val uuid = UUID.randomUUID();
+		val dealer = getDealers(uuid).get(0);
+		val published = getListings(uuid, ListingState.published).get(0);
+		val listing = getListings(uuid, ListingState.draft).get(0);
+		val registry = new SimpleMeterRegistry();
+		vehicleAdvertisementServiceImpl.bindTo(registry);
+		
+		when(listingRepository.findById(listing.getId())).thenReturn(listing);
+		when(dealerRepository.findById(uuid)).thenReturn(dealer);
+		when(listingRepository.findByDealerAndState(uuid, ListingState.published, ListingSort.publishedAt, null, Integer.MAX_VALUE))
+			.thenReturn(List.of(published));
+		when(listingRepository.compareAndSave(any(Listing.class), eq(0L)))
+			.thenAnswer(invocation-> evictionSaved || !invocation.<Listing>getArgument(0).getId().equals(published.getId()));
+		
+		val response = vehicleAdvertisementServiceImpl.changeListingStates(
+				List.of(ListingStateRequest.builder().id(listing.getId()).state(ListingState.published).build()));
+		assertEquals(HttpStatus.OK, response.get(0).getStatus());
+		assertEquals(evictionSaved ? 1 : 0, registry.get("listings.tier.limit").tag("outcome", "evicted").counter().count());
+	}
+	
 	private List<Dealer> getDealers(UUID id){
 		return List.of(
 				Dealer.builder().id(id).name("Toyota Group").tierLimit(1).build()